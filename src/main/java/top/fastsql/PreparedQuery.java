@@ -0,0 +1,174 @@
+package top.fastsql;
+
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.jdbc.core.namedparam.*;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译的查询句柄
+ * <p>
+ * 不可变、线程安全，持有最终的sql文本、解析后的参数位置和RowMapper，
+ * 可以保存在静态字段中，使用不同的参数多次执行，执行时不再构建和解析sql
+ *
+ * <pre>
+ * PreparedQuery&lt;Student&gt; query = sqlFactory.sql()
+ *         .SELECT("*").FROM("student").WHERE("age > :age")
+ *         .prepare(Student.class);
+ *
+ * List&lt;Student&gt; list = query.queryList(new MapSqlParameterSource("age", 10));
+ * </pre>
+ *
+ * @author 陈佳志
+ * @see SQL#prepare(Class)
+ */
+public final class PreparedQuery<T> {
+
+    private final NamedParameterJdbcOperations namedParameterJdbcOperations;
+
+    private final String sql;
+
+    private final ParsedSql parsedSql;
+
+    /**
+     * 命名参数全部替换为 ? 之后的sql
+     */
+    private final String jdbcSql;
+
+    /**
+     * 每个 ? 占位符对应的参数名
+     */
+    private final String[] parameterNames;
+
+    private final RowMapper<T> rowMapper;
+
+    PreparedQuery(NamedParameterJdbcOperations namedParameterJdbcOperations, String sql, ParsedSql parsedSql,
+                  RowMapper<T> rowMapper) {
+        this.namedParameterJdbcOperations = namedParameterJdbcOperations;
+        this.sql = sql;
+        this.parsedSql = parsedSql;
+        this.jdbcSql = NamedParameterUtils.substituteNamedParameters(parsedSql, null);
+        this.parameterNames = resolveParameterNames(parsedSql);
+        this.rowMapper = rowMapper;
+    }
+
+    /**
+     * 使用命名参数查询多行
+     */
+    public List<T> queryList(SqlParameterSource paramSource) {
+        Object[] args = new Object[parameterNames.length];
+        for (int i = 0; i < parameterNames.length; i++) {
+            String name = parameterNames[i];
+            if (!paramSource.hasValue(name)) {
+                throw new IllegalArgumentException("没有为命名参数[" + name + "]设置值，sql=" + sql);
+            }
+            Object value = paramSource.getValue(name);
+            if (value instanceof Collection || (value != null && value.getClass().isArray())) {
+                //集合参数需要展开为多个占位符，交给spring处理
+                return namedParameterJdbcOperations.query(sql, paramSource, rowMapper);
+            }
+            int sqlType = paramSource.getSqlType(name);
+            args[i] = sqlType == SqlParameterSource.TYPE_UNKNOWN ?
+                    value : new SqlParameterValue(sqlType, paramSource.getTypeName(name), value);
+        }
+        return namedParameterJdbcOperations.getJdbcOperations()
+                .query(jdbcSql, new ArgumentPreparedStatementSetter(args), rowMapper);
+    }
+
+    /**
+     * 使用Map作为命名参数查询多行
+     */
+    public List<T> queryList(Map<String, ?> params) {
+        return queryList(new MapSqlParameterSource(params));
+    }
+
+    /**
+     * 使用 ? 占位符参数查询多行
+     */
+    public List<T> queryList(Object... args) {
+        if (parameterNames.length > 0) {
+            throw new IllegalArgumentException("sql中使用了命名参数，请使用queryList(SqlParameterSource)，sql=" + sql);
+        }
+        return namedParameterJdbcOperations.getJdbcOperations()
+                .query(jdbcSql, new ArgumentPreparedStatementSetter(args), rowMapper);
+    }
+
+    /**
+     * 使用命名参数查询单行，没有结果时返回null
+     */
+    public T queryOne(SqlParameterSource paramSource) {
+        return DataAccessUtils.singleResult(queryList(paramSource));
+    }
+
+    public T queryOne(Map<String, ?> params) {
+        return DataAccessUtils.singleResult(queryList(params));
+    }
+
+    public T queryOne(Object... args) {
+        return DataAccessUtils.singleResult(queryList(args));
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public String getJdbcSql() {
+        return jdbcSql;
+    }
+
+    public List<String> getParameterNames() {
+        return Collections.unmodifiableList(Arrays.asList(parameterNames));
+    }
+
+    public RowMapper<T> getRowMapper() {
+        return rowMapper;
+    }
+
+    public ParsedSql getParsedSql() {
+        return parsedSql;
+    }
+
+    /**
+     * ParsedSql没有公开参数名，这里借助buildValueArray按占位符顺序取出参数名
+     */
+    private static String[] resolveParameterNames(ParsedSql parsedSql) {
+        Object[] names = NamedParameterUtils.buildValueArray(parsedSql, new SqlParameterSource() {
+            @Override
+            public boolean hasValue(String paramName) {
+                return true;
+            }
+
+            @Override
+            public Object getValue(String paramName) {
+                return paramName;
+            }
+
+            @Override
+            public int getSqlType(String paramName) {
+                return TYPE_UNKNOWN;
+            }
+
+            @Override
+            public String getTypeName(String paramName) {
+                return null;
+            }
+        }, null);
+        String[] parameterNames = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            parameterNames[i] = (String) names[i];
+        }
+        return parameterNames;
+    }
+
+    @Override
+    public String toString() {
+        return sql;
+    }
+}
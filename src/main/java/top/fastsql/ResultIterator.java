@@ -0,0 +1,339 @@
+package top.fastsql;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterDisposer;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+import top.fastsql.config.DataSourceType;
+import top.fastsql.dto.ChunkResult;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 持有打开的ResultSet，逐行映射的迭代器
+ * <p>
+ * 遍历结束或调用close()时关闭ResultSet、Statement并释放连接；
+ * 没有遍历完时必须调用close()，建议使用try-with-resources
+ * <p>
+ * 根据数据库类型使用服务端游标，避免驱动把结果全部读入内存：
+ * <ul>
+ * <li>MySQL：连接url中设置了useCursorFetch=true时使用fetchSize分批读取，否则fetchSize设为Integer.MIN_VALUE逐行读取。
+ * 逐行读取时，关闭前同一连接不能执行其他语句，提前关闭时驱动会读完剩余的行</li>
+ * <li>PostgreSQL：fetchSize大于0时，如果连接是自动提交的，临时关闭自动提交，关闭迭代器时提交并恢复</li>
+ * <li>Oracle：按fetchSize分批读取</li>
+ * </ul>
+ *
+ * <pre>
+ * try (ResultIterator&lt;Student&gt; iterator = sqlFactory.sql().SELECT("*").FROM("student")
+ *         .fetchSize(1000).queryIterator(Student.class)) {
+ *     while (iterator.hasNext()) {
+ *         Student student = iterator.next();
+ *     }
+ * }
+ * </pre>
+ *
+ * @author 陈佳志
+ * @see SQL#queryIterator(Class)
+ * @see SQL#queryStream(Class)
+ */
+public final class ResultIterator<T> implements Iterator<T>, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResultIterator.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final String sql;
+
+    private final RowMapper<T> rowMapper;
+
+    private final PreparedStatementSetter parameterSetter;
+
+    private Connection connection;
+
+    private volatile PreparedStatement statement;
+
+    private ResultSet resultSet;
+
+    private int rowNum = 0;
+
+    /**
+     * 是否已经移动到下一行但还没有取出
+     */
+    private boolean fetched = false;
+
+    private boolean hasRow = false;
+
+    private boolean closed = false;
+
+    /**
+     * 打开游标时关闭了自动提交，关闭迭代器时需要恢复
+     */
+    private boolean restoreAutoCommit = false;
+
+    private boolean failed = false;
+
+    private ResultIterator(JdbcTemplate jdbcTemplate, String sql, PreparedStatementSetter parameterSetter,
+                           RowMapper<T> rowMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sql = sql;
+        this.parameterSetter = parameterSetter;
+        this.rowMapper = rowMapper;
+    }
+
+    /**
+     * 执行查询并打开游标
+     *
+     * @param fetchSize      每次从数据库获取的行数，&lt;=0时使用JdbcTemplate的设置
+     * @param dataSourceType 数据库类型，决定游标的设置方式，为null时只设置fetchSize
+     */
+    static <T> ResultIterator<T> open(JdbcTemplate jdbcTemplate, String sql, PreparedStatementSetter parameterSetter,
+                                      RowMapper<T> rowMapper, int fetchSize, DataSourceType dataSourceType) {
+        ResultIterator<T> iterator = new ResultIterator<>(jdbcTemplate, sql, parameterSetter, rowMapper);
+        DataSource dataSource = jdbcTemplate.getDataSource();
+        iterator.connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            int size = fetchSize > 0 ? fetchSize : jdbcTemplate.getFetchSize();
+            if (dataSourceType == DataSourceType.MY_SQL && !isCursorFetch(iterator.connection)) {
+                size = Integer.MIN_VALUE;
+            } else if (dataSourceType == DataSourceType.POSTGRESQL && size > 0 && iterator.connection.getAutoCommit()) {
+                //PostgreSQL只有在事务中才会使用游标分批读取
+                iterator.connection.setAutoCommit(false);
+                iterator.restoreAutoCommit = true;
+            }
+            iterator.statement = iterator.connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            applyStatementSettings(jdbcTemplate, iterator.statement, size);
+            if (parameterSetter != null) {
+                parameterSetter.setValues(iterator.statement);
+            }
+            iterator.resultSet = iterator.statement.executeQuery();
+            return iterator;
+        } catch (SQLException e) {
+            iterator.failed = true;
+            iterator.close();
+            throw iterator.translate(e);
+        } catch (RuntimeException | Error e) {
+            iterator.failed = true;
+            iterator.close();
+            throw e;
+        }
+    }
+
+    /**
+     * MySQL连接是否开启了useCursorFetch
+     */
+    private static boolean isCursorFetch(Connection connection) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        String url = metaData == null ? null : metaData.getURL();
+        return url != null && url.toLowerCase(Locale.ROOT).contains("usecursorfetch=true");
+    }
+
+    private static void applyStatementSettings(JdbcTemplate jdbcTemplate, PreparedStatement statement,
+                                               int fetchSize) throws SQLException {
+        if (fetchSize > 0 || fetchSize == Integer.MIN_VALUE) {
+            statement.setFetchSize(fetchSize);
+        }
+        if (jdbcTemplate.getMaxRows() != -1) {
+            statement.setMaxRows(jdbcTemplate.getMaxRows());
+        }
+        DataSourceUtils.applyTimeout(statement, jdbcTemplate.getDataSource(), jdbcTemplate.getQueryTimeout());
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (!fetched) {
+            try {
+                hasRow = resultSet.next();
+            } catch (SQLException e) {
+                failed = true;
+                close();
+                throw translate(e);
+            }
+            fetched = true;
+            if (!hasRow) {
+                close();
+            }
+        }
+        return hasRow;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        fetched = false;
+        try {
+            return rowMapper.mapRow(resultSet, rowNum++);
+        } catch (SQLException e) {
+            failed = true;
+            close();
+            throw translate(e);
+        } catch (RuntimeException | Error e) {
+            failed = true;
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * 转换为顺序流，流关闭时关闭游标
+     */
+    public Stream<T> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED), false)
+                .onClose(this::close);
+    }
+
+    /**
+     * 把剩余的行交给extractor处理，结束后关闭游标
+     */
+    public <R> R extract(ResultSetExtractor<R> extractor) {
+        try {
+            return extractor.extractData(resultSet);
+        } catch (SQLException e) {
+            failed = true;
+            throw translate(e);
+        } catch (RuntimeException | Error e) {
+            failed = true;
+            throw e;
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * 按固定大小分块读取剩余的行，每读满一块（以及最后不满的一块）调用一次handler，结束后关闭游标
+     * <p>
+     * 所有块共用同一个List，handler返回后会被清空，需要保留数据时应复制
+     *
+     * @param handler 返回false时提前结束
+     */
+    public ChunkResult forEachChunk(int chunkSize, Predicate<List<T>> handler) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize必须大于0：" + chunkSize);
+        }
+        ChunkResult result = new ChunkResult();
+        List<T> chunk = new ArrayList<>(chunkSize);
+        try {
+            long start = System.nanoTime();
+            while (hasNext()) {
+                chunk.add(next());
+                if (chunk.size() == chunkSize || !hasNext()) {
+                    long fetchedAt = System.nanoTime();
+                    boolean goOn = handler.test(chunk);
+                    long handled = System.nanoTime();
+                    result.addChunk(chunk.size(), fetchedAt - start, handled - fetchedAt);
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("chunk {}: {} rows, fetch {}ms, handle {}ms", result.getChunkCount(),
+                                chunk.size(), (fetchedAt - start) / 1_000_000, (handled - fetchedAt) / 1_000_000);
+                    }
+                    chunk.clear();
+                    if (!goOn) {
+                        result.setTerminated(true);
+                        break;
+                    }
+                    start = System.nanoTime();
+                }
+            }
+        } finally {
+            close();
+        }
+        return result;
+    }
+
+    /**
+     * 已经映射的行数
+     */
+    public int getRowCount() {
+        return rowNum;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * 取消正在执行的查询（Statement.cancel()），可以在其他线程调用；游标仍需在读取线程中close()
+     */
+    public void cancel() {
+        PreparedStatement current = statement;
+        if (current != null) {
+            try {
+                current.cancel();
+            } catch (SQLException e) {
+                logger.debug("取消查询失败", e);
+            }
+        }
+    }
+
+    /**
+     * 关闭ResultSet和Statement，恢复连接的自动提交并释放连接，可以多次调用
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        hasRow = false;
+        JdbcUtils.closeResultSet(resultSet);
+        resultSet = null;
+        if (parameterSetter instanceof ParameterDisposer) {
+            ((ParameterDisposer) parameterSetter).cleanupParameters();
+        }
+        JdbcUtils.closeStatement(statement);
+        statement = null;
+        if (restoreAutoCommit) {
+            restoreAutoCommit();
+        }
+        DataSourceUtils.releaseConnection(connection, jdbcTemplate.getDataSource());
+        connection = null;
+    }
+
+    private void restoreAutoCommit() {
+        try {
+            if (failed) {
+                connection.rollback();
+            } else {
+                connection.commit();
+            }
+        } catch (SQLException e) {
+            logger.warn("结束游标事务失败", e);
+        } finally {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                logger.warn("恢复自动提交失败", e);
+            }
+        }
+    }
+
+    private DataAccessException translate(SQLException e) {
+        return jdbcTemplate.getExceptionTranslator().translate("ResultIterator", sql, e);
+    }
+}
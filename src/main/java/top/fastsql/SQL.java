@@ -3,27 +3,38 @@ package top.fastsql;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.support.DataAccessUtils;
 import org.springframework.jdbc.core.*;
 import org.springframework.jdbc.core.namedparam.*;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.util.StringUtils;
+import top.fastsql.cache.CachingNamedParameterJdbcTemplate;
+import top.fastsql.cache.CountCache;
+import top.fastsql.config.CountMode;
 import top.fastsql.config.DataSourceType;
+import top.fastsql.config.InClauseMode;
 import top.fastsql.dto.*;
-import top.fastsql.mapper.OraclePagingSingleColumnRowMapper;
+import top.fastsql.exception.FastSQLException;
+import top.fastsql.mapper.RowMapRowMapper;
+import top.fastsql.mapper.RowMapperRegistry;
+import top.fastsql.reactive.QueryPublisher;
 import top.fastsql.util.*;
 
 import javax.sql.DataSource;
-import java.math.BigDecimal;
-import java.math.BigInteger;
+import java.nio.channels.WritableByteChannel;
 import java.sql.*;
-import java.text.SimpleDateFormat;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.Date;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * sql语句构建器和执行器
@@ -47,6 +58,79 @@ public class SQL {
 
     private DataSourceType dataSourceType;
 
+    /**
+     * 构建sql时自动生成的绑定参数（如IN列表），执行时与设置的参数合并
+     */
+    private MapSqlParameterSource boundParams;
+
+    private InClauseMode inClauseMode = InClauseMode.LITERAL;
+
+    private int inClauseMaxSize = 1000;
+
+    /**
+     * eqByType/byType是否生成绑定参数
+     */
+    private boolean autoParameterize = false;
+
+    /**
+     * 按返回类型缓存的RowMapper，为null时每次创建
+     */
+    private RowMapperRegistry rowMapperRegistry;
+
+    /**
+     * 本次流式查询的fetchSize，-1时使用streamingFetchSize
+     */
+    private int fetchSize = -1;
+
+    /**
+     * 流式查询默认的fetchSize，&lt;=0时使用JdbcTemplate的设置
+     */
+    private int streamingFetchSize = 1000;
+
+    /**
+     * 异步查询的执行器来源，为null时需要调用asyncExecutor(Executor)设置
+     */
+    private SQLFactory sqlFactory;
+
+    private Executor asyncExecutor;
+
+    /**
+     * 分页时是否并发执行数量查询
+     */
+    private boolean concurrentPaging = false;
+
+    private long concurrentPagingTimeoutMillis = 30000;
+
+    /**
+     * 分页时总数的获取方式
+     */
+    private CountMode countMode = CountMode.EXACT;
+
+    private int countCap = 1000;
+
+    private long countCacheTtlMillis = 60000;
+
+    private CountCache countCache;
+
+    /**
+     * 延迟关联分页的主键列
+     */
+    private String deferredJoinKey;
+
+    /**
+     * 自动生成的绑定参数名前缀
+     */
+    private static final String BOUND_PARAM_PREFIX = "fastsqlP";
+
+    /**
+     * 只使用游标、不映射行时的占位RowMapper
+     */
+    private static final RowMapper<Object> NO_ROW_MAPPER = (rs, rowNum) -> null;
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
 
     public SQL() {
 
@@ -57,6 +141,37 @@ public class SQL {
         this.dataSourceType = dataSourceType;
     }
 
+    /**
+     * 使用共享的NamedParameterJdbcTemplate，sql解析缓存在多个SQL实例之间复用
+     *
+     * @see SQLFactory#sql()
+     */
+    public SQL(NamedParameterJdbcTemplate namedParameterJdbcTemplate, DataSourceType dataSourceType) {
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.dataSourceType = dataSourceType;
+    }
+
+    /**
+     * 使用SQLFactory中的执行引擎和配置
+     *
+     * @see SQLFactory#sql()
+     */
+    public SQL(SQLFactory sqlFactory) {
+        this(sqlFactory.getNamedParameterJdbcTemplate(), sqlFactory.getDataSourceType());
+        this.inClauseMode = sqlFactory.getInClauseMode();
+        this.inClauseMaxSize = sqlFactory.getInClauseMaxSize();
+        this.autoParameterize = sqlFactory.isAutoParameterize();
+        this.rowMapperRegistry = sqlFactory.getRowMapperRegistry();
+        this.streamingFetchSize = sqlFactory.getStreamingFetchSize();
+        this.sqlFactory = sqlFactory;
+        this.concurrentPaging = sqlFactory.isConcurrentPaging();
+        this.concurrentPagingTimeoutMillis = sqlFactory.getConcurrentPagingTimeoutMillis();
+        this.countMode = sqlFactory.getCountMode();
+        this.countCap = sqlFactory.getCountCap();
+        this.countCacheTtlMillis = sqlFactory.getCountCacheTtlMillis();
+        this.countCache = sqlFactory.getCountCache();
+    }
+
     public NamedParameterJdbcTemplate getNamedParameterJdbcTemplate() {
         return namedParameterJdbcTemplate;
     }
@@ -408,13 +523,11 @@ public class SQL {
      * 使用可变参数
      */
     public SQL IN_var(Object... params) {
-        strBuilder.append(" IN ").append(FastSqlUtils.getInClause(Arrays.asList(params)));
-        return this;
+        return appendIn(false, Arrays.asList(params));
     }
 
     public SQL NOT_IN_var(Object... params) {
-        strBuilder.append(" NOT IN ").append(FastSqlUtils.getInClause(Arrays.asList(params)));
-        return this;
+        return appendIn(true, Arrays.asList(params));
     }
 
     public SQL NOT_IN(String sql) {
@@ -423,25 +536,139 @@ public class SQL {
     }
 
     public SQL IN(Collection<?> collection) {
-        strBuilder.append(" IN ").append(FastSqlUtils.getInClause(collection));
-        return this;
+        return appendIn(false, collection);
     }
 
     public SQL IN(Object[] array) {
-        strBuilder.append(" IN ").append(FastSqlUtils.getInClause(Arrays.asList(array)));
-        return this;
+        return appendIn(false, Arrays.asList(array));
     }
 
     public SQL NOT_IN(Collection<?> collection) {
-        strBuilder.append(" NOT IN ").append(FastSqlUtils.getInClause(collection));
-        return this;
+        return appendIn(true, collection);
     }
 
     public SQL NOT_IN(Object[] array) {
-        strBuilder.append(" NOT IN ").append(FastSqlUtils.getInClause(Arrays.asList(array)));
+        return appendIn(true, Arrays.asList(array));
+    }
+
+    /**
+     * 使用指定的方式生成IN语句，只对本次调用生效
+     *
+     * @see InClauseMode
+     */
+    public SQL IN(Collection<?> collection, InClauseMode mode) {
+        return appendIn(false, collection, mode);
+    }
+
+    public SQL NOT_IN(Collection<?> collection, InClauseMode mode) {
+        return appendIn(true, collection, mode);
+    }
+
+    /**
+     * 设置IN语句的生成方式，默认使用SQLFactory中的配置
+     *
+     * @see InClauseMode
+     */
+    public SQL inClauseMode(InClauseMode inClauseMode) {
+        this.inClauseMode = inClauseMode;
         return this;
     }
 
+    /**
+     * 使用绑定参数时，单个IN中最多的元素个数，超过后拆分为多个用OR连接的IN
+     */
+    public SQL inClauseMaxSize(int inClauseMaxSize) {
+        this.inClauseMaxSize = inClauseMaxSize;
+        return this;
+    }
+
+    private SQL appendIn(boolean not, Collection<?> collection) {
+        return appendIn(not, collection, inClauseMode);
+    }
+
+    private SQL appendIn(boolean not, Collection<?> collection, InClauseMode mode) {
+        String keyword = not ? " NOT IN " : " IN ";
+        if (mode == InClauseMode.LITERAL || collection == null || collection.isEmpty()) {
+            strBuilder.append(keyword).append(FastSqlUtils.getInClause(collection));
+            return this;
+        }
+        List<?> values = collection instanceof List ? (List<?>) collection : new ArrayList<>(collection);
+        boolean array = mode == InClauseMode.ARRAY && SqlArrayValue.isSupported(dataSourceType);
+        int maxSize;
+        if (!array) {
+            maxSize = inClauseMaxSize > 0 ? inClauseMaxSize : values.size();
+        } else if (dataSourceType == DataSourceType.ORACLE) {
+            maxSize = SqlArrayValue.ORACLE_MAX_SIZE;
+        } else {
+            maxSize = values.size();
+        }
+        if (values.size() <= maxSize) {
+            appendInChunk(not, values, 0, values.size(), maxSize, array);
+            return this;
+        }
+        //拆分为 (col IN (...) OR col IN (...))
+        int operandIndex = FastSqlUtils.lastOperandIndex(strBuilder);
+        if (operandIndex < 0) {
+            throw new FastSQLException("IN列表长度超过" + maxSize + "时，IN之前必须是列名");
+        }
+        String operand = strBuilder.substring(operandIndex).trim();
+        strBuilder.insert(operandIndex, "(");
+        for (int from = 0; from < values.size(); from += maxSize) {
+            if (from > 0) {
+                strBuilder.append(not ? " AND " : " OR ").append(operand);
+            }
+            appendInChunk(not, values, from, Math.min(from + maxSize, values.size()), maxSize, array);
+        }
+        strBuilder.append(")");
+        return this;
+    }
+
+    /**
+     * 追加一组IN条件，数组方式绑定一个参数，否则逐个绑定占位符
+     */
+    private void appendInChunk(boolean not, List<?> values, int from, int to, int maxSize, boolean array) {
+        if (!array) {
+            strBuilder.append(not ? " NOT IN " : " IN ");
+            appendInPlaceholders(values, from, to, maxSize);
+            return;
+        }
+        String placeholder = bind(new SqlArrayValue(dataSourceType, values.subList(from, to)));
+        if (dataSourceType == DataSourceType.ORACLE) {
+            strBuilder.append(not ? " NOT IN " : " IN ")
+                    .append("(SELECT COLUMN_VALUE FROM TABLE(").append(placeholder).append("))");
+        } else {
+            strBuilder.append(not ? " <> ALL(" : " = ANY(").append(placeholder).append(")");
+        }
+    }
+
+    /**
+     * 追加 (:p0,:p1,...) ，长度补齐到桶大小，补齐部分重复最后一个值
+     */
+    private void appendInPlaceholders(List<?> values, int from, int to, int maxSize) {
+        int bucketSize = FastSqlUtils.getInBucketSize(to - from, maxSize);
+        strBuilder.append("(");
+        for (int i = 0; i < bucketSize; i++) {
+            if (i > 0) {
+                strBuilder.append(",");
+            }
+            strBuilder.append(bind(values.get(Math.min(from + i, to - 1))));
+        }
+        strBuilder.append(")");
+    }
+
+    /**
+     * 注册一个自动生成的绑定参数，返回命名参数占位符
+     * 使用varParameter时，执行前会被替换为 ? 并按位置合并到参数列表中
+     */
+    private String bind(Object value) {
+        if (boundParams == null) {
+            boundParams = new MapSqlParameterSource();
+        }
+        String name = BOUND_PARAM_PREFIX + boundParams.getValues().size();
+        boundParams.addValue(name, value);
+        return ":" + name;
+    }
+
     //-----------------  operator method--------------------------------
 
     /**
@@ -563,13 +790,17 @@ public class SQL {
 
     /**
      * 根据类型判断如何拼接SQL
+     * 开启自动参数化时，值作为绑定参数而不是直接拼接
      *
      * @param value 值
      * @see SQL#eq(String)
+     * @see SQL#autoParameterize(boolean)
      */
     public SQL eqByType(Object value) {
         if (value == null) {
             strBuilder.append(" IS NULL");
+        } else if (autoParameterize) {
+            strBuilder.append(" = ").append(bind(getParameterByType(value)));
         } else {
             //TODO 1.日期 还不支持oracle 使用 this.dataSourceType 判断
             strBuilder.append(" = ").append(getStringByType(value));
@@ -580,6 +811,8 @@ public class SQL {
     public SQL byType(Object value) {
         if (value == null) {
             strBuilder.append(" NULL");
+        } else if (autoParameterize) {
+            strBuilder.append(bind(getParameterByType(value)));
         } else {
             //TODO 1.日期 还不支持oracle 使用 this.dataSourceType 判断
             strBuilder.append(getStringByType(value));
@@ -587,15 +820,24 @@ public class SQL {
         return this;
     }
 
+    /**
+     * 开启后eqByType/byType生成绑定参数，不同的值生成相同的sql文本，默认使用SQLFactory中的配置
+     */
+    public SQL autoParameterize(boolean autoParameterize) {
+        this.autoParameterize = autoParameterize;
+        return this;
+    }
+
     private String getStringByType(Object value) {
         if (value instanceof Number) {
             return value + "";
         } else if (value instanceof java.util.Date) {
-            return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(value);
+            return "'" + DATE_TIME_FORMATTER.format(
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(((Date) value).getTime()), ZoneId.systemDefault())) + "'";
         } else if (value instanceof LocalDateTime) {
-            return ((LocalDateTime) value).format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+            return "'" + DATE_TIME_FORMATTER.format((LocalDateTime) value) + "'";
         } else if (value instanceof LocalDate) {
-            return ((LocalDate) value).format(DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+            return "'" + DATE_FORMATTER.format((LocalDate) value) + "'";
         } else if (value instanceof CharSequence) {
             return "'" + value + "'";
         } else {
@@ -603,6 +845,22 @@ public class SQL {
         }
     }
 
+    /**
+     * 转换为绑定参数的值，java8日期转换为jdbc日期类型以兼容旧驱动
+     */
+    private Object getParameterByType(Object value) {
+        if (value instanceof LocalDateTime) {
+            return Timestamp.valueOf((LocalDateTime) value);
+        } else if (value instanceof LocalDate) {
+            return java.sql.Date.valueOf((LocalDate) value);
+        } else if (value instanceof CharSequence) {
+            return value.toString();
+        } else if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        return value;
+    }
+
     ///////////////////////////分页关键字///////////////////////////
     public SQL LIMIT(Integer offset, Integer rows) {
         strBuilder.append(" LIMIT ").append(offset).append(",").append(rows);
@@ -890,12 +1148,13 @@ public class SQL {
      * 使用  JdbcTemplate 查询一个
      */
     private <T> T useTemplateQueryOne(RowMapper<T> rowMapper) {
+        ResolvedSql resolved = resolve();
         try {
-            String sql = this.build();
+            String sql = resolved.sql;
             if (useClassicJdbcTemplate) {
-                return this.namedParameterJdbcTemplate.getJdbcOperations().queryForObject(sql, rowMapper, this.varParams);
+                return this.namedParameterJdbcTemplate.getJdbcOperations().queryForObject(sql, rowMapper, resolved.varParams);
             } else {
-                return this.namedParameterJdbcTemplate.queryForObject(sql, this.sqlParameterSource, rowMapper);
+                return this.namedParameterJdbcTemplate.queryForObject(sql, resolved.parameterSource, rowMapper);
             }
         } catch (EmptyResultDataAccessException e) {
             return null;
@@ -909,11 +1168,12 @@ public class SQL {
      */
     public Map<String, Object> queryMap() {
         checkNull();
+        ResolvedSql resolved = resolve();
         try {
             if (this.useClassicJdbcTemplate) {
-                return this.namedParameterJdbcTemplate.getJdbcOperations().queryForMap(strBuilder.toString(), varParams);
+                return this.namedParameterJdbcTemplate.getJdbcOperations().queryForMap(resolved.sql, resolved.varParams);
             } else {
-                return this.namedParameterJdbcTemplate.queryForMap(strBuilder.toString(), this.sqlParameterSource);
+                return this.namedParameterJdbcTemplate.queryForMap(resolved.sql, resolved.parameterSource);
             }
         } catch (EmptyResultDataAccessException e) {
             return null;
@@ -926,12 +1186,7 @@ public class SQL {
      * @return Map
      */
     public RowMap queryRowMap() {
-
-        Map<String, Object> map = queryMap();
-        if (map == null) {
-            return null;
-        }
-        return new RowMap(map);
+        return DataAccessUtils.singleResult(queryList(new RowMapRowMapper()));
     }
 
     /**
@@ -941,43 +1196,244 @@ public class SQL {
      */
     public <T> List<T> queryList(Class<T> returnClassType) {
         checkNull();
+        ResolvedSql resolved = resolve();
         RowMapper<T> rowMapper = getRowMapper(returnClassType);
         if (this.useClassicJdbcTemplate) {
-            return this.namedParameterJdbcTemplate.getJdbcOperations().query(strBuilder.toString(), rowMapper, varParams);
+            return this.namedParameterJdbcTemplate.getJdbcOperations().query(resolved.sql, rowMapper, resolved.varParams);
         }
 
-        return this.namedParameterJdbcTemplate.query(strBuilder.toString(), this.sqlParameterSource, rowMapper);
+        return this.namedParameterJdbcTemplate.query(resolved.sql, resolved.parameterSource, rowMapper);
     }
 
     public List<String> queryStringList() {
         checkNull();
+        ResolvedSql resolved = resolve();
         RowMapper<String> rowMapper = new SingleColumnRowMapper<>(String.class);
         if (this.useClassicJdbcTemplate) {
-            return this.namedParameterJdbcTemplate.getJdbcOperations().query(strBuilder.toString(), rowMapper, varParams);
+            return this.namedParameterJdbcTemplate.getJdbcOperations().query(resolved.sql, rowMapper, resolved.varParams);
         }
 
-        return this.namedParameterJdbcTemplate.query(strBuilder.toString(), this.sqlParameterSource, rowMapper);
+        return this.namedParameterJdbcTemplate.query(resolved.sql, resolved.parameterSource, rowMapper);
     }
 
     public List<Integer> queryIntegerList() {
         checkNull();
+        ResolvedSql resolved = resolve();
         RowMapper<Integer> rowMapper = new SingleColumnRowMapper<>(Integer.class);
         if (this.useClassicJdbcTemplate) {
 
-            return this.namedParameterJdbcTemplate.getJdbcOperations().query(strBuilder.toString(), rowMapper, varParams);
+            return this.namedParameterJdbcTemplate.getJdbcOperations().query(resolved.sql, rowMapper, resolved.varParams);
         }
 
-        return this.namedParameterJdbcTemplate.query(strBuilder.toString(), this.sqlParameterSource, rowMapper);
+        return this.namedParameterJdbcTemplate.query(resolved.sql, resolved.parameterSource, rowMapper);
     }
 
     public <T> List<T> queryList(RowMapper<T> rowMapper) {
         checkNull();
+        ResolvedSql resolved = resolve();
         if (this.useClassicJdbcTemplate) {
 
-            return this.namedParameterJdbcTemplate.getJdbcOperations().query(strBuilder.toString(), rowMapper, varParams);
+            return this.namedParameterJdbcTemplate.getJdbcOperations().query(resolved.sql, rowMapper, resolved.varParams);
+        }
+
+        return this.namedParameterJdbcTemplate.query(resolved.sql, resolved.parameterSource, rowMapper);
+    }
+
+    /**
+     * 将当前构建好的sql冻结为可重复执行的查询句柄
+     * 句柄只保存sql和RowMapper，不保存当前设置的参数，执行时再传入
+     *
+     * @param returnClassType 返回的结果类型
+     * @see PreparedQuery
+     */
+    public <T> PreparedQuery<T> prepare(Class<T> returnClassType) {
+        return prepare(getRowMapper(returnClassType));
+    }
+
+    /**
+     * 将当前构建好的sql冻结为可重复执行的查询句柄
+     *
+     * @param rowMapper 结果映射
+     * @see PreparedQuery
+     */
+    public <T> PreparedQuery<T> prepare(RowMapper<T> rowMapper) {
+        checkNull();
+        if (boundParams != null) {
+            throw new FastSQLException("prepare()不支持自动生成的绑定参数（如使用绑定参数的IN语句）");
+        }
+        String sql = this.build();
+        return new PreparedQuery<>(this.namedParameterJdbcTemplate, sql, parse(sql), rowMapper);
+    }
+
+    /**
+     * 设置流式查询每次从数据库获取的行数，默认使用SQLFactory中的fetchSize
+     *
+     * @see SQL#queryIterator(RowMapper)
+     */
+    public SQL fetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    /**
+     * 流式查询，返回持有打开游标的迭代器，遍历时逐行映射，不会把结果全部加载到内存中
+     * 遍历结束时自动释放连接，提前结束时必须调用close()
+     * 会根据数据库类型设置服务端游标（MySQL逐行读取/PostgreSQL临时关闭自动提交）
+     *
+     * @see ResultIterator
+     */
+    public <T> ResultIterator<T> queryIterator(Class<T> returnClassType) {
+        return queryIterator(getRowMapper(returnClassType));
+    }
+
+    public <T> ResultIterator<T> queryIterator(RowMapper<T> rowMapper) {
+        checkNull();
+        return streamingQuery().open(rowMapper);
+    }
+
+    /**
+     * 解析出jdbc sql和参数值，之后不再依赖SQL构造器的状态
+     */
+    private StreamingQuery streamingQuery() {
+        ResolvedSql resolved = resolve();
+        String sql;
+        Object[] params;
+        List<SqlParameter> declaredParameters;
+        if (this.useClassicJdbcTemplate) {
+            sql = resolved.sql;
+            params = resolved.varParams;
+            declaredParameters = null;
+        } else {
+            ParsedSql parsedSql = parse(resolved.sql);
+            sql = NamedParameterUtils.substituteNamedParameters(parsedSql, resolved.parameterSource);
+            params = NamedParameterUtils.buildValueArray(parsedSql, resolved.parameterSource, null);
+            declaredParameters = NamedParameterUtils.buildSqlParameterList(parsedSql, resolved.parameterSource);
+        }
+        return new StreamingQuery((JdbcTemplate) this.namedParameterJdbcTemplate.getJdbcOperations(), sql,
+                params == null ? null : params.clone(), declaredParameters,
+                this.fetchSize != -1 ? this.fetchSize : this.streamingFetchSize, this.dataSourceType);
+    }
+
+    /**
+     * 流式查询，返回延迟加载的Stream，流遍历结束或关闭时释放连接，建议使用try-with-resources
+     *
+     * <pre>
+     * try (Stream&lt;Student&gt; stream = sqlFactory.sql().SELECT("*").FROM("student").queryStream(Student.class)) {
+     *     stream.forEach(...);
+     * }
+     * </pre>
+     */
+    public <T> Stream<T> queryStream(Class<T> returnClassType) {
+        return queryIterator(returnClassType).stream();
+    }
+
+    public <T> Stream<T> queryStream(RowMapper<T> rowMapper) {
+        return queryIterator(rowMapper).stream();
+    }
+
+    /**
+     * 分块查询：游标保持打开，每读取chunkSize行调用一次consumer，不会把结果全部加载到内存中
+     * 所有块共用同一个List，consumer返回后会被清空，需要保留数据时应复制
+     * 没有设置fetchSize时使用chunkSize作为fetchSize
+     *
+     * @return 处理的行数、块数和每块的耗时
+     */
+    public <T> ChunkResult queryForEachChunk(int chunkSize, Class<T> returnClassType, Consumer<List<T>> consumer) {
+        return queryForEachChunk(chunkSize, getRowMapper(returnClassType), consumer);
+    }
+
+    public <T> ChunkResult queryForEachChunk(int chunkSize, RowMapper<T> rowMapper, Consumer<List<T>> consumer) {
+        return queryForEachChunkWhile(chunkSize, rowMapper, chunk -> {
+            consumer.accept(chunk);
+            return true;
+        });
+    }
+
+    /**
+     * 分块查询，handler返回false时提前结束并关闭游标
+     *
+     * @see SQL#queryForEachChunk(int, RowMapper, Consumer)
+     */
+    public <T> ChunkResult queryForEachChunkWhile(int chunkSize, Class<T> returnClassType, Predicate<List<T>> handler) {
+        return queryForEachChunkWhile(chunkSize, getRowMapper(returnClassType), handler);
+    }
+
+    public <T> ChunkResult queryForEachChunkWhile(int chunkSize, RowMapper<T> rowMapper, Predicate<List<T>> handler) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize必须大于0：" + chunkSize);
+        }
+        if (this.fetchSize == -1) {
+            this.fetchSize = chunkSize;
+        }
+        return queryIterator(rowMapper).forEachChunk(chunkSize, handler);
+    }
+
+    /**
+     * 设置异步查询使用的执行器，默认使用SQLFactory的asyncExecutor
+     */
+    public SQL asyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+        return this;
+    }
+
+    /**
+     * 支持背压的异步查询：订阅者request时才从游标读取对应数量的行，JDBC操作在异步执行器中执行，
+     * 取消订阅时立即取消语句并释放连接。每个订阅者单独执行一次查询
+     *
+     * @see QueryPublisher
+     */
+    public <T> QueryPublisher<T> queryPublisher(Class<T> returnClassType) {
+        return queryPublisher(getRowMapper(returnClassType));
+    }
+
+    public <T> QueryPublisher<T> queryPublisher(RowMapper<T> rowMapper) {
+        Executor executor = getAsyncExecutor();
+        if (executor == null) {
+            throw new FastSQLException("没有设置异步查询的执行器，请调用asyncExecutor(Executor)");
+        }
+        //调用时解析sql和参数，之后修改SQL构造器不影响订阅
+        checkNull();
+        StreamingQuery query = streamingQuery();
+        return new QueryPublisher<>(() -> query.open(rowMapper), executor);
+    }
+
+    private Executor getAsyncExecutor() {
+        if (this.asyncExecutor == null && this.sqlFactory != null) {
+            return this.sqlFactory.getAsyncExecutor();
         }
+        return this.asyncExecutor;
+    }
+
+    /**
+     * 把查询结果以CSV格式（第一行为列名）写入channel，使用流式游标，不会把结果加载到内存中
+     *
+     * @return 写入的行数
+     * @see ResultSetExporter
+     */
+    public long exportCsv(WritableByteChannel channel) {
+        return export(new ResultSetExporter(channel, ResultSetExporter.Format.CSV));
+    }
 
-        return this.namedParameterJdbcTemplate.query(strBuilder.toString(), this.sqlParameterSource, rowMapper);
+    /**
+     * 把查询结果以NDJSON格式（每行一个JSON对象）写入channel
+     *
+     * @return 写入的行数
+     */
+    public long exportNdjson(WritableByteChannel channel) {
+        return export(new ResultSetExporter(channel, ResultSetExporter.Format.NDJSON));
+    }
+
+    /**
+     * 使用指定的导出器导出，导出器的缓冲区可以在多次导出之间复用
+     */
+    public long export(ResultSetExporter exporter) {
+        return queryIterator(NO_ROW_MAPPER).extract(exporter);
+    }
+
+    private ParsedSql parse(String sql) {
+        return this.namedParameterJdbcTemplate instanceof CachingNamedParameterJdbcTemplate ?
+                ((CachingNamedParameterJdbcTemplate) this.namedParameterJdbcTemplate).parse(sql) :
+                NamedParameterUtils.parseSqlStatement(sql);
     }
 
     /**
@@ -1002,22 +1458,19 @@ public class SQL {
      */
     public List<Map<String, Object>> queryMapList() {
         checkNull();
+        ResolvedSql resolved = resolve();
         if (this.useClassicJdbcTemplate) {
-            return this.namedParameterJdbcTemplate.getJdbcOperations().queryForList(strBuilder.toString(), varParams);
+            return this.namedParameterJdbcTemplate.getJdbcOperations().queryForList(resolved.sql, resolved.varParams);
         }
-        return this.namedParameterJdbcTemplate.queryForList(strBuilder.toString(), this.sqlParameterSource);
+        return this.namedParameterJdbcTemplate.queryForList(resolved.sql, resolved.parameterSource);
     }
 
 
+    /**
+     * 查询多行结果封装为RowMap列表，所有行共用一个列名表
+     */
     public List<RowMap> queryRowMapList() {
-        List<Map<String, Object>> mapList = queryMapList();
-
-        List<RowMap> valueMapList = new ArrayList<>();
-        for (Map<String, Object> map : mapList) {
-
-            valueMapList.add(new RowMap(map));
-        }
-        return valueMapList;
+        return queryList(new RowMapRowMapper());
     }
 
     /**
@@ -1027,8 +1480,9 @@ public class SQL {
      */
     public List<Object[]> queryArrayList() {
         checkNull();
+        ResolvedSql resolved = resolve();
         if (this.useClassicJdbcTemplate) {
-            return this.namedParameterJdbcTemplate.getJdbcOperations().query(strBuilder.toString(), varParams, (rs, rowNum) -> {
+            return this.namedParameterJdbcTemplate.getJdbcOperations().query(resolved.sql, resolved.varParams, (rs, rowNum) -> {
                 int columnCount = rs.getMetaData().getColumnCount();
                 Object[] objects = new Object[columnCount];
                 for (int i = 1; i <= columnCount; i++) {
@@ -1037,7 +1491,7 @@ public class SQL {
                 return objects;
             });
         } else {
-            return this.namedParameterJdbcTemplate.query(strBuilder.toString(), this.sqlParameterSource, (rs, rowNum) -> {
+            return this.namedParameterJdbcTemplate.query(resolved.sql, resolved.parameterSource, (rs, rowNum) -> {
                 int columnCount = rs.getMetaData().getColumnCount();
                 Object[] objects = new Object[columnCount];
                 for (int i = 1; i <= columnCount; i++) {
@@ -1048,6 +1502,48 @@ public class SQL {
         }
     }
 
+    /**
+     * 按列查询，整数、浮点列保存为基本类型数组，不创建包装对象
+     *
+     * @see ColumnarResult
+     */
+    public ColumnarResult queryColumnar() {
+        return query(ColumnarResult::read);
+    }
+
+    /**
+     * 查询第一列为long数组，null值为0
+     */
+    public long[] queryLongColumn() {
+        return query(ColumnarResult::readLongColumn);
+    }
+
+    /**
+     * 查询第一列为int数组，null值为0
+     */
+    public int[] queryIntColumn() {
+        return query(ColumnarResult::readIntColumn);
+    }
+
+    /**
+     * 查询第一列为double数组，null值为0
+     */
+    public double[] queryDoubleColumn() {
+        return query(ColumnarResult::readDoubleColumn);
+    }
+
+    /**
+     * 使用ResultSetExtractor处理整个结果集
+     */
+    public <T> T query(ResultSetExtractor<T> extractor) {
+        checkNull();
+        ResolvedSql resolved = resolve();
+        if (this.useClassicJdbcTemplate) {
+            return this.namedParameterJdbcTemplate.getJdbcOperations().query(resolved.sql, resolved.varParams, extractor);
+        }
+        return this.namedParameterJdbcTemplate.query(resolved.sql, resolved.parameterSource, extractor);
+    }
+
     public List<Map<String, Object>> queryMapListAndPrint() {
         List<Map<String, Object>> mapList = queryMapList();
         StringBuilder out = new StringBuilder("result:\n[\n");
@@ -1070,6 +1566,87 @@ public class SQL {
         return objects;
     }
 
+    /**
+     * 分页时在异步执行器中并发执行数量查询，默认使用SQLFactory的concurrentPaging设置
+     *
+     * @see PageTemplate#concurrent(Executor, long)
+     */
+    public SQL concurrentPaging(boolean concurrentPaging) {
+        this.concurrentPaging = concurrentPaging;
+        return this;
+    }
+
+    /**
+     * 分页时总数的获取方式，默认使用SQLFactory的countMode设置
+     */
+    public SQL countMode(CountMode countMode) {
+        this.countMode = countMode;
+        return this;
+    }
+
+    /**
+     * 分页时总数最多统计到cap，超过时返回cap，ResultPage.getTotalType()为CAPPED
+     */
+    public SQL countCapped(int cap) {
+        this.countMode = CountMode.CAPPED;
+        this.countCap = cap;
+        return this;
+    }
+
+    /**
+     * 分页时缓存总数ttlMillis毫秒，命中时只查询当前页，ResultPage.getTotalType()为CACHED
+     */
+    public SQL countCached(long ttlMillis) {
+        this.countMode = CountMode.CACHED;
+        this.countCacheTtlMillis = ttlMillis;
+        return this;
+    }
+
+    /**
+     * 分页时使用统计信息或执行计划估算总数，ResultPage.getTotalType()为ESTIMATED
+     *
+     * @see CountEstimator
+     */
+    public SQL countEstimated() {
+        this.countMode = CountMode.ESTIMATED;
+        return this;
+    }
+
+    /**
+     * 单表查询分页时先只按主键分页，再关联回原表读取当前页的完整列，适合深分页；不能改写的查询按原方式分页
+     *
+     * @param primaryKey 主键列名
+     * @see DeferredJoinParser
+     */
+    public SQL deferredJoin(String primaryKey) {
+        this.deferredJoinKey = primaryKey;
+        return this;
+    }
+
+    private PageTemplate createPageTemplate() {
+        PageTemplate pageTemplate = new PageTemplate(namedParameterJdbcTemplate);
+        Executor executor = this.concurrentPaging ? getAsyncExecutor() : null;
+        if (executor != null) {
+            pageTemplate.concurrent(executor, this.concurrentPagingTimeoutMillis);
+        }
+        if (countMode == CountMode.CAPPED) {
+            pageTemplate.countCapped(countCap);
+        } else if (countMode == CountMode.CACHED) {
+            if (countCache == null) {
+                throw new FastSQLException("没有count缓存，请使用SQLFactory创建SQL");
+            }
+            pageTemplate.countCached(countCache, countCacheTtlMillis);
+        } else if (countMode == CountMode.ESTIMATED) {
+            pageTemplate.countEstimated();
+        } else if (countMode == CountMode.WINDOW) {
+            pageTemplate.countWindow();
+        }
+        if (deferredJoinKey != null) {
+            pageTemplate.deferredJoin(deferredJoinKey);
+        }
+        return pageTemplate;
+    }
+
     /**
      * 查询结果页
      * page <=0 查询数量
@@ -1082,15 +1659,16 @@ public class SQL {
      */
     public <T> ResultPage<T> queryPage(int page, int perPage, Class<T> returnClassType) {
         checkNull();
+        ResolvedSql resolved = resolve();
         RowMapper<T> rowMapper = getRowMapper(returnClassType);
 
         if (useClassicJdbcTemplate) {
 
-            return new PageTemplate(namedParameterJdbcTemplate)
-                    .queryPage(strBuilder.toString(), page, perPage, varParams, rowMapper, this.dataSourceType);
+            return createPageTemplate()
+                    .queryPage(resolved.sql, page, perPage, resolved.varParams, rowMapper, this.dataSourceType);
         } else {
-            return new PageTemplate(namedParameterJdbcTemplate)
-                    .queryPage(strBuilder.toString(), page, perPage, sqlParameterSource, rowMapper, this.dataSourceType);
+            return createPageTemplate()
+                    .queryPage(resolved.sql, page, perPage, resolved.parameterSource, rowMapper, this.dataSourceType);
         }
     }
 
@@ -1105,19 +1683,88 @@ public class SQL {
      */
     public <T> ResultPage<T> queryPage(int page, int perPage, RowMapper<T> rowMapper) {
         checkNull();
+        ResolvedSql resolved = resolve();
 
         if (useClassicJdbcTemplate) {
-            return new PageTemplate(namedParameterJdbcTemplate)
-                    .queryPage(strBuilder.toString(), page, perPage, varParams, rowMapper, this.dataSourceType);
+            return createPageTemplate()
+                    .queryPage(resolved.sql, page, perPage, resolved.varParams, rowMapper, this.dataSourceType);
         } else {
-            return new PageTemplate(namedParameterJdbcTemplate)
-                    .queryPage(strBuilder.toString(), page, perPage, sqlParameterSource, rowMapper, this.dataSourceType);
+            return createPageTemplate()
+                    .queryPage(resolved.sql, page, perPage, resolved.parameterSource, rowMapper, this.dataSourceType);
         }
     }
 
 
+    /**
+     * 查询第page页，多取一行判断是否有下一页，不执行count
+     *
+     * @param page            第几页 从1开始
+     * @param perPage         每页几条 最小为1
+     * @param returnClassType 返回的结果类型
+     */
+    public <T> Slice<T> querySlice(int page, int perPage, Class<T> returnClassType) {
+        return querySlice(page, perPage, getRowMapper(returnClassType));
+    }
+
+    /**
+     * 查询第page页，多取一行判断是否有下一页，不执行count
+     *
+     * @param page      第几页 从1开始
+     * @param perPage   每页几条 最小为1
+     * @param rowMapper 结果类型
+     */
+    public <T> Slice<T> querySlice(int page, int perPage, RowMapper<T> rowMapper) {
+        checkNull();
+        ResolvedSql resolved = resolve();
+        PageTemplate pageTemplate = new PageTemplate(namedParameterJdbcTemplate);
+        if (useClassicJdbcTemplate) {
+            return pageTemplate.querySlice(resolved.sql, page, perPage, resolved.varParams, rowMapper,
+                    this.dataSourceType);
+        } else {
+            return pageTemplate.querySlice(resolved.sql, page, perPage, resolved.parameterSource, rowMapper,
+                    this.dataSourceType);
+        }
+    }
+
+    /**
+     * 游标（keyset）分页，按排序列的值定位，不使用OFFSET，深度翻页与第一页的代价相同
+     * <pre>
+     * CursorPage&lt;Student&gt; page = sqlFactory.sql().SELECT("*").FROM("student")
+     *         .queryCursorPage(null, 20, Student.class, "create_time DESC", "id DESC");
+     * //下一页
+     * ... .queryCursorPage(page.getNextCursor(), 20, Student.class, "create_time DESC", "id DESC");
+     * </pre>
+     *
+     * @param cursor  上一页的getNextCursor()，为null时查询第一页
+     * @param perPage 每页几条 最小为1
+     * @param orderBy 排序列，必须是查询结果中的列，不能为null，最后一列应当唯一
+     * @see KeysetPagination
+     */
+    public <T> CursorPage<T> queryCursorPage(String cursor, int perPage, Class<T> returnClassType, String... orderBy) {
+        return queryCursorPage(cursor, perPage, getRowMapper(returnClassType), orderBy);
+    }
+
+    /**
+     * @see SQL#queryCursorPage(String, int, Class, String...)
+     */
+    public <T> CursorPage<T> queryCursorPage(String cursor, int perPage, RowMapper<T> rowMapper, String... orderBy) {
+        checkNull();
+        ResolvedSql resolved = resolve();
+        KeysetPagination keyset = new KeysetPagination(orderBy);
+        PageTemplate pageTemplate = new PageTemplate(namedParameterJdbcTemplate);
+        if (useClassicJdbcTemplate) {
+            return pageTemplate.queryCursorPage(resolved.sql, keyset, cursor, perPage, resolved.varParams, rowMapper,
+                    this.dataSourceType);
+        } else {
+            return pageTemplate.queryCursorPage(resolved.sql, keyset, cursor, perPage, resolved.parameterSource,
+                    rowMapper, this.dataSourceType);
+        }
+    }
+
     /**
      * 查询结果内存分页
+     * <p>
+     * 使用流式游标遍历全部结果，只映射当前页的行，其他行只计数，内存占用与每页条数有关，与结果总数无关
      *
      * @param page            第几页 从1开始
      * @param perPage         每页几条 最小为1
@@ -1125,9 +1772,28 @@ public class SQL {
      * @return 返回的结果页
      */
     public <T> ResultPage<T> queryMemoryPage(int page, int perPage, Class<T> returnClassType) {
-        List<T> dataList = queryList(returnClassType);
-        int total = dataList.size();
-        List<T> list = FastSqlUtils.memoryPage(dataList, page, perPage);
+        return queryMemoryPage(page, perPage, getRowMapper(returnClassType));
+    }
+
+    /**
+     * @see SQL#queryMemoryPage(int, int, Class)
+     */
+    public <T> ResultPage<T> queryMemoryPage(int page, int perPage, RowMapper<T> rowMapper) {
+        //与FastSqlUtils.memoryPage的边界处理一致
+        int size = Math.max(perPage, 0);
+        long from = (long) (Math.max(page, 1) - 1) * size;
+        long to = from + size;
+        List<T> list = new ArrayList<>();
+        long total = queryIterator(NO_ROW_MAPPER).extract(rs -> {
+            long rowNum = 0;
+            while (rs.next()) {
+                if (rowNum >= from && rowNum < to) {
+                    list.add(rowMapper.mapRow(rs, (int) rowNum));
+                }
+                rowNum++;
+            }
+            return rowNum;
+        });
         return new ResultPage<>(list, total);
     }
 
@@ -1138,12 +1804,13 @@ public class SQL {
      */
     public int update() {
         checkNull();
+        ResolvedSql resolved = resolve();
         int count;
-        String sql = strBuilder.toString();
+        String sql = resolved.sql;
         if (useClassicJdbcTemplate) {
-            count = this.namedParameterJdbcTemplate.getJdbcOperations().update(sql, varParams);
+            count = this.namedParameterJdbcTemplate.getJdbcOperations().update(sql, resolved.varParams);
         } else {
-            count = this.namedParameterJdbcTemplate.update(sql, this.sqlParameterSource);
+            count = this.namedParameterJdbcTemplate.update(sql, resolved.parameterSource);
         }
         if (count < 1) {
             logger.warn("update更新成功数量为" + count);
@@ -1153,11 +1820,12 @@ public class SQL {
 
     public KeyHolderResult updateForKey(String... keyColumns) {
         checkNull();
+        ResolvedSql resolved = resolve();
 
         KeyHolder keyHolder = new GeneratedKeyHolder();
 
         int count;
-        String sql = strBuilder.toString();
+        String sql = resolved.sql;
         if (useClassicJdbcTemplate) {
             //TODO 只能使用命名参数形式
             throw new UnsupportedOperationException("updateForKey() 目前只能使用命名参数形式");
@@ -1173,7 +1841,7 @@ public class SQL {
 //            count = this.namedParameterJdbcTemplate.getJdbcOperations().update(
 //                    creator, keyHolder);
         } else {
-            count = this.namedParameterJdbcTemplate.update(sql, this.sqlParameterSource, keyHolder, keyColumns);
+            count = this.namedParameterJdbcTemplate.update(sql, resolved.parameterSource, keyHolder, keyColumns);
         }
         if (count < 1) {
             logger.warn("update更新成功数量为" + count);
@@ -1183,10 +1851,10 @@ public class SQL {
 
     public BatchUpdateResult batchUpdateByMapParams(List<Map<String, Object>> mapParamList) {
         checkNull();
-        String sql = strBuilder.toString();
+        String sql = this.build();
         SqlParameterSource[] batchArgs = new SqlParameterSource[mapParamList.size()];
         for (int i = 0; i < mapParamList.size(); i++) {
-            batchArgs[i] = new MapSqlParameterSource(mapParamList.get(i));
+            batchArgs[i] = resolve(sql, null, new MapSqlParameterSource(mapParamList.get(i)), false).parameterSource;
         }
         return new BatchUpdateResult(this.namedParameterJdbcTemplate.batchUpdate(sql, batchArgs));
     }
@@ -1209,8 +1877,20 @@ public class SQL {
 
     public BatchUpdateResult batchUpdateByArrays(List<Object[]> objects) {
         checkNull();
-        String sql = strBuilder.toString();
-        return new BatchUpdateResult(this.namedParameterJdbcTemplate.getJdbcOperations().batchUpdate(sql, objects));
+        String sql = this.build();
+        if (boundParams == null) {
+            return new BatchUpdateResult(this.namedParameterJdbcTemplate.getJdbcOperations().batchUpdate(sql, objects));
+        }
+        //每一行都从原sql解析，解析后的sql对每一行都相同
+        String resolvedSql = sql;
+        List<Object[]> batchArgs = new ArrayList<>(objects.size());
+        for (Object[] args : objects) {
+            ResolvedSql resolved = resolve(sql, args, null, true);
+            resolvedSql = resolved.sql;
+            batchArgs.add(resolved.varParams);
+        }
+        return new BatchUpdateResult(
+                this.namedParameterJdbcTemplate.getJdbcOperations().batchUpdate(resolvedSql, batchArgs));
     }
 
     public List<String> getTableNames() {
@@ -1342,29 +2022,166 @@ public class SQL {
     }
 
 
-    private <T> RowMapper<T> getRowMapper(Class<T> returnClassType) {
-        RowMapper<T> rowMapper;
-        List<Class<?>> classArrayList =
-                Arrays.asList(String.class,
-                        Integer.class, int.class, Long.class, long.class,
-                        Short.class, short.class,
-                        BigDecimal.class,
-                        BigInteger.class,
-                        Float.class, float.class, Double.class, double.class,
-                        Boolean.class, boolean.class,
-                        java.sql.Date.class, java.sql.Time.class, java.sql.Timestamp.class,
-                        byte[].class, Blob.class, Clob.class);
-
-        if (classArrayList.contains(returnClassType)) {
-            if (this.dataSourceType.equals(DataSourceType.ORACLE)) {
-                return new OraclePagingSingleColumnRowMapper<>(returnClassType);
+    private ResolvedSql resolve() {
+        return resolve(this.build(), this.varParams, this.sqlParameterSource, this.useClassicJdbcTemplate);
+    }
+
+    /**
+     * 合并自动生成的绑定参数：
+     * 命名参数形式直接合并到参数源中；varParameter形式把 :fastsqlPn 替换为 ? ，并按出现顺序与可变参数合并
+     */
+    private ResolvedSql resolve(String sql, Object[] vars, SqlParameterSource parameterSource, boolean classic) {
+        if (boundParams == null) {
+            return new ResolvedSql(sql, vars, parameterSource);
+        }
+        if (!classic) {
+            return new ResolvedSql(sql, vars, new BoundSqlParameterSource(parameterSource, boundParams));
+        }
+        StringBuilder builder = new StringBuilder(sql.length());
+        List<Object> args = new ArrayList<>();
+        int varIndex = 0;
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                //跳过字符串和带引号的标识符
+                int close = sql.indexOf(c, i + 1);
+                int to = close < 0 ? length : close + 1;
+                builder.append(sql, i, to);
+                i = to;
+            } else if (c == '?') {
+                if (vars != null && varIndex < vars.length) {
+                    args.add(vars[varIndex++]);
+                }
+                builder.append(c);
+                i++;
+            } else if (c == ':' && sql.startsWith(BOUND_PARAM_PREFIX, i + 1) && (i == 0 || sql.charAt(i - 1) != ':')) {
+                int to = i + 1 + BOUND_PARAM_PREFIX.length();
+                while (to < length && Character.isDigit(sql.charAt(to))) {
+                    to++;
+                }
+                String name = sql.substring(i + 1, to);
+                if (boundParams.hasValue(name)) {
+                    args.add(boundParams.getValue(name));
+                    builder.append('?');
+                } else {
+                    builder.append(sql, i, to);
+                }
+                i = to;
+            } else {
+                builder.append(c);
+                i++;
             }
-            return new SingleColumnRowMapper<>(returnClassType);
-        } else if (returnClassType.equals(Map.class)) {
-            return (RowMapper<T>) new ColumnMapRowMapper();
-        } else {
-            return new BeanPropertyRowMapper<>(returnClassType);
         }
+        if (vars != null) {
+            //多余的参数保留，由jdbc报错
+            args.addAll(Arrays.asList(vars).subList(varIndex, vars.length));
+        }
+        return new ResolvedSql(builder.toString(), args.toArray(), parameterSource);
+    }
+
+    /**
+     * 不可变的流式查询：jdbc sql、参数值和游标设置，每次open()执行一次查询
+     */
+    private static final class StreamingQuery {
+        private final JdbcTemplate jdbcTemplate;
+        private final String sql;
+        private final Object[] params;
+
+        /**
+         * 命名参数的类型，使用?参数时为null
+         */
+        private final List<SqlParameter> declaredParameters;
+        private final int fetchSize;
+        private final DataSourceType dataSourceType;
+
+        private StreamingQuery(JdbcTemplate jdbcTemplate, String sql, Object[] params,
+                               List<SqlParameter> declaredParameters, int fetchSize, DataSourceType dataSourceType) {
+            this.jdbcTemplate = jdbcTemplate;
+            this.sql = sql;
+            this.params = params;
+            this.declaredParameters = declaredParameters;
+            this.fetchSize = fetchSize;
+            this.dataSourceType = dataSourceType;
+        }
+
+        private <T> ResultIterator<T> open(RowMapper<T> rowMapper) {
+            return ResultIterator.open(jdbcTemplate, sql, newParameterSetter(), rowMapper, fetchSize, dataSourceType);
+        }
+
+        /**
+         * 数组参数在绑定时保存创建的java.sql.Array，每次执行使用单独的实例，多个订阅者可以同时执行
+         */
+        private PreparedStatementSetter newParameterSetter() {
+            Object[] values = params == null ? null : params.clone();
+            if (values != null) {
+                for (int i = 0; i < values.length; i++) {
+                    if (values[i] instanceof SqlArrayValue) {
+                        values[i] = ((SqlArrayValue) values[i]).copy();
+                    }
+                }
+            }
+            if (declaredParameters == null) {
+                return new ArgumentPreparedStatementSetter(values);
+            }
+            return new PreparedStatementCreatorFactory(sql, declaredParameters).newPreparedStatementSetter(values);
+        }
+    }
+
+    /**
+     * 执行时使用的sql和参数
+     */
+    private static final class ResolvedSql {
+        private final String sql;
+        private final Object[] varParams;
+        private final SqlParameterSource parameterSource;
+
+        private ResolvedSql(String sql, Object[] varParams, SqlParameterSource parameterSource) {
+            this.sql = sql;
+            this.varParams = varParams;
+            this.parameterSource = parameterSource;
+        }
+    }
+
+    /**
+     * 先查找自动生成的绑定参数，再查找设置的参数
+     */
+    private static final class BoundSqlParameterSource implements SqlParameterSource {
+        private final SqlParameterSource parameterSource;
+        private final MapSqlParameterSource boundParams;
+
+        private BoundSqlParameterSource(SqlParameterSource parameterSource, MapSqlParameterSource boundParams) {
+            this.parameterSource = parameterSource == null ? new EmptySqlParameterSource() : parameterSource;
+            this.boundParams = boundParams;
+        }
+
+        @Override
+        public boolean hasValue(String paramName) {
+            return boundParams.hasValue(paramName) || parameterSource.hasValue(paramName);
+        }
+
+        @Override
+        public Object getValue(String paramName) throws IllegalArgumentException {
+            return boundParams.hasValue(paramName) ? boundParams.getValue(paramName) : parameterSource.getValue(paramName);
+        }
+
+        @Override
+        public int getSqlType(String paramName) {
+            return boundParams.hasValue(paramName) ? boundParams.getSqlType(paramName) : parameterSource.getSqlType(paramName);
+        }
+
+        @Override
+        public String getTypeName(String paramName) {
+            return boundParams.hasValue(paramName) ? boundParams.getTypeName(paramName) : parameterSource.getTypeName(paramName);
+        }
+    }
+
+    private <T> RowMapper<T> getRowMapper(Class<T> returnClassType) {
+        if (rowMapperRegistry != null) {
+            return rowMapperRegistry.getRowMapper(returnClassType, this.dataSourceType);
+        }
+        return RowMapperRegistry.createRowMapper(returnClassType, this.dataSourceType);
     }
 
     @Override
@@ -1,11 +1,24 @@
 package top.fastsql;
 
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
 import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import top.fastsql.cache.CachingNamedParameterJdbcTemplate;
+import top.fastsql.cache.CountCache;
+import top.fastsql.cache.LruCache;
+import top.fastsql.config.CountMode;
 import top.fastsql.config.DataSourceType;
+import top.fastsql.config.InClauseMode;
+import top.fastsql.mapper.RowMapperRegistry;
 
 import javax.sql.DataSource;
 import java.sql.Driver;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * SQL类的工厂类
@@ -29,7 +42,75 @@ public class SQLFactory {
 
     private boolean resultsMapCaseInsensitive = false;
 
-    private JdbcTemplate jdbcTemplate;
+    /**
+     * 命名参数sql解析结果的缓存数量，&lt;=0 时不缓存
+     */
+    private int parsedSqlCacheLimit = 256;
+
+    /**
+     * IN语句的生成方式
+     */
+    private InClauseMode inClauseMode = InClauseMode.LITERAL;
+
+    /**
+     * 使用绑定参数时，单个IN中最多的元素个数
+     */
+    private int inClauseMaxSize = 1000;
+
+    /**
+     * eqByType/byType是否生成绑定参数而不是直接拼接值
+     */
+    private boolean autoParameterize = false;
+
+    /**
+     * queryStream/queryIterator默认的fetchSize，&lt;=0时使用fetchSize
+     */
+    private int streamingFetchSize = 1000;
+
+    /**
+     * 按返回类型缓存的RowMapper
+     */
+    private final RowMapperRegistry rowMapperRegistry = new RowMapperRegistry(256);
+
+    /**
+     * 异步查询使用的线程数和等待队列长度
+     */
+    private int asyncPoolSize = 8;
+
+    private int asyncQueueSize = 1000;
+
+    private volatile ExecutorService asyncExecutor;
+
+    /**
+     * 分页查询时是否在异步执行器中并发执行数量查询
+     */
+    private boolean concurrentPaging = false;
+
+    /**
+     * 并发分页时，查询完当前页后等待数量查询的毫秒数
+     */
+    private long concurrentPagingTimeoutMillis = 30000;
+
+    /**
+     * 分页查询时总数的获取方式
+     */
+    private CountMode countMode = CountMode.EXACT;
+
+    /**
+     * CAPPED模式下最多统计的数量
+     */
+    private int countCap = 1000;
+
+    /**
+     * CACHED模式下count结果的缓存时间
+     */
+    private long countCacheTtlMillis = 60000;
+
+    private final CountCache countCache = new CountCache(1024);
+
+    private volatile JdbcTemplate jdbcTemplate;
+
+    private volatile CachingNamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
     /**
      * @see SQLFactory#createSQL()
@@ -43,18 +124,177 @@ public class SQLFactory {
      * 创建一个SQL实例
      */
     public SQL sql() {
-        if (this.jdbcTemplate == null) {
-            this.jdbcTemplate = new JdbcTemplate();
-            this.jdbcTemplate.setIgnoreWarnings(ignoreWarnings);
-            this.jdbcTemplate.setFetchSize(fetchSize);
-            this.jdbcTemplate.setMaxRows(maxRows);
-            this.jdbcTemplate.setQueryTimeout(queryTimeout);
-            this.jdbcTemplate.setSkipResultsProcessing(skipResultsProcessing);
-            this.jdbcTemplate.setSkipUndeclaredResults(skipUndeclaredResults);
-            this.jdbcTemplate.setResultsMapCaseInsensitive(resultsMapCaseInsensitive);
-            this.jdbcTemplate.setDataSource(this.dataSource);
+        return new SQL(this);
+    }
+
+    /**
+     * 获取共享的JdbcTemplate，第一次调用时根据当前配置创建
+     */
+    public JdbcTemplate getJdbcTemplate() {
+        JdbcTemplate template = this.jdbcTemplate;
+        if (template == null) {
+            synchronized (this) {
+                template = this.jdbcTemplate;
+                if (template == null) {
+                    template = new JdbcTemplate();
+                    template.setIgnoreWarnings(ignoreWarnings);
+                    template.setFetchSize(fetchSize);
+                    template.setMaxRows(maxRows);
+                    template.setQueryTimeout(queryTimeout);
+                    template.setSkipResultsProcessing(skipResultsProcessing);
+                    template.setSkipUndeclaredResults(skipUndeclaredResults);
+                    template.setResultsMapCaseInsensitive(resultsMapCaseInsensitive);
+                    template.setDataSource(this.dataSource);
+                    this.jdbcTemplate = template;
+                }
+            }
+        }
+        return template;
+    }
+
+    /**
+     * 获取共享的命名参数执行引擎，所有SQL实例共用同一个解析缓存
+     */
+    public CachingNamedParameterJdbcTemplate getNamedParameterJdbcTemplate() {
+        CachingNamedParameterJdbcTemplate template = this.namedParameterJdbcTemplate;
+        if (template == null) {
+            synchronized (this) {
+                template = this.namedParameterJdbcTemplate;
+                if (template == null) {
+                    template = new CachingNamedParameterJdbcTemplate(getJdbcTemplate(), parsedSqlCacheLimit);
+                    this.namedParameterJdbcTemplate = template;
+                }
+            }
+        }
+        return template;
+    }
+
+    /**
+     * 命名参数sql解析缓存，可获取命中/未命中次数
+     */
+    public LruCache<String, ParsedSql> getParsedSqlCache() {
+        return getNamedParameterJdbcTemplate().getParsedSqlCache();
+    }
+
+    /**
+     * 获取返回类型对应的RowMapper，自定义的RowMapper优先
+     */
+    public <T> RowMapper<T> getRowMapper(Class<T> type) {
+        return rowMapperRegistry.getRowMapper(type, dataSourceType);
+    }
+
+    /**
+     * 注册自定义RowMapper，queryOne/queryList/queryPage以及BaseDAO查询该类型时都会使用
+     */
+    public <T> void registerRowMapper(Class<T> type, RowMapper<T> rowMapper) {
+        rowMapperRegistry.register(type, rowMapper);
+    }
+
+    public RowMapperRegistry getRowMapperRegistry() {
+        return rowMapperRegistry;
+    }
+
+    /**
+     * 异步查询（如queryPublisher）执行阻塞JDBC操作的执行器，没有设置时第一次调用时创建有界线程池：
+     * asyncPoolSize个守护线程，等待队列满时拒绝任务
+     */
+    public ExecutorService getAsyncExecutor() {
+        ExecutorService executor = this.asyncExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = this.asyncExecutor;
+                if (executor == null) {
+                    AtomicInteger threadNumber = new AtomicInteger();
+                    ThreadPoolExecutor pool = new ThreadPoolExecutor(asyncPoolSize, asyncPoolSize,
+                            60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(asyncQueueSize), runnable -> {
+                        Thread thread = new Thread(runnable, "fastsql-async-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    pool.allowCoreThreadTimeOut(true);
+                    executor = pool;
+                    this.asyncExecutor = executor;
+                }
+            }
         }
-        return new SQL(this.jdbcTemplate, this.dataSourceType);
+        return executor;
+    }
+
+    /**
+     * 使用自定义的执行器，由调用方负责关闭
+     */
+    public void setAsyncExecutor(ExecutorService asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    public boolean isConcurrentPaging() {
+        return concurrentPaging;
+    }
+
+    /**
+     * 开启后queryPage/selectPage的数量查询在异步执行器中使用单独的连接执行，与当前页的查询同时进行；
+     * 当前线程有Spring事务时仍然依次执行
+     */
+    public void setConcurrentPaging(boolean concurrentPaging) {
+        this.concurrentPaging = concurrentPaging;
+    }
+
+    public long getConcurrentPagingTimeoutMillis() {
+        return concurrentPagingTimeoutMillis;
+    }
+
+    public void setConcurrentPagingTimeoutMillis(long concurrentPagingTimeoutMillis) {
+        this.concurrentPagingTimeoutMillis = concurrentPagingTimeoutMillis;
+    }
+
+    public CountMode getCountMode() {
+        return countMode;
+    }
+
+    /**
+     * queryPage/selectPage默认的总数获取方式，默认EXACT
+     */
+    public void setCountMode(CountMode countMode) {
+        this.countMode = countMode;
+    }
+
+    public int getCountCap() {
+        return countCap;
+    }
+
+    public void setCountCap(int countCap) {
+        this.countCap = countCap;
+    }
+
+    public long getCountCacheTtlMillis() {
+        return countCacheTtlMillis;
+    }
+
+    public void setCountCacheTtlMillis(long countCacheTtlMillis) {
+        this.countCacheTtlMillis = countCacheTtlMillis;
+    }
+
+    /**
+     * CACHED模式共享的count结果缓存，默认最多1024条；数据变化后可以clear()
+     */
+    public CountCache getCountCache() {
+        return countCache;
+    }
+
+    public int getAsyncPoolSize() {
+        return asyncPoolSize;
+    }
+
+    public void setAsyncPoolSize(int asyncPoolSize) {
+        this.asyncPoolSize = asyncPoolSize;
+    }
+
+    public int getAsyncQueueSize() {
+        return asyncQueueSize;
+    }
+
+    public void setAsyncQueueSize(int asyncQueueSize) {
+        this.asyncQueueSize = asyncQueueSize;
     }
 
     public static SQLFactory createUseSimpleDateSource(Driver driver, String url, String username, String password) {
@@ -176,6 +416,60 @@ public class SQLFactory {
         this.skipUndeclaredResults = skipUndeclaredResults;
     }
 
+    public int getParsedSqlCacheLimit() {
+        return parsedSqlCacheLimit;
+    }
+
+    public void setParsedSqlCacheLimit(int parsedSqlCacheLimit) {
+        this.parsedSqlCacheLimit = parsedSqlCacheLimit;
+        if (this.namedParameterJdbcTemplate != null) {
+            this.namedParameterJdbcTemplate.setCacheLimit(parsedSqlCacheLimit);
+        }
+    }
+
+    public int getRowMapperCacheLimit() {
+        return rowMapperRegistry.getCacheLimit();
+    }
+
+    /**
+     * RowMapper的缓存数量，&lt;=0 时不缓存
+     */
+    public void setRowMapperCacheLimit(int rowMapperCacheLimit) {
+        rowMapperRegistry.setCacheLimit(rowMapperCacheLimit);
+    }
+
+    public InClauseMode getInClauseMode() {
+        return inClauseMode;
+    }
+
+    public void setInClauseMode(InClauseMode inClauseMode) {
+        this.inClauseMode = inClauseMode;
+    }
+
+    public int getInClauseMaxSize() {
+        return inClauseMaxSize;
+    }
+
+    public void setInClauseMaxSize(int inClauseMaxSize) {
+        this.inClauseMaxSize = inClauseMaxSize;
+    }
+
+    public boolean isAutoParameterize() {
+        return autoParameterize;
+    }
+
+    public void setAutoParameterize(boolean autoParameterize) {
+        this.autoParameterize = autoParameterize;
+    }
+
+    public int getStreamingFetchSize() {
+        return streamingFetchSize;
+    }
+
+    public void setStreamingFetchSize(int streamingFetchSize) {
+        this.streamingFetchSize = streamingFetchSize;
+    }
+
     public boolean isResultsMapCaseInsensitive() {
         return resultsMapCaseInsensitive;
     }
@@ -0,0 +1,49 @@
+package top.fastsql.cache;
+
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+
+/**
+ * 使用{@link LruCache}缓存解析后的命名参数sql（ParsedSql），并记录命中/未命中次数
+ * <p>
+ * 线程安全，由SQLFactory持有一个实例，所有SQL实例共享
+ *
+ * @author 陈佳志
+ */
+public class CachingNamedParameterJdbcTemplate extends NamedParameterJdbcTemplate {
+
+    private final LruCache<String, ParsedSql> parsedSqlCache;
+
+    public CachingNamedParameterJdbcTemplate(JdbcOperations classicJdbcTemplate, int cacheLimit) {
+        super(classicJdbcTemplate);
+        this.parsedSqlCache = new LruCache<>(cacheLimit);
+    }
+
+    /**
+     * 获取解析后的sql，优先从缓存中读取
+     */
+    public ParsedSql parse(String sql) {
+        return getParsedSql(sql);
+    }
+
+    public LruCache<String, ParsedSql> getParsedSqlCache() {
+        return parsedSqlCache;
+    }
+
+    @Override
+    protected ParsedSql getParsedSql(String sql) {
+        return parsedSqlCache.computeIfAbsent(sql, NamedParameterUtils::parseSqlStatement);
+    }
+
+    @Override
+    public void setCacheLimit(int cacheLimit) {
+        parsedSqlCache.setMaxSize(cacheLimit);
+    }
+
+    @Override
+    public int getCacheLimit() {
+        return parsedSqlCache.getMaxSize();
+    }
+}
@@ -0,0 +1,65 @@
+package top.fastsql.cache;
+
+/**
+ * 分页count结果的缓存，每条记录带有过期时间，过期的记录视为未命中
+ *
+ * @author 陈佳志
+ */
+public class CountCache {
+
+    private final LruCache<String, Entry> cache;
+
+    public CountCache(int maxSize) {
+        this.cache = new LruCache<>(maxSize);
+    }
+
+    /**
+     * 没有缓存或已经过期时返回null
+     */
+    public Long get(String key) {
+        Entry entry = cache.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expireAt < System.currentTimeMillis()) {
+            cache.remove(key);
+            return null;
+        }
+        return entry.count;
+    }
+
+    public void put(String key, long count, long ttlMillis) {
+        if (ttlMillis > 0) {
+            cache.put(key, new Entry(count, System.currentTimeMillis() + ttlMillis));
+        }
+    }
+
+    public void remove(String key) {
+        cache.remove(key);
+    }
+
+    /**
+     * 数据变化后可以清空缓存
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * 底层的LRU缓存，可以查看命中率；setMaxSize(0)关闭缓存
+     */
+    public LruCache<String, ?> getCache() {
+        return cache;
+    }
+
+    private static final class Entry {
+        private final long count;
+
+        private final long expireAt;
+
+        private Entry(long count, long expireAt) {
+            this.count = count;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package top.fastsql.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 线程安全、有容量上限的LRU缓存，并记录命中/未命中次数
+ * <p>
+ * maxSize &lt;= 0 时缓存关闭，所有读取都视为未命中
+ *
+ * @author 陈佳志
+ */
+public class LruCache<K, V> {
+
+    private final LinkedHashMap<K, V> map;
+
+    private volatile int maxSize;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    public LruCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > LruCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * 获取缓存值，不存在时返回null
+     */
+    public V get(K key) {
+        if (maxSize <= 0) {
+            missCount.incrementAndGet();
+            return null;
+        }
+        V value;
+        synchronized (map) {
+            value = map.get(key);
+        }
+        if (value == null) {
+            missCount.incrementAndGet();
+        } else {
+            hitCount.incrementAndGet();
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        if (maxSize <= 0) {
+            return;
+        }
+        synchronized (map) {
+            map.put(key, value);
+        }
+    }
+
+    /**
+     * 获取缓存值，不存在时使用loader加载并放入缓存
+     * loader在锁外执行，并发时可能被执行多次，以先放入的值为准
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        value = loader.apply(key);
+        if (value == null || maxSize <= 0) {
+            return value;
+        }
+        synchronized (map) {
+            V existing = map.putIfAbsent(key, value);
+            return existing != null ? existing : value;
+        }
+    }
+
+    public void remove(K key) {
+        synchronized (map) {
+            map.remove(key);
+        }
+    }
+
+    public void clear() {
+        synchronized (map) {
+            map.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * 修改容量上限，超出部分按LRU顺序淘汰
+     */
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        synchronized (map) {
+            if (maxSize <= 0) {
+                map.clear();
+                return;
+            }
+            Iterator<K> iterator = map.keySet().iterator();
+            while (map.size() > maxSize && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * 命中率 0~1，尚无访问时为0
+     */
+    public double getHitRate() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    public void resetStats() {
+        hitCount.set(0);
+        missCount.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "LruCache{" + "size=" + size() + ", maxSize=" + maxSize +
+                ", hitCount=" + hitCount + ", missCount=" + missCount + '}';
+    }
+}
@@ -1,7 +1,4 @@
-/*
- *
- *TODO 增加缓存
- *
- *
+/**
+ * 缓存
  */
 package top.fastsql.cache;
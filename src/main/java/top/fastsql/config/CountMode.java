@@ -0,0 +1,31 @@
+package top.fastsql.config;
+
+/**
+ * 分页查询时总数的获取方式
+ *
+ * @author 陈佳志
+ * @see top.fastsql.dto.ResultPage.TotalType
+ */
+public enum CountMode {
+    /**
+     * 每次执行count查询
+     */
+    EXACT,
+    /**
+     * 按count sql和参数缓存count结果，过期前不再查询
+     */
+    CACHED,
+    /**
+     * 最多统计到countCap+1行，超过时总数为countCap，表示"N+"
+     */
+    CAPPED,
+    /**
+     * 使用数据库的统计信息或执行计划估算，无法估算时执行count查询
+     */
+    ESTIMATED,
+    /**
+     * 在当前页的查询中加入 COUNT(*) OVER()，一条语句同时得到当前页和总数；
+     * 需要数据库支持窗口函数（PostgreSQL、Oracle、MySQL 8），当前页为空或无法改写时执行count查询
+     */
+    WINDOW
+}
@@ -0,0 +1,24 @@
+package top.fastsql.config;
+
+/**
+ * IN语句的生成方式
+ *
+ * @author 陈佳志
+ */
+public enum InClauseMode {
+    /**
+     * 值直接拼接到sql中，如 IN (1,2,3)
+     */
+    LITERAL,
+    /**
+     * 使用绑定参数，命名参数形式生成 :name 占位符，varParameter形式生成 ? 占位符。
+     * 列表长度按1,2,4,8...补齐（重复最后一个值），超过inClauseMaxSize时拆分为多个用OR连接的IN
+     */
+    PARAMETER,
+    /**
+     * 整个列表绑定为一个数组参数，语句形态与列表长度无关。
+     * PostgreSQL生成 = ANY(?)，Oracle生成 IN (SELECT COLUMN_VALUE FROM TABLE(?))，
+     * 其他数据库退化为PARAMETER
+     */
+    ARRAY
+}
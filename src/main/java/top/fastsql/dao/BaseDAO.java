@@ -4,25 +4,40 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.namedparam.BeanPropertySqlParameterSource;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.util.StringUtils;
 import top.fastsql.SQL;
 import top.fastsql.SQLFactory;
+import top.fastsql.config.InClauseMode;
 import top.fastsql.dto.BatchUpdateResult;
+import top.fastsql.dto.ChunkResult;
 import top.fastsql.dto.KeyHolderResult;
+import top.fastsql.dto.ParallelScanResult;
 import top.fastsql.dto.ResultPage;
+import top.fastsql.dto.Slice;
+import top.fastsql.exception.FastSQLException;
 import top.fastsql.util.EntityRefelectUtils;
+import top.fastsql.util.PageUtils;
 import top.fastsql.util.StringExtUtils;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import static top.fastsql.util.StringExtUtils.camelToUnderline;
 
@@ -68,6 +83,11 @@ public abstract class BaseDAO<E, ID> {
     protected boolean useBeforeDelete = false;
     protected boolean useAfterDelete = true;
 
+    /**
+     * 分页查询是否使用延迟关联：先按主键分页再关联回表，深分页时更快
+     */
+    protected boolean useDeferredJoinPaging = false;
+
     /**
      * 执行引擎
      */
@@ -88,6 +108,13 @@ public abstract class BaseDAO<E, ID> {
         return sqlFactory.createSQL();
     }
 
+    /**
+     * 实体类的RowMapper，由SQLFactory缓存
+     */
+    protected RowMapper<E> getRowMapper() {
+        return getSqlFactory().getRowMapper(entityClass);
+    }
+
     @Autowired
     public void setSqlFactory(SQLFactory sqlFactory) {
         this.sqlFactory = sqlFactory;
@@ -451,24 +478,49 @@ public abstract class BaseDAO<E, ID> {
     }
 
     /**
-     * 根据id列表批量删除数据
+     * 根据id列表批量删除数据，和deleteByIds一样只执行一条语句，affectRows中只有一个删除的总数
+     *
+     * @see BaseDAO#deleteByIds(Collection)
      */
     public BatchUpdateResult deleteInBatch(List<ID> ids) {
-        String sql = "DELETE FROM " + tableName + " WHERE " + idColumnName + "=:" + idColumnName;
-
-        List<Map<String, Object>> mapList = new ArrayList<>(ids.size());
-        for (ID id : ids) {
-            Map<String, Object> map = new HashMap<>();
-            map.put(idColumnName, id);
-            mapList.add(map);
+        if (ids == null || ids.isEmpty()) {
+            return new BatchUpdateResult(new int[0]);
         }
+        return new BatchUpdateResult(new int[]{deleteByIds(ids)});
+    }
 
-        return getSQL().useSql(sql).batchUpdateByMapParams(mapList);
+    /**
+     * 根据id列表删除数据，只执行一条语句
+     * PostgreSQL/Oracle中id列表绑定为一个数组参数，其他数据库使用占位符
+     */
+    public int deleteByIds(Collection<ID> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return 0;
+        }
+        return getSQL()
+                .DELETE_FROM(tableName)
+                .WHERE(idColumnName).IN(ids, InClauseMode.ARRAY)
+                .update();
     }
 
 
     //////////////////////////////find one/////////////////////////////////////
 
+    /**
+     * 根据id列表查找，只执行一条语句，返回结果的顺序不保证与id列表一致
+     * PostgreSQL/Oracle中id列表绑定为一个数组参数，其他数据库使用占位符
+     */
+    public List<E> selectByIds(Collection<ID> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return getSQL()
+                .SELECT(columns)
+                .FROM(tableName)
+                .WHERE(idColumnName).IN(ids, InClauseMode.ARRAY)
+                .queryList(entityClass);
+    }
+
     /**
      * 通过id查找
      */
@@ -527,7 +579,7 @@ public abstract class BaseDAO<E, ID> {
 
         List<E> dataList = getSqlFactory().createSQL().useSql(sql)
                 .varParameter(values)
-                .queryList(new BeanPropertyRowMapper<>(entityClass));
+                .queryList(getRowMapper());
 
         if (dataList.isEmpty()) {
             return null;
@@ -545,7 +597,7 @@ public abstract class BaseDAO<E, ID> {
 
         List<E> dataList = getSqlFactory().createSQL().useSql(sql)
                 .parameter(parameterSource)
-                .queryList(new BeanPropertyRowMapper<>(entityClass));
+                .queryList(getRowMapper());
 
 
         if (dataList.size() == 0) {
@@ -567,13 +619,13 @@ public abstract class BaseDAO<E, ID> {
     public List<E> selectWhere(String sqlCondition, Object... values) {
         //sql
         String sql = "SELECT " + columns + " FROM " + tableName + " WHERE " + sqlCondition;
-        return getSQL().useSql(sql).varParameter(values).queryList(new BeanPropertyRowMapper<>(entityClass));
+        return getSQL().useSql(sql).varParameter(values).queryList(getRowMapper());
     }
 
     public List<E> selectWhere(String sqlCondition, SqlParameterSource parameterSource) {
         //sql
         String sql = "SELECT " + columns + " FROM " + tableName + " WHERE " + sqlCondition;
-        return getSQL().useSql(sql).parameter(parameterSource).queryList(new BeanPropertyRowMapper<>(entityClass));
+        return getSQL().useSql(sql).parameter(parameterSource).queryList(getRowMapper());
     }
 
     public List<E> selectByEntity(E entity) {
@@ -592,6 +644,210 @@ public abstract class BaseDAO<E, ID> {
                 .queryList(entityClass);
     }
 
+    /**
+     * 分块读取满足条件的数据，每读取chunkSize条调用一次consumer，不会一次加载全部数据
+     * 所有块共用同一个List，consumer返回后会被清空
+     */
+    public ChunkResult selectForEachChunk(int chunkSize, Consumer<List<E>> consumer) {
+        return getSQL().SELECT(columns).FROM(tableName).queryForEachChunk(chunkSize, getRowMapper(), consumer);
+    }
+
+    public ChunkResult selectWhereForEachChunk(String sqlCondition, int chunkSize, Consumer<List<E>> consumer,
+                                               Object... values) {
+        String sql = "SELECT " + columns + " FROM " + tableName + " WHERE " + sqlCondition;
+        return getSQL().useSql(sql).varParameter(values).queryForEachChunk(chunkSize, getRowMapper(), consumer);
+    }
+
+    /**
+     * 分块读取，handler返回false时提前结束
+     */
+    public ChunkResult selectForEachChunkWhile(int chunkSize, Predicate<List<E>> handler) {
+        return getSQL().SELECT(columns).FROM(tableName).queryForEachChunkWhile(chunkSize, getRowMapper(), handler);
+    }
+
+    /**
+     * 按主键顺序分批遍历整张表（WHERE id &gt; :lastId ORDER BY id），不使用OFFSET，也不查询数量
+     *
+     * @param batchSize 每批查询的行数
+     */
+    public KeysetScan<E> scanAll(int batchSize) {
+        return scanAll(batchSize, false);
+    }
+
+    /**
+     * @param prefetch 处理当前批次时是否在SQLFactory的异步执行器中查询下一批
+     * @see KeysetScan
+     */
+    public KeysetScan<E> scanAll(int batchSize, boolean prefetch) {
+        return new KeysetScan<>(lastId -> selectBatchAfter(lastId, batchSize),
+                entity -> EntityRefelectUtils.getFieldValue(entity, idField), batchSize,
+                prefetch ? getSqlFactory().getAsyncExecutor() : null);
+    }
+
+    /**
+     * 查询id大于afterId（为null时从头开始）的batchSize条数据，按id排序
+     */
+    protected List<E> selectBatchAfter(Object afterId, int batchSize) {
+        return selectBatchBetween(afterId, null, batchSize);
+    }
+
+    /**
+     * 查询id在(afterId, toId]之间的batchSize条数据，按id排序，afterId/toId为null时不限制
+     */
+    protected List<E> selectBatchBetween(Object afterId, Object toId, int batchSize) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(columns).append(" FROM ").append(tableName);
+        MapSqlParameterSource parameterSource = new MapSqlParameterSource();
+        if (afterId != null) {
+            sql.append(" WHERE ").append(idColumnName).append(" > :afterId");
+            parameterSource.addValue("afterId", afterId);
+        }
+        if (toId != null) {
+            sql.append(afterId != null ? " AND " : " WHERE ").append(idColumnName).append(" <= :toId");
+            parameterSource.addValue("toId", toId);
+        }
+        sql.append(" ORDER BY ").append(idColumnName);
+        String limitSql = PageUtils.getLimitSQL(sql.toString(), batchSize, getSqlFactory().getDataSourceType());
+        return getSQL().useSql(limitSql).parameter(parameterSource).queryList(getRowMapper());
+    }
+
+    /**
+     * 并行扫描整张表，每个分区1000条一批
+     *
+     * @see BaseDAO#parallelScan(int, int, Consumer)
+     */
+    public ParallelScanResult parallelScan(int partitions, Consumer<List<E>> consumer) {
+        return parallelScan(partitions, 1000, consumer);
+    }
+
+    /**
+     * 并行扫描整张表：按id的最小值和最大值把范围平均分为partitions个分区，每个分区在单独的线程和连接中按主键分批读取。
+     * 线程数不超过partitions和SQLFactory的asyncPoolSize，扫描结束后线程池关闭。
+     * 主键不是整数类型时只使用一个分区
+     *
+     * @param consumer 在多个线程中并发调用，必须是线程安全的；每次调用的List不会被复用
+     * @return 每个分区的行数、批数、耗时和吞吐量
+     */
+    public ParallelScanResult parallelScan(int partitions, int batchSize, Consumer<List<E>> consumer) {
+        if (partitions <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("partitions和batchSize必须大于0");
+        }
+        long start = System.currentTimeMillis();
+        ParallelScanResult result = new ParallelScanResult();
+        for (ParallelScanResult.Partition partition : splitIdRange(partitions)) {
+            result.addPartition(partition);
+        }
+        List<ParallelScanResult.Partition> partitionList = result.getPartitions();
+        int threads = Math.max(1, Math.min(partitionList.size(), getSqlFactory().getAsyncPoolSize()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        AtomicBoolean failed = new AtomicBoolean();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (ParallelScanResult.Partition partition : partitionList) {
+                futures.add(executor.submit(() -> scanPartition(partition, batchSize, consumer, failed)));
+            }
+            RuntimeException error = null;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (error == null) {
+                        error = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+                                : new FastSQLException("并行扫描" + tableName + "失败", e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    failed.set(true);
+                    Thread.currentThread().interrupt();
+                    throw new FastSQLException("并行扫描" + tableName + "被中断", e);
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        log.info("并行扫描{}完成：{}", tableName, result);
+        return result;
+    }
+
+    private void scanPartition(ParallelScanResult.Partition partition, int batchSize, Consumer<List<E>> consumer,
+                               AtomicBoolean failed) {
+        long start = System.currentTimeMillis();
+        Object afterId = partition.getFromId();
+        try {
+            while (!failed.get()) {
+                List<E> batch = selectBatchBetween(afterId, partition.getToId(), batchSize);
+                if (!batch.isEmpty()) {
+                    consumer.accept(batch);
+                }
+                partition.addBatch(batch.size(), System.currentTimeMillis() - start);
+                if (log.isDebugEnabled()) {
+                    log.debug("扫描{}分区{}：已读取{}行，{}行/秒", tableName, partition.getIndex(),
+                            partition.getRowCount(), (long) partition.getRowsPerSecond());
+                }
+                if (batch.size() < batchSize) {
+                    break;
+                }
+                afterId = EntityRefelectUtils.getFieldValue(batch.get(batch.size() - 1), idField);
+                //已经读到分区的上界
+                if (afterId instanceof Number && partition.getToId() instanceof Number
+                        && new BigDecimal(afterId.toString()).compareTo(new BigDecimal(partition.getToId().toString())) >= 0) {
+                    break;
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            failed.set(true);
+            throw e;
+        }
+    }
+
+    /**
+     * 根据id的最小值和最大值划分分区，表为空时返回一个不限制范围的分区
+     */
+    private List<ParallelScanResult.Partition> splitIdRange(int partitions) {
+        List<ParallelScanResult.Partition> result = new ArrayList<>();
+        boolean integerId = idField.getType() == Long.class || idField.getType() == long.class
+                || idField.getType() == Integer.class || idField.getType() == int.class
+                || idField.getType() == Short.class || idField.getType() == short.class
+                || idField.getType() == BigInteger.class;
+        if (!integerId || partitions == 1) {
+            if (partitions > 1) {
+                log.warn("{}的主键不是整数类型，并行扫描只使用一个分区", tableName);
+            }
+            result.add(new ParallelScanResult.Partition(0, null, null));
+            return result;
+        }
+        String sql = "SELECT MIN(" + idColumnName + "), MAX(" + idColumnName + ") FROM " + tableName;
+        BigInteger[] range = getSQL().useSql(sql).queryOne((rs, rowNum) -> {
+            BigDecimal min = rs.getBigDecimal(1);
+            BigDecimal max = rs.getBigDecimal(2);
+            return min == null || max == null ? null : new BigInteger[]{min.toBigInteger(), max.toBigInteger()};
+        });
+        if (range == null) {
+            result.add(new ParallelScanResult.Partition(0, null, null));
+            return result;
+        }
+        //第i个分区为(min - 1 + span * i / n, min - 1 + span * (i + 1) / n]
+        BigInteger base = range[0].subtract(BigInteger.ONE);
+        BigInteger span = range[1].subtract(base);
+        BigInteger count = BigInteger.valueOf(partitions);
+        BigInteger from = base;
+        for (int i = 0; i < partitions; i++) {
+            BigInteger to = i == partitions - 1 ? range[1]
+                    : base.add(span.multiply(BigInteger.valueOf(i + 1)).divide(count));
+            if (to.compareTo(from) > 0) {
+                result.add(new ParallelScanResult.Partition(result.size(), toIdValue(from), toIdValue(to)));
+                from = to;
+            }
+        }
+        return result;
+    }
+
+    private Object toIdValue(BigInteger value) {
+        return idField.getType() == BigInteger.class ? value : (Object) value.longValue();
+    }
+
     ////////////////////////////////////count///////////////////////////////////////////
     public int countWhere(String sqlCondition, Object... values) {
         String sql = "SELECT count(*) FROM " + tableName + " WHERE " + sqlCondition;
@@ -612,22 +868,55 @@ public abstract class BaseDAO<E, ID> {
     public ResultPage<E> selectPageWhere(String sqlCondition, int pageNumber, int perPage, Object... values) {
         //sql
         String sql = "SELECT " + columns + " FROM " + tableName + " WHERE " + sqlCondition;
-        return getSQL().useSql(sql).varParameter(values)
-                .queryPage(pageNumber, perPage, new BeanPropertyRowMapper<>(entityClass));
+        return getPageSQL().useSql(sql).varParameter(values)
+                .queryPage(pageNumber, perPage, getRowMapper());
     }
 
     public ResultPage<E> selectPageWhere(String sqlCondition, int pageNumber, int perPage,
                                          SqlParameterSource parameterSource) {
         String sql = "SELECT " + columns + " FROM " + tableName + " WHERE 1=1 AND " + sqlCondition;
-        return getSQL().useSql(sql).parameter(parameterSource)
-                .queryPage(pageNumber, perPage, new BeanPropertyRowMapper<>(entityClass));
+        return getPageSQL().useSql(sql).parameter(parameterSource)
+                .queryPage(pageNumber, perPage, getRowMapper());
     }
 
 
     public ResultPage<E> selectPage(int pageNumber, int perPage) {
+        String sql = "SELECT " + columns + " FROM " + tableName;
+        return getPageSQL().useSql(sql)
+                .queryPage(pageNumber, perPage, getRowMapper());
+    }
+
+    /**
+     * 分页查询使用的SQL，useDeferredJoinPaging时按主键延迟关联
+     */
+    protected SQL getPageSQL() {
+        SQL sql = getSQL();
+        if (useDeferredJoinPaging && idColumnName != null) {
+            sql.deferredJoin(idColumnName);
+        }
+        return sql;
+    }
+
+    /**
+     * 查询第pageNumber页，只判断是否有下一页，不执行count
+     */
+    public Slice<E> selectSliceWhere(String sqlCondition, int pageNumber, int perPage, Object... values) {
+        String sql = "SELECT " + columns + " FROM " + tableName + " WHERE " + sqlCondition;
+        return getSQL().useSql(sql).varParameter(values)
+                .querySlice(pageNumber, perPage, getRowMapper());
+    }
+
+    public Slice<E> selectSliceWhere(String sqlCondition, int pageNumber, int perPage,
+                                     SqlParameterSource parameterSource) {
+        String sql = "SELECT " + columns + " FROM " + tableName + " WHERE 1=1 AND " + sqlCondition;
+        return getSQL().useSql(sql).parameter(parameterSource)
+                .querySlice(pageNumber, perPage, getRowMapper());
+    }
+
+    public Slice<E> selectSlice(int pageNumber, int perPage) {
         String sql = "SELECT " + columns + " FROM " + tableName;
         return getSQL().useSql(sql)
-                .queryPage(pageNumber, perPage, new BeanPropertyRowMapper<>(entityClass));
+                .querySlice(pageNumber, perPage, getRowMapper());
     }
 
 
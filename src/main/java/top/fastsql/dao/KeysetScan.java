@@ -0,0 +1,149 @@
+package top.fastsql.dao;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 按主键分批遍历整张表：每批查询 id &gt; 上一批最后的id ORDER BY id，只取batchSize行，
+ * 不使用OFFSET，也不查询数量
+ * <p>
+ * 开启预取时，返回一批数据的同时在执行器中查询下一批；预取的查询不在调用方的事务中
+ *
+ * @author 陈佳志
+ * @see BaseDAO#scanAll(int)
+ */
+public class KeysetScan<E> implements Iterator<E>, AutoCloseable {
+
+    private final Function<Object, List<E>> batchLoader;
+
+    private final Function<E, Object> idGetter;
+
+    private final int batchSize;
+
+    /**
+     * 预取下一批使用的执行器，为null时不预取
+     */
+    private final Executor prefetchExecutor;
+
+    private List<E> batch = Collections.emptyList();
+
+    private int index = 0;
+
+    private Object lastId;
+
+    private boolean exhausted = false;
+
+    private CompletableFuture<List<E>> pending;
+
+    private int batchCount = 0;
+
+    private long rowCount = 0;
+
+    /**
+     * @param batchLoader 根据上一批最后的id（第一批为null）查询下一批
+     * @param idGetter    获取实体的id
+     */
+    KeysetScan(Function<Object, List<E>> batchLoader, Function<E, Object> idGetter, int batchSize,
+               Executor prefetchExecutor) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize必须大于0：" + batchSize);
+        }
+        this.batchLoader = batchLoader;
+        this.idGetter = idGetter;
+        this.batchSize = batchSize;
+        this.prefetchExecutor = prefetchExecutor;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (index >= batch.size()) {
+            if (exhausted) {
+                return false;
+            }
+            loadNextBatch();
+        }
+        return true;
+    }
+
+    @Override
+    public E next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        rowCount++;
+        return batch.get(index++);
+    }
+
+    private void loadNextBatch() {
+        List<E> next;
+        if (pending != null) {
+            try {
+                next = pending.join();
+            } catch (CompletionException e) {
+                exhausted = true;
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            } finally {
+                pending = null;
+            }
+        } else {
+            next = batchLoader.apply(lastId);
+        }
+        batch = next;
+        index = 0;
+        batchCount++;
+        if (next.size() < batchSize) {
+            exhausted = true;
+            return;
+        }
+        lastId = idGetter.apply(next.get(next.size() - 1));
+        if (prefetchExecutor != null) {
+            Object afterId = lastId;
+            pending = CompletableFuture.supplyAsync(() -> batchLoader.apply(afterId), prefetchExecutor);
+        }
+    }
+
+    /**
+     * 转换为顺序流，流关闭时放弃预取
+     */
+    public Stream<E> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(this::close);
+    }
+
+    /**
+     * 已经查询的批数
+     */
+    public int getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * 已经返回的行数
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * 结束遍历，放弃正在预取的批次
+     */
+    @Override
+    public void close() {
+        exhausted = true;
+        batch = Collections.emptyList();
+        if (pending != null) {
+            pending.cancel(false);
+            pending = null;
+        }
+    }
+}
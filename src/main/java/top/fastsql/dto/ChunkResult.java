@@ -0,0 +1,106 @@
+package top.fastsql.dto;
+
+import java.util.Arrays;
+
+/**
+ * 分块查询的结果：处理的行数、块数以及每块的耗时
+ *
+ * @author 陈佳志
+ */
+public class ChunkResult {
+
+    private int rowCount;
+
+    private int chunkCount;
+
+    /**
+     * 回调要求提前结束
+     */
+    private boolean terminated;
+
+    /**
+     * 每块读取并映射的耗时（纳秒）
+     */
+    private long[] fetchNanos = new long[16];
+
+    /**
+     * 每块回调处理的耗时（纳秒）
+     */
+    private long[] handleNanos = new long[16];
+
+    /**
+     * 记录一块的耗时
+     */
+    public void addChunk(int rows, long fetchNanos, long handleNanos) {
+        if (chunkCount == this.fetchNanos.length) {
+            this.fetchNanos = Arrays.copyOf(this.fetchNanos, chunkCount * 2);
+            this.handleNanos = Arrays.copyOf(this.handleNanos, chunkCount * 2);
+        }
+        this.fetchNanos[chunkCount] = fetchNanos;
+        this.handleNanos[chunkCount] = handleNanos;
+        this.chunkCount++;
+        this.rowCount += rows;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public boolean isTerminated() {
+        return terminated;
+    }
+
+    public void setTerminated(boolean terminated) {
+        this.terminated = terminated;
+    }
+
+    /**
+     * @param chunk 块序号，从0开始
+     */
+    public long getFetchNanos(int chunk) {
+        checkChunk(chunk);
+        return fetchNanos[chunk];
+    }
+
+    public long getHandleNanos(int chunk) {
+        checkChunk(chunk);
+        return handleNanos[chunk];
+    }
+
+    public long getTotalFetchNanos() {
+        long total = 0;
+        for (int i = 0; i < chunkCount; i++) {
+            total += fetchNanos[i];
+        }
+        return total;
+    }
+
+    public long getTotalHandleNanos() {
+        long total = 0;
+        for (int i = 0; i < chunkCount; i++) {
+            total += handleNanos[i];
+        }
+        return total;
+    }
+
+    private void checkChunk(int chunk) {
+        if (chunk < 0 || chunk >= chunkCount) {
+            throw new IndexOutOfBoundsException("chunk: " + chunk + ", chunkCount: " + chunkCount);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ChunkResult{" +
+                "rowCount=" + rowCount +
+                ", chunkCount=" + chunkCount +
+                ", terminated=" + terminated +
+                ", fetchMillis=" + getTotalFetchNanos() / 1_000_000 +
+                ", handleMillis=" + getTotalHandleNanos() / 1_000_000 +
+                '}';
+    }
+}
@@ -0,0 +1,463 @@
+package top.fastsql.dto;
+
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 按列存储的查询结果
+ * <p>
+ * 整数、浮点列使用基本类型数组保存，null值记录在每列的位图中，读取时不创建包装对象；
+ * 数组按固定大小分块增长，不需要整体复制。其他类型的列按Object保存
+ *
+ * @author 陈佳志
+ */
+public class ColumnarResult {
+
+    /**
+     * 每块的行数
+     */
+    static final int CHUNK_SHIFT = 12;
+
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * 列的存储类型
+     */
+    public enum ColumnType {
+        INT, LONG, DOUBLE, OBJECT
+    }
+
+    private final String[] labels;
+
+    private final Column[] columns;
+
+    private int rowCount;
+
+    private ColumnarResult(String[] labels, Column[] columns) {
+        this.labels = labels;
+        this.columns = columns;
+    }
+
+    /**
+     * 读取结果集中剩余的所有行，列的存储类型根据jdbc类型确定：
+     * TINYINT/SMALLINT/INTEGER为INT，BIGINT和scale为0且精度不超过18的DECIMAL为LONG，
+     * REAL/FLOAT/DOUBLE为DOUBLE，其余为OBJECT。
+     * 其他DECIMAL（有小数位、没有声明精度如Oracle的NUMBER）转为基本类型会丢失精度，保持为BigDecimal
+     */
+    public static ColumnarResult read(ResultSet rs) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        String[] labels = new String[columnCount];
+        Column[] columns = new Column[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            labels[i] = JdbcUtils.lookupColumnName(metaData, i + 1);
+            columns[i] = createColumn(getColumnType(metaData, i + 1));
+        }
+        ColumnarResult result = new ColumnarResult(labels, columns);
+        int row = 0;
+        while (rs.next()) {
+            for (int i = 0; i < columnCount; i++) {
+                columns[i].read(rs, i + 1, row);
+            }
+            row++;
+        }
+        result.rowCount = row;
+        return result;
+    }
+
+    /**
+     * 只读取第一列，按long保存
+     */
+    public static long[] readLongColumn(ResultSet rs) throws SQLException {
+        LongColumn column = new LongColumn();
+        int row = 0;
+        while (rs.next()) {
+            column.read(rs, 1, row++);
+        }
+        return column.toLongArray(row);
+    }
+
+    /**
+     * 只读取第一列，按int保存
+     */
+    public static int[] readIntColumn(ResultSet rs) throws SQLException {
+        IntColumn column = new IntColumn();
+        int row = 0;
+        while (rs.next()) {
+            column.read(rs, 1, row++);
+        }
+        return column.toIntArray(row);
+    }
+
+    /**
+     * 只读取第一列，按double保存
+     */
+    public static double[] readDoubleColumn(ResultSet rs) throws SQLException {
+        DoubleColumn column = new DoubleColumn();
+        int row = 0;
+        while (rs.next()) {
+            column.read(rs, 1, row++);
+        }
+        return column.toDoubleArray(row);
+    }
+
+    private static ColumnType getColumnType(ResultSetMetaData metaData, int index) throws SQLException {
+        switch (metaData.getColumnType(index)) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+                return ColumnType.INT;
+            case Types.BIGINT:
+                return ColumnType.LONG;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return ColumnType.DOUBLE;
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                int precision = metaData.getPrecision(index);
+                return metaData.getScale(index) == 0 && precision > 0 && precision <= 18 ?
+                        ColumnType.LONG : ColumnType.OBJECT;
+            default:
+                return ColumnType.OBJECT;
+        }
+    }
+
+    private static Column createColumn(ColumnType type) {
+        switch (type) {
+            case INT:
+                return new IntColumn();
+            case LONG:
+                return new LongColumn();
+            case DOUBLE:
+                return new DoubleColumn();
+            default:
+                return new ObjectColumn();
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * @param column 列序号，从0开始
+     */
+    public String getColumnLabel(int column) {
+        return labels[column];
+    }
+
+    /**
+     * 根据列名（忽略大小写）查找列序号，没有时返回-1
+     */
+    public int findColumn(String label) {
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i].equalsIgnoreCase(label)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public ColumnType getColumnType(int column) {
+        return columns[column].getType();
+    }
+
+    public boolean isNull(int row, int column) {
+        checkRow(row);
+        return columns[column].nulls.get(row);
+    }
+
+    /**
+     * null值返回0
+     */
+    public int getInt(int row, int column) {
+        checkRow(row);
+        return (int) columns[column].getLong(row);
+    }
+
+    public long getLong(int row, int column) {
+        checkRow(row);
+        return columns[column].getLong(row);
+    }
+
+    public double getDouble(int row, int column) {
+        checkRow(row);
+        return columns[column].getDouble(row);
+    }
+
+    /**
+     * 基本类型的列会装箱，null值返回null
+     */
+    public Object getObject(int row, int column) {
+        checkRow(row);
+        return columns[column].getObject(row);
+    }
+
+    /**
+     * 复制一列为int数组，null值为0
+     */
+    public int[] getIntColumn(int column) {
+        return columns[column].toIntArray(rowCount);
+    }
+
+    public long[] getLongColumn(int column) {
+        return columns[column].toLongArray(rowCount);
+    }
+
+    public double[] getDoubleColumn(int column) {
+        return columns[column].toDoubleArray(rowCount);
+    }
+
+    /**
+     * 一列的null位图副本，第n位为true表示第n行是null
+     */
+    public BitSet getNulls(int column) {
+        return (BitSet) columns[column].nulls.clone();
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= rowCount) {
+            throw new IndexOutOfBoundsException("row: " + row + ", rowCount: " + rowCount);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ColumnarResult{" + "columnCount=" + columns.length + ", rowCount=" + rowCount + '}';
+    }
+
+    //-------------------------------- 列存储 --------------------------------
+
+    private abstract static class Column {
+        final BitSet nulls = new BitSet();
+
+        abstract ColumnType getType();
+
+        abstract void read(ResultSet rs, int index, int row) throws SQLException;
+
+        abstract long getLong(int row);
+
+        abstract double getDouble(int row);
+
+        abstract Object getValue(int row);
+
+        Object getObject(int row) {
+            return nulls.get(row) ? null : getValue(row);
+        }
+
+        int[] toIntArray(int rowCount) {
+            int[] array = new int[rowCount];
+            for (int i = 0; i < rowCount; i++) {
+                array[i] = (int) getLong(i);
+            }
+            return array;
+        }
+
+        long[] toLongArray(int rowCount) {
+            long[] array = new long[rowCount];
+            for (int i = 0; i < rowCount; i++) {
+                array[i] = getLong(i);
+            }
+            return array;
+        }
+
+        double[] toDoubleArray(int rowCount) {
+            double[] array = new double[rowCount];
+            for (int i = 0; i < rowCount; i++) {
+                array[i] = getDouble(i);
+            }
+            return array;
+        }
+    }
+
+    private static class IntColumn extends Column {
+        private final List<int[]> chunks = new ArrayList<>();
+
+        @Override
+        ColumnType getType() {
+            return ColumnType.INT;
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            if ((row & CHUNK_MASK) == 0) {
+                chunks.add(new int[CHUNK_SIZE]);
+            }
+            int value = rs.getInt(index);
+            if (rs.wasNull()) {
+                nulls.set(row);
+            } else {
+                chunks.get(row >>> CHUNK_SHIFT)[row & CHUNK_MASK] = value;
+            }
+        }
+
+        @Override
+        long getLong(int row) {
+            return chunks.get(row >>> CHUNK_SHIFT)[row & CHUNK_MASK];
+        }
+
+        @Override
+        double getDouble(int row) {
+            return getLong(row);
+        }
+
+        @Override
+        Object getValue(int row) {
+            return (int) getLong(row);
+        }
+
+        @Override
+        int[] toIntArray(int rowCount) {
+            int[] array = new int[rowCount];
+            for (int from = 0, i = 0; from < rowCount; from += CHUNK_SIZE, i++) {
+                System.arraycopy(chunks.get(i), 0, array, from, Math.min(CHUNK_SIZE, rowCount - from));
+            }
+            return array;
+        }
+    }
+
+    private static class LongColumn extends Column {
+        private final List<long[]> chunks = new ArrayList<>();
+
+        @Override
+        ColumnType getType() {
+            return ColumnType.LONG;
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            if ((row & CHUNK_MASK) == 0) {
+                chunks.add(new long[CHUNK_SIZE]);
+            }
+            long value = rs.getLong(index);
+            if (rs.wasNull()) {
+                nulls.set(row);
+            } else {
+                chunks.get(row >>> CHUNK_SHIFT)[row & CHUNK_MASK] = value;
+            }
+        }
+
+        @Override
+        long getLong(int row) {
+            return chunks.get(row >>> CHUNK_SHIFT)[row & CHUNK_MASK];
+        }
+
+        @Override
+        double getDouble(int row) {
+            return getLong(row);
+        }
+
+        @Override
+        Object getValue(int row) {
+            return getLong(row);
+        }
+
+        @Override
+        long[] toLongArray(int rowCount) {
+            long[] array = new long[rowCount];
+            for (int from = 0, i = 0; from < rowCount; from += CHUNK_SIZE, i++) {
+                System.arraycopy(chunks.get(i), 0, array, from, Math.min(CHUNK_SIZE, rowCount - from));
+            }
+            return array;
+        }
+    }
+
+    private static class DoubleColumn extends Column {
+        private final List<double[]> chunks = new ArrayList<>();
+
+        @Override
+        ColumnType getType() {
+            return ColumnType.DOUBLE;
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            if ((row & CHUNK_MASK) == 0) {
+                chunks.add(new double[CHUNK_SIZE]);
+            }
+            double value = rs.getDouble(index);
+            if (rs.wasNull()) {
+                nulls.set(row);
+            } else {
+                chunks.get(row >>> CHUNK_SHIFT)[row & CHUNK_MASK] = value;
+            }
+        }
+
+        @Override
+        long getLong(int row) {
+            return (long) getDouble(row);
+        }
+
+        @Override
+        double getDouble(int row) {
+            return chunks.get(row >>> CHUNK_SHIFT)[row & CHUNK_MASK];
+        }
+
+        @Override
+        Object getValue(int row) {
+            return getDouble(row);
+        }
+
+        @Override
+        double[] toDoubleArray(int rowCount) {
+            double[] array = new double[rowCount];
+            for (int from = 0, i = 0; from < rowCount; from += CHUNK_SIZE, i++) {
+                System.arraycopy(chunks.get(i), 0, array, from, Math.min(CHUNK_SIZE, rowCount - from));
+            }
+            return array;
+        }
+    }
+
+    private static class ObjectColumn extends Column {
+        private final List<Object[]> chunks = new ArrayList<>();
+
+        @Override
+        ColumnType getType() {
+            return ColumnType.OBJECT;
+        }
+
+        @Override
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            if ((row & CHUNK_MASK) == 0) {
+                chunks.add(new Object[CHUNK_SIZE]);
+            }
+            Object value = JdbcUtils.getResultSetValue(rs, index);
+            if (value == null) {
+                nulls.set(row);
+            } else {
+                chunks.get(row >>> CHUNK_SHIFT)[row & CHUNK_MASK] = value;
+            }
+        }
+
+        @Override
+        long getLong(int row) {
+            Object value = getValue(row);
+            return value instanceof Number ? ((Number) value).longValue() : 0;
+        }
+
+        @Override
+        double getDouble(int row) {
+            Object value = getValue(row);
+            return value instanceof Number ? ((Number) value).doubleValue() : 0;
+        }
+
+        @Override
+        Object getValue(int row) {
+            return chunks.get(row >>> CHUNK_SHIFT)[row & CHUNK_MASK];
+        }
+    }
+}
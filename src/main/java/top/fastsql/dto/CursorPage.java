@@ -0,0 +1,47 @@
+package top.fastsql.dto;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 游标分页的一页结果，使用nextCursor查询下一页
+ *
+ * @author 陈佳志
+ * @see top.fastsql.util.KeysetPagination
+ */
+public class CursorPage<T> implements Iterable<T> {
+
+    private final List<T> content;
+
+    private final String nextCursor;
+
+    public CursorPage(List<T> content, String nextCursor) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * 下一页的游标，没有下一页时为null
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public String toString() {
+        return "CursorPage{" + "nextCursor=" + nextCursor + ", content=" + content + '}';
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return content.iterator();
+    }
+}
@@ -0,0 +1,132 @@
+package top.fastsql.dto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 并行扫描的结果：每个分区的范围、行数、批数、耗时和吞吐量
+ *
+ * @author 陈佳志
+ */
+public class ParallelScanResult {
+
+    private final List<Partition> partitions = new ArrayList<>();
+
+    private long elapsedMillis;
+
+    public void addPartition(Partition partition) {
+        partitions.add(partition);
+    }
+
+    public List<Partition> getPartitions() {
+        return Collections.unmodifiableList(partitions);
+    }
+
+    public long getRowCount() {
+        long total = 0;
+        for (Partition partition : partitions) {
+            total += partition.getRowCount();
+        }
+        return total;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * 每秒处理的行数
+     */
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? getRowCount() * 1000.0 : getRowCount() * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ParallelScanResult{" +
+                "rowCount=" + getRowCount() +
+                ", elapsedMillis=" + elapsedMillis +
+                ", partitions=" + partitions +
+                '}';
+    }
+
+    /**
+     * 一个分区：id在(fromId, toId]之间，fromId为null时不限制下界
+     */
+    public static class Partition {
+
+        private final int index;
+
+        private final Object fromId;
+
+        private final Object toId;
+
+        private volatile long rowCount;
+
+        private volatile int batchCount;
+
+        private volatile long elapsedMillis;
+
+        public Partition(int index, Object fromId, Object toId) {
+            this.index = index;
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public Object getFromId() {
+            return fromId;
+        }
+
+        public Object getToId() {
+            return toId;
+        }
+
+        /**
+         * 扫描过程中也可以读取，用于查看进度
+         */
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        public int getBatchCount() {
+            return batchCount;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedMillis == 0 ? rowCount * 1000.0 : rowCount * 1000.0 / elapsedMillis;
+        }
+
+        /**
+         * 由扫描线程调用，记录处理完的一批
+         */
+        public void addBatch(int rows, long elapsedMillis) {
+            this.rowCount += rows;
+            this.batchCount++;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Partition{" +
+                    "index=" + index +
+                    ", range=(" + fromId + ", " + toId + "]" +
+                    ", rowCount=" + rowCount +
+                    ", batchCount=" + batchCount +
+                    ", elapsedMillis=" + elapsedMillis +
+                    '}';
+        }
+    }
+}
@@ -9,6 +9,29 @@ import java.util.List;
  * 2017-08-15
  */
 public class ResultPage<T> implements Iterable<T> {
+
+    /**
+     * 总数的来源
+     */
+    public enum TotalType {
+        /**
+         * count查询得到的准确数量
+         */
+        EXACT,
+        /**
+         * 缓存的count结果，可能已经过期
+         */
+        CACHED,
+        /**
+         * 只统计到上限，实际数量大于等于totalElements（即"N+"）
+         */
+        CAPPED,
+        /**
+         * 数据库统计信息或执行计划估算的数量
+         */
+        ESTIMATED
+    }
+
     /**
      * 内容
      */
@@ -18,6 +41,8 @@ public class ResultPage<T> implements Iterable<T> {
      */
     private int totalElements; //TODO 考虑改为long?
 
+    private TotalType totalType = TotalType.EXACT;
+
     public ResultPage() {
         this.content = new ArrayList<>();
         this.totalElements = 0;
@@ -33,6 +58,12 @@ public class ResultPage<T> implements Iterable<T> {
         this.totalElements = (int) totalElements;
     }
 
+    public ResultPage(List<T> content, long totalElements, TotalType totalType) {
+        this.content = content;
+        this.totalElements = (int) Math.min(totalElements, Integer.MAX_VALUE);
+        this.totalType = totalType;
+    }
+
     public List<T> getContent() {
         return content;
     }
@@ -49,10 +80,24 @@ public class ResultPage<T> implements Iterable<T> {
         this.totalElements = totalElements;
     }
 
+    public TotalType getTotalType() {
+        return totalType;
+    }
+
+    public void setTotalType(TotalType totalType) {
+        this.totalType = totalType;
+    }
+
+    /**
+     * 总数是否为准确值（count查询或缓存的count结果）
+     */
+    public boolean isTotalExact() {
+        return totalType == TotalType.EXACT || totalType == TotalType.CACHED;
+    }
 
     @Override
     public String toString() {
-        return "ResultPage{" + "totalElements=" + totalElements + ", content=" + content + '}';
+        return "ResultPage{" + "totalElements=" + totalElements + ", totalType=" + totalType + ", content=" + content + '}';
     }
 
     @Override
@@ -2,19 +2,39 @@ package top.fastsql.dto;
 
 import top.fastsql.util.FastSqlUtils;
 
+import java.io.Serializable;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
 /**
+ * 一行查询结果
+ * <p>
+ * 查询得到的行使用紧凑的保存方式：列名到下标的映射保存在 {@link Schema} 中，同一个结果集的所有行共用一个Schema，
+ * 每行只保存一个值数组，遍历顺序与列顺序相同。put/remove改变列时使用Schema缓存的派生Schema，
+ * 对每一行做相同的修改时各行仍然共用一个Schema。
+ * 其他HashMap方法（compute、merge等）以及序列化时转为普通HashMap保存，行为与HashMap相同
+ *
  * @author Chenjiazhi
  * 2018-04-05
  */
 public class RowMap extends HashMap<String, Object> {
 
+    /**
+     * 与紧凑保存之前的RowMap相同，序列化格式不变
+     */
+    private static final long serialVersionUID = 4358070440254936320L;
+
+    /**
+     * 紧凑保存时的列名表，为null时数据保存在HashMap中
+     */
+    private transient Schema schema;
+
+    private transient Object[] values;
+
     public RowMap() {
     }
 
@@ -22,6 +42,18 @@ public class RowMap extends HashMap<String, Object> {
         super(map);
     }
 
+    /**
+     * @param schema 共享的列名表
+     * @param values 值，下标与schema中的列一一对应
+     */
+    public RowMap(Schema schema, Object[] values) {
+        if (schema.size() != values.length) {
+            throw new IllegalArgumentException("schema size " + schema.size() + " != values length " + values.length);
+        }
+        this.schema = schema;
+        this.values = values;
+    }
+
     /**
      * get Class Type
      */
@@ -66,5 +98,464 @@ public class RowMap extends HashMap<String, Object> {
         return (CLS) get(key);
     }
 
+    /**
+     * 紧凑保存时的列名表，已转为普通HashMap保存时返回null
+     */
+    public Schema getSchema() {
+        return schema;
+    }
+
+    //-------------------------------- Map --------------------------------
+
+    @Override
+    public int size() {
+        return schema != null ? values.length : super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return schema != null ? schema.indexOf(key) >= 0 : super.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        if (schema == null) {
+            return super.containsValue(value);
+        }
+        for (Object v : values) {
+            if (Objects.equals(v, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Object get(Object key) {
+        return getOrDefault(key, null);
+    }
+
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        if (schema == null) {
+            return super.getOrDefault(key, defaultValue);
+        }
+        int index = schema.indexOf(key);
+        return index < 0 ? defaultValue : values[index];
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        if (schema == null) {
+            return super.put(key, value);
+        }
+        int index = schema.indexOf(key);
+        if (index >= 0) {
+            Object old = values[index];
+            values[index] = value;
+            return old;
+        }
+        schema = schema.with(key);
+        values = Arrays.copyOf(values, values.length + 1);
+        values[values.length - 1] = value;
+        return null;
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ?> map) {
+        if (schema == null) {
+            super.putAll(map);
+            return;
+        }
+        for (Map.Entry<? extends String, ?> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public Object remove(Object key) {
+        if (schema == null) {
+            return super.remove(key);
+        }
+        int index = schema.indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        Object old = values[index];
+        removeAt(index);
+        return old;
+    }
+
+    private void removeAt(int index) {
+        schema = schema.without(index);
+        Object[] newValues = new Object[values.length - 1];
+        System.arraycopy(values, 0, newValues, 0, index);
+        System.arraycopy(values, index + 1, newValues, index, values.length - index - 1);
+        values = newValues;
+    }
+
+    @Override
+    public void clear() {
+        schema = null;
+        values = null;
+        super.clear();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super Object> action) {
+        if (schema == null) {
+            super.forEach(action);
+            return;
+        }
+        for (int i = 0; i < values.length; i++) {
+            action.accept(schema.getName(i), values[i]);
+        }
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super Object, ?> function) {
+        if (schema == null) {
+            super.replaceAll(function);
+            return;
+        }
+        for (int i = 0; i < values.length; i++) {
+            values[i] = function.apply(schema.getName(i), values[i]);
+        }
+    }
+
+    @Override
+    public Object putIfAbsent(String key, Object value) {
+        inflate();
+        return super.putIfAbsent(key, value);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        inflate();
+        return super.remove(key, value);
+    }
+
+    @Override
+    public boolean replace(String key, Object oldValue, Object newValue) {
+        inflate();
+        return super.replace(key, oldValue, newValue);
+    }
+
+    @Override
+    public Object replace(String key, Object value) {
+        inflate();
+        return super.replace(key, value);
+    }
+
+    @Override
+    public Object computeIfAbsent(String key, Function<? super String, ?> mappingFunction) {
+        inflate();
+        return super.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public Object computeIfPresent(String key, BiFunction<? super String, ? super Object, ?> remappingFunction) {
+        inflate();
+        return super.computeIfPresent(key, remappingFunction);
+    }
+
+    @Override
+    public Object compute(String key, BiFunction<? super String, ? super Object, ?> remappingFunction) {
+        inflate();
+        return super.compute(key, remappingFunction);
+    }
+
+    @Override
+    public Object merge(String key, Object value, BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+        inflate();
+        return super.merge(key, value, remappingFunction);
+    }
 
+    /**
+     * 复制得到的是普通HashMap保存的RowMap
+     */
+    @Override
+    public Object clone() {
+        //HashMap.clone()通过entrySet()复制当前的内容
+        RowMap copy = (RowMap) super.clone();
+        copy.schema = null;
+        copy.values = null;
+        return copy;
+    }
+
+    /**
+     * 序列化时使用普通HashMap保存的副本
+     */
+    private Object writeReplace() {
+        return schema == null ? this : new RowMap(this);
+    }
+
+    /**
+     * 转为普通HashMap保存
+     */
+    private void inflate() {
+        if (schema == null) {
+            return;
+        }
+        Schema oldSchema = schema;
+        Object[] oldValues = values;
+        schema = null;
+        values = null;
+        for (int i = 0; i < oldValues.length; i++) {
+            super.put(oldSchema.getName(i), oldValues[i]);
+        }
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            @Override
+            public int size() {
+                return RowMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public Iterator<String> iterator() {
+                Iterator<Map.Entry<String, Object>> iterator = entrySet().iterator();
+                return new Iterator<String>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public String next() {
+                        return iterator.next().getKey();
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public Collection<Object> values() {
+        return new AbstractCollection<Object>() {
+            @Override
+            public int size() {
+                return RowMap.this.size();
+            }
+
+            @Override
+            public Iterator<Object> iterator() {
+                Iterator<Map.Entry<String, Object>> iterator = entrySet().iterator();
+                return new Iterator<Object>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Object next() {
+                        return iterator.next().getValue();
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * 紧凑保存时按列顺序遍历；视图始终反映当前的保存方式
+     */
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Object>>() {
+            @Override
+            public int size() {
+                return RowMap.this.size();
+            }
+
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                if (schema == null) {
+                    return RowMap.super.entrySet().iterator();
+                }
+                return new Iterator<Map.Entry<String, Object>>() {
+                    private int next = 0;
+                    private int last = -1;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < values.length;
+                    }
+
+                    @Override
+                    public Map.Entry<String, Object> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        last = next++;
+                        return new Entry(last);
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (last < 0) {
+                            throw new IllegalStateException();
+                        }
+                        removeAt(last);
+                        next = last;
+                        last = -1;
+                    }
+                };
+            }
+        };
+    }
+
+    private class Entry implements Map.Entry<String, Object> {
+        private final int index;
+
+        private Entry(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public String getKey() {
+            return schema.getName(index);
+        }
+
+        @Override
+        public Object getValue() {
+            return values[index];
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            Object old = values[index];
+            values[index] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return Objects.equals(getKey(), e.getKey()) && Objects.equals(getValue(), e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    /**
+     * 不可变的列名表，列名区分大小写，不能重复
+     */
+    public static final class Schema implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * 每个Schema最多缓存的派生Schema数量
+         */
+        private static final int MAX_DERIVED = 16;
+
+        private final String[] names;
+
+        private final Map<String, Integer> indexes;
+
+        /**
+         * 新增一列得到的Schema，每行新增相同的列时共用
+         */
+        private transient Map<String, Schema> extended;
+
+        /**
+         * 删除一列得到的Schema，下标为删除的列
+         */
+        private transient Schema[] reduced;
+
+        public Schema(String... names) {
+            this.names = names.clone();
+            this.indexes = new HashMap<>(names.length * 2);
+            for (int i = 0; i < names.length; i++) {
+                if (indexes.put(names[i], i) != null) {
+                    throw new IllegalArgumentException("重复的列名：" + names[i]);
+                }
+            }
+        }
+
+        /**
+         * 列的下标，不存在时返回-1
+         */
+        public int indexOf(Object name) {
+            Integer index = indexes.get(name);
+            return index == null ? -1 : index;
+        }
+
+        public String getName(int index) {
+            return names[index];
+        }
+
+        public int size() {
+            return names.length;
+        }
+
+        synchronized Schema with(String name) {
+            if (extended == null) {
+                extended = new HashMap<>();
+            }
+            Schema schema = extended.get(name);
+            if (schema == null) {
+                String[] newNames = Arrays.copyOf(names, names.length + 1);
+                newNames[names.length] = name;
+                schema = new Schema(newNames);
+                if (extended.size() < MAX_DERIVED) {
+                    extended.put(name, schema);
+                }
+            }
+            return schema;
+        }
+
+        synchronized Schema without(int index) {
+            if (reduced == null) {
+                reduced = new Schema[names.length];
+            }
+            Schema schema = reduced[index];
+            if (schema == null) {
+                String[] newNames = new String[names.length - 1];
+                System.arraycopy(names, 0, newNames, 0, index);
+                System.arraycopy(names, index + 1, newNames, index, names.length - index - 1);
+                schema = new Schema(newNames);
+                reduced[index] = schema;
+            }
+            return schema;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(names);
+        }
+    }
 }
@@ -0,0 +1,68 @@
+package top.fastsql.dto;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 不含总数的一页结果，只知道是否还有下一页
+ * <p>
+ * 查询时多取一行判断是否有下一页，不执行count，适合"加载更多"、无限滚动等场景
+ *
+ * @author 陈佳志
+ * @see top.fastsql.SQL#querySlice(int, int, Class)
+ */
+public class Slice<T> implements Iterable<T> {
+
+    private final List<T> content;
+
+    private final int page;
+
+    private final int perPage;
+
+    private final boolean hasNext;
+
+    public Slice(List<T> content, int page, int perPage, boolean hasNext) {
+        this.content = content;
+        this.page = page;
+        this.perPage = perPage;
+        this.hasNext = hasNext;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * 页数，从1开始
+     */
+    public int getPage() {
+        return page;
+    }
+
+    public int getPerPage() {
+        return perPage;
+    }
+
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    public boolean hasPrevious() {
+        return page > 1;
+    }
+
+    public boolean isEmpty() {
+        return content.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "Slice{" + "page=" + page + ", perPage=" + perPage + ", hasNext=" + hasNext +
+                ", content=" + content + '}';
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return content.iterator();
+    }
+}
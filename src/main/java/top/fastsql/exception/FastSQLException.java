@@ -5,4 +5,8 @@ public class FastSQLException extends RuntimeException {
     public FastSQLException(String message) {
         super(message);
     }
+
+    public FastSQLException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
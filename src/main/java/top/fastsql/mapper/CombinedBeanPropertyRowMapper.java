@@ -1,16 +1,53 @@
 package top.fastsql.mapper;
 
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.util.ReflectionUtils;
+import top.fastsql.exception.FastSQLException;
 
+import java.beans.PropertyChangeEvent;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * 将同一行映射到主对象以及标注了 {@link InnerBeanMapped} 的内部对象，支持多层嵌套
+ * <p>
+ * 对象结构只解析一次，每种列布局生成一次映射计划，逐行映射时只创建目标对象。
+ * 支持BeanPropertyRowMapper的设置：primitivesDefaultedForNullValue和conversionService作用于所有对象，
+ * checkFullyPopulated只检查主对象
+ *
  * @author Chenjiazhi
  * 2018-08-01
  */
 public class CombinedBeanPropertyRowMapper<T> extends BeanPropertyRowMapper<T> {
+
+    /**
+     * 每个mapper最多缓存的列布局数量，超过后清空
+     */
+    private static final int MAX_PLANS = 64;
+
+    private volatile Node root;
+
+    private final Map<String, Node> plans = new ConcurrentHashMap<>();
+
+    private final PlanHolder<Node> planHolder = new PlanHolder<>();
+
     public CombinedBeanPropertyRowMapper() {
     }
 
@@ -21,31 +58,209 @@ public class CombinedBeanPropertyRowMapper<T> extends BeanPropertyRowMapper<T> {
 
 
     @Override
+    @SuppressWarnings("unchecked")
     public T mapRow(ResultSet rs, int rowNumber) throws SQLException {
-        T t = super.mapRow(rs, rowNumber);
+        Node plan = planHolder.get(rs, rowNumber);
+        if (plan == null) {
+            plan = getPlan(rs.getMetaData());
+            planHolder.set(rs, plan);
+        }
+        return (T) plan.map(rs);
+    }
 
-        Field[] fields = t.getClass().getDeclaredFields();
-        for (Field field : fields) {
-            field.setAccessible(true);
-            InnerBeanMapped annotation = field.getAnnotation(InnerBeanMapped.class);
-            if (annotation == null) {
-                continue;
-            }
+    //设置改变后重新生成映射计划
 
-            Class<?> fieldType = field.getType();
+    @Override
+    protected void initialize(Class<T> mappedClass) {
+        super.initialize(mappedClass);
+        reset();
+    }
 
-            BeanPropertyRowMapper<?> rowMapper = new BeanPropertyRowMapper<>(fieldType);
-            Object instantiate = rowMapper.mapRow(rs, rowNumber);
+    @Override
+    public void setPrimitivesDefaultedForNullValue(boolean primitivesDefaultedForNullValue) {
+        super.setPrimitivesDefaultedForNullValue(primitivesDefaultedForNullValue);
+        reset();
+    }
+
+    @Override
+    public void setCheckFullyPopulated(boolean checkFullyPopulated) {
+        super.setCheckFullyPopulated(checkFullyPopulated);
+        reset();
+    }
+
+    @Override
+    public void setConversionService(ConversionService conversionService) {
+        super.setConversionService(conversionService);
+        reset();
+    }
+
+    private void reset() {
+        this.root = null;
+        plans.clear();
+    }
+
+    private Node getPlan(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        String[] labels = new String[columnCount];
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < columnCount; i++) {
+            labels[i] = JdbcUtils.lookupColumnName(metaData, i + 1);
+            key.append(labels[i]).append(',');
+        }
+        Node plan = plans.get(key.toString());
+        if (plan == null) {
+            plan = getRoot().bind(labels, !isPrimitivesDefaultedForNullValue(), isCheckFullyPopulated());
+            if (plans.size() >= MAX_PLANS) {
+                plans.clear();
+            }
+            plans.put(key.toString(), plan);
+        }
+        return plan;
+    }
 
-            try {
-                field.set(t, instantiate);
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException(e);
+    /**
+     * 对象结构只与类有关，解析一次
+     */
+    private Node getRoot() {
+        Node node = this.root;
+        if (node == null) {
+            if (getMappedClass() == null) {
+                throw new FastSQLException("CombinedBeanPropertyRowMapper没有设置mappedClass");
             }
+            //没有设置conversionService时与BeanWrapper的默认转换接近，使用默认的转换
+            ConversionService conversionService = getConversionService() != null ?
+                    getConversionService() : DefaultConversionService.getSharedInstance();
+            node = createNode(getMappedClass(), null, new ArrayList<>(), conversionService);
+            this.root = node;
+        }
+        return node;
+    }
 
+    private static Node createNode(Class<?> type, MethodHandle setter, List<Class<?>> path,
+                                   ConversionService conversionService) {
+        if (path.contains(type)) {
+            throw new FastSQLException("@InnerBeanMapped存在循环引用：" + path + " -> " + type.getName());
+        }
+        path.add(type);
+        List<Node> children = new ArrayList<>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (field.getAnnotation(InnerBeanMapped.class) == null || Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                ReflectionUtils.makeAccessible(field);
+                MethodHandle fieldSetter;
+                try {
+                    fieldSetter = MethodHandles.lookup().unreflectSetter(field)
+                            .asType(MethodType.methodType(void.class, Object.class, Object.class));
+                } catch (IllegalAccessException e) {
+                    throw new FastSQLException("无法访问字段" + field, e);
+                }
+                children.add(createNode(field.getType(), fieldSetter, path, conversionService));
+            }
         }
-        return t;
+        path.remove(path.size() - 1);
+        FastBeanRowMapper<?> mapper = conversionService == DefaultConversionService.getSharedInstance() ?
+                FastBeanRowMapper.of(type) : new FastBeanRowMapper<>(type, conversionService);
+        return new Node(mapper, setter, children.toArray(new Node[0]), null, null);
     }
 
+    /**
+     * 一个对象的映射计划：需要读取的列，以及内部对象
+     */
+    private static class Node {
+        private final FastBeanRowMapper<?> mapper;
+
+        /**
+         * 将本对象设置到父对象字段上，根节点为null
+         */
+        private final MethodHandle setter;
+
+        private final Node[] children;
+
+        /**
+         * 需要读取的列序号和对应的写入器
+         */
+        private final int[] columns;
+
+        private final FastBeanRowMapper.ColumnWriter[] writers;
+
+        private Node(FastBeanRowMapper<?> mapper, MethodHandle setter, Node[] children,
+                     int[] columns, FastBeanRowMapper.ColumnWriter[] writers) {
+            this.mapper = mapper;
+            this.setter = setter;
+            this.children = children;
+            this.columns = columns;
+            this.writers = writers;
+        }
 
+        /**
+         * 根据列布局生成映射计划
+         *
+         * @param nullPrimitiveNotAllowed 基本类型属性的列为null时抛出TypeMismatchException
+         * @param checkFullyPopulated     所有属性都必须有对应的列
+         */
+        private Node bind(String[] labels, boolean nullPrimitiveNotAllowed, boolean checkFullyPopulated) {
+            List<FastBeanRowMapper.ColumnWriter> writerList = new ArrayList<>();
+            Set<String> populated = new TreeSet<>();
+            int[] columnIndexes = new int[labels.length];
+            for (int i = 0; i < labels.length; i++) {
+                FastBeanRowMapper.Property property = mapper.getProperty(labels[i]);
+                if (property != null) {
+                    columnIndexes[writerList.size()] = i + 1;
+                    writerList.add(nullPrimitiveNotAllowed && property.getType().isPrimitive() ?
+                            notNullWriter(property) : property.getWriter());
+                    populated.add(property.getName());
+                }
+            }
+            if (checkFullyPopulated) {
+                Set<String> unpopulated = mapper.getPropertyNames();
+                unpopulated.removeAll(populated);
+                if (!unpopulated.isEmpty()) {
+                    throw new InvalidDataAccessApiUsageException("结果集中缺少" +
+                            mapper.getMappedClass().getName() + "的属性对应的列：" + unpopulated);
+                }
+            }
+            int[] boundColumns = new int[writerList.size()];
+            System.arraycopy(columnIndexes, 0, boundColumns, 0, boundColumns.length);
+            Node[] boundChildren = new Node[children.length];
+            for (int i = 0; i < children.length; i++) {
+                boundChildren[i] = children[i].bind(labels, nullPrimitiveNotAllowed, false);
+            }
+            return new Node(mapper, setter, boundChildren, boundColumns,
+                    writerList.toArray(new FastBeanRowMapper.ColumnWriter[0]));
+        }
+
+        /**
+         * 与BeanPropertyRowMapper相同，null不能设置到基本类型属性上
+         */
+        private static FastBeanRowMapper.ColumnWriter notNullWriter(FastBeanRowMapper.Property property) {
+            FastBeanRowMapper.ColumnWriter writer = property.getWriter();
+            return (bean, rs, index) -> {
+                writer.write(bean, rs, index);
+                if (rs.wasNull()) {
+                    throw new TypeMismatchException(
+                            new PropertyChangeEvent(bean, property.getName(), null, null), property.getType());
+                }
+            };
+        }
+
+        private Object map(ResultSet rs) throws SQLException {
+            Object bean = mapper.newInstance();
+            for (int i = 0; i < writers.length; i++) {
+                writers[i].write(bean, rs, columns[i]);
+            }
+            for (Node child : children) {
+                Object childBean = child.map(rs);
+                try {
+                    child.setter.invokeExact(bean, childBean);
+                } catch (RuntimeException | Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new FastSQLException("设置内部对象失败", e);
+                }
+            }
+            return bean;
+        }
+    }
 }
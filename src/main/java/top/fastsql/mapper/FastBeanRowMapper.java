@@ -0,0 +1,440 @@
+package top.fastsql.mapper;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ReflectionUtils;
+import top.fastsql.exception.FastSQLException;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * 高性能的Bean RowMapper，可以替代BeanPropertyRowMapper
+ * <p>
+ * 每个类只内省一次，构造方法和setter通过LambdaMetafactory生成直接调用（无法生成时退化为MethodHandle），
+ * 每种列布局生成一次映射计划，逐行按列序号调用ResultSet的getInt/getLong等类型化方法。
+ * 列名与属性的匹配规则与BeanPropertyRowMapper相同（忽略大小写，支持下划线）。
+ * 与BeanPropertyRowMapper不同，null值不会设置到基本类型属性上，属性保持默认值
+ *
+ * <pre>
+ * RowMapper&lt;Student&gt; rowMapper = FastBeanRowMapper.of(Student.class);
+ * </pre>
+ *
+ * @author 陈佳志
+ */
+public class FastBeanRowMapper<T> implements RowMapper<T> {
+
+    /**
+     * 每个类共享一个mapper，类被卸载时可以回收
+     */
+    private static final Map<Class<?>, FastBeanRowMapper<?>> MAPPERS = new ConcurrentReferenceHashMap<>(64);
+
+    /**
+     * 每个mapper最多缓存的列布局数量，超过后清空
+     */
+    private static final int MAX_PLANS = 64;
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final Class<T> mappedClass;
+
+    /**
+     * 列值不能直接设置到属性上时使用的类型转换
+     */
+    private final ConversionService conversionService;
+
+    private final Supplier<T> instantiator;
+
+    /**
+     * 小写属性名/下划线属性名 -&gt; 属性
+     */
+    private final Map<String, Property> properties = new HashMap<>();
+
+    private final Map<String, ColumnWriter[]> plans = new ConcurrentHashMap<>();
+
+    private final PlanHolder<ColumnWriter[]> planHolder = new PlanHolder<>();
+
+    /**
+     * 获取类对应的共享mapper
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> FastBeanRowMapper<T> of(Class<T> mappedClass) {
+        FastBeanRowMapper<?> mapper = MAPPERS.get(mappedClass);
+        if (mapper == null) {
+            mapper = new FastBeanRowMapper<>(mappedClass);
+            FastBeanRowMapper<?> existing = MAPPERS.putIfAbsent(mappedClass, mapper);
+            if (existing != null) {
+                mapper = existing;
+            }
+        }
+        return (FastBeanRowMapper<T>) mapper;
+    }
+
+    public FastBeanRowMapper(Class<T> mappedClass) {
+        this(mappedClass, DefaultConversionService.getSharedInstance());
+    }
+
+    public FastBeanRowMapper(Class<T> mappedClass, ConversionService conversionService) {
+        this.mappedClass = mappedClass;
+        this.conversionService = conversionService;
+        this.instantiator = createInstantiator(mappedClass);
+        for (PropertyDescriptor pd : BeanUtils.getPropertyDescriptors(mappedClass)) {
+            Method writeMethod = pd.getWriteMethod();
+            if (writeMethod == null) {
+                continue;
+            }
+            Property property = new Property(pd.getName(), pd.getPropertyType(),
+                    createWriter(writeMethod, pd.getPropertyType(), conversionService));
+            properties.put(lowerCaseName(pd.getName()), property);
+            String underscoredName = underscoreName(pd.getName());
+            if (!underscoredName.equals(lowerCaseName(pd.getName()))) {
+                properties.put(underscoredName, property);
+            }
+        }
+    }
+
+    @Override
+    public T mapRow(ResultSet rs, int rowNum) throws SQLException {
+        ColumnWriter[] writers = planHolder.get(rs, rowNum);
+        if (writers == null) {
+            writers = getPlan(rs.getMetaData());
+            planHolder.set(rs, writers);
+        }
+        T bean = newInstance();
+        for (int i = 0; i < writers.length; i++) {
+            ColumnWriter writer = writers[i];
+            if (writer != null) {
+                writer.write(bean, rs, i + 1);
+            }
+        }
+        return bean;
+    }
+
+    public Class<T> getMappedClass() {
+        return mappedClass;
+    }
+
+    /**
+     * 映射计划：下标为列序号-1，没有对应属性的列为null
+     */
+    private ColumnWriter[] getPlan(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        String[] labels = new String[columnCount];
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < columnCount; i++) {
+            labels[i] = JdbcUtils.lookupColumnName(metaData, i + 1);
+            key.append(labels[i]).append(',');
+        }
+        ColumnWriter[] writers = plans.get(key.toString());
+        if (writers == null) {
+            writers = new ColumnWriter[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                writers[i] = getWriter(labels[i]);
+            }
+            if (plans.size() >= MAX_PLANS) {
+                plans.clear();
+            }
+            plans.put(key.toString(), writers);
+        }
+        return writers;
+    }
+
+    /**
+     * 列对应属性的写入器，没有对应属性时返回null
+     */
+    ColumnWriter getWriter(String columnLabel) {
+        Property property = getProperty(columnLabel);
+        return property == null ? null : property.writer;
+    }
+
+    /**
+     * 列对应的属性，没有对应属性时返回null
+     */
+    Property getProperty(String columnLabel) {
+        return properties.get(lowerCaseName(columnLabel.replaceAll(" ", "")));
+    }
+
+    /**
+     * 所有可写属性的名称
+     */
+    Set<String> getPropertyNames() {
+        Set<String> names = new TreeSet<>();
+        for (Property property : properties.values()) {
+            names.add(property.name);
+        }
+        return names;
+    }
+
+    T newInstance() {
+        return instantiator.get();
+    }
+
+    private static String lowerCaseName(String name) {
+        return name.toLowerCase(Locale.US);
+    }
+
+    private static String underscoreName(String name) {
+        StringBuilder result = new StringBuilder();
+        result.append(lowerCaseName(name.substring(0, 1)));
+        for (int i = 1; i < name.length(); i++) {
+            String s = name.substring(i, i + 1);
+            String slc = lowerCaseName(s);
+            if (!s.equals(slc)) {
+                result.append("_").append(slc);
+            } else {
+                result.append(s);
+            }
+        }
+        return result.toString();
+    }
+
+    //------------------------- 生成构造方法和setter的调用 -------------------------
+
+    @SuppressWarnings("unchecked")
+    private static <T> Supplier<T> createInstantiator(Class<T> mappedClass) {
+        Constructor<T> constructor;
+        try {
+            constructor = mappedClass.getDeclaredConstructor();
+        } catch (NoSuchMethodException e) {
+            throw new FastSQLException(mappedClass.getName() + "没有无参构造方法", e);
+        }
+        if (isLambdaAccessible(constructor.getDeclaringClass(), constructor.getModifiers())) {
+            try {
+                MethodHandle handle = LOOKUP.unreflectConstructor(constructor);
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "get",
+                        MethodType.methodType(Supplier.class), MethodType.methodType(Object.class),
+                        handle, MethodType.methodType(mappedClass));
+                return (Supplier<T>) site.getTarget().invoke();
+            } catch (Throwable ignored) {
+                //退化为反射
+            }
+        }
+        ReflectionUtils.makeAccessible(constructor);
+        return () -> BeanUtils.instantiateClass(constructor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <S> S createSetter(Method method, Class<? super S> interfaceType, MethodType samType,
+                                      Class<?> valueType) {
+        if (!isLambdaAccessible(method.getDeclaringClass(), method.getModifiers())) {
+            return null;
+        }
+        try {
+            MethodHandle handle = LOOKUP.unreflect(method);
+            CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept",
+                    MethodType.methodType(interfaceType), samType, handle,
+                    MethodType.methodType(void.class, method.getDeclaringClass(), valueType));
+            return (S) site.getTarget().invoke();
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    private static BiConsumer<Object, Object> createObjectSetter(Method method, Class<?> type) {
+        BiConsumer<Object, Object> setter = createSetter(method, BiConsumer.class,
+                MethodType.methodType(void.class, Object.class, Object.class), ClassUtils.resolvePrimitiveIfNecessary(type));
+        if (setter != null) {
+            return setter;
+        }
+        //非public类或者不同的ClassLoader，使用MethodHandle
+        ReflectionUtils.makeAccessible(method);
+        MethodHandle handle;
+        try {
+            handle = LOOKUP.unreflect(method).asType(MethodType.methodType(void.class, Object.class, Object.class));
+        } catch (IllegalAccessException e) {
+            throw new FastSQLException("无法访问方法" + method, e);
+        }
+        return (bean, value) -> {
+            try {
+                handle.invokeExact(bean, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new FastSQLException("调用方法失败" + method, e);
+            }
+        };
+    }
+
+    /**
+     * 生成的类定义在本类的ClassLoader中，只有public且对本类可见的类才能直接调用
+     */
+    private static boolean isLambdaAccessible(Class<?> declaringClass, int modifiers) {
+        if (!Modifier.isPublic(modifiers)) {
+            return false;
+        }
+        for (Class<?> c = declaringClass; c != null; c = c.getEnclosingClass()) {
+            if (!Modifier.isPublic(c.getModifiers())) {
+                return false;
+            }
+        }
+        return ClassUtils.isVisible(declaringClass, FastBeanRowMapper.class.getClassLoader());
+    }
+
+    //------------------------- 按类型读取列 -------------------------
+
+    /**
+     * 将结果集中的一列写入bean的属性
+     */
+    @FunctionalInterface
+    interface ColumnWriter {
+        void write(Object bean, ResultSet rs, int index) throws SQLException;
+    }
+
+    static final class Property {
+        private final String name;
+        private final Class<?> type;
+        private final ColumnWriter writer;
+
+        private Property(String name, Class<?> type, ColumnWriter writer) {
+            this.name = name;
+            this.type = type;
+            this.writer = writer;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        Class<?> getType() {
+            return type;
+        }
+
+        ColumnWriter getWriter() {
+            return writer;
+        }
+    }
+
+    private static ColumnWriter createWriter(Method method, Class<?> type, ConversionService conversionService) {
+        if (type == int.class) {
+            ObjIntConsumer<Object> setter = createSetter(method, ObjIntConsumer.class,
+                    MethodType.methodType(void.class, Object.class, int.class), int.class);
+            if (setter != null) {
+                return (bean, rs, index) -> {
+                    int value = rs.getInt(index);
+                    if (value != 0 || !rs.wasNull()) {
+                        setter.accept(bean, value);
+                    }
+                };
+            }
+        } else if (type == long.class) {
+            ObjLongConsumer<Object> setter = createSetter(method, ObjLongConsumer.class,
+                    MethodType.methodType(void.class, Object.class, long.class), long.class);
+            if (setter != null) {
+                return (bean, rs, index) -> {
+                    long value = rs.getLong(index);
+                    if (value != 0 || !rs.wasNull()) {
+                        setter.accept(bean, value);
+                    }
+                };
+            }
+        } else if (type == double.class) {
+            ObjDoubleConsumer<Object> setter = createSetter(method, ObjDoubleConsumer.class,
+                    MethodType.methodType(void.class, Object.class, double.class), double.class);
+            if (setter != null) {
+                return (bean, rs, index) -> {
+                    double value = rs.getDouble(index);
+                    if (value != 0 || !rs.wasNull()) {
+                        setter.accept(bean, value);
+                    }
+                };
+            }
+        }
+
+        BiConsumer<Object, Object> setter = createObjectSetter(method, type);
+        if (type == String.class) {
+            return (bean, rs, index) -> setter.accept(bean, rs.getString(index));
+        } else if (type == int.class || type == Integer.class) {
+            return (bean, rs, index) -> {
+                int value = rs.getInt(index);
+                setNullable(setter, bean, value, rs.wasNull(), type.isPrimitive());
+            };
+        } else if (type == long.class || type == Long.class) {
+            return (bean, rs, index) -> {
+                long value = rs.getLong(index);
+                setNullable(setter, bean, value, rs.wasNull(), type.isPrimitive());
+            };
+        } else if (type == double.class || type == Double.class) {
+            return (bean, rs, index) -> {
+                double value = rs.getDouble(index);
+                setNullable(setter, bean, value, rs.wasNull(), type.isPrimitive());
+            };
+        } else if (type == boolean.class || type == Boolean.class) {
+            return (bean, rs, index) -> {
+                boolean value = rs.getBoolean(index);
+                setNullable(setter, bean, value, rs.wasNull(), type.isPrimitive());
+            };
+        } else if (type == BigDecimal.class) {
+            return (bean, rs, index) -> setter.accept(bean, rs.getBigDecimal(index));
+        } else if (type == Timestamp.class || type == java.util.Date.class) {
+            return (bean, rs, index) -> setter.accept(bean, rs.getTimestamp(index));
+        } else if (type == LocalDateTime.class) {
+            return (bean, rs, index) -> {
+                Timestamp value = rs.getTimestamp(index);
+                setter.accept(bean, value == null ? null : value.toLocalDateTime());
+            };
+        } else if (type == LocalDate.class) {
+            return (bean, rs, index) -> {
+                java.sql.Date value = rs.getDate(index);
+                setter.accept(bean, value == null ? null : value.toLocalDate());
+            };
+        }
+        //其他类型使用JdbcUtils读取，必要时使用ConversionService转换
+        return (bean, rs, index) -> {
+            Object value = JdbcUtils.getResultSetValue(rs, index, type);
+            if (value == null) {
+                if (!type.isPrimitive()) {
+                    setter.accept(bean, null);
+                }
+                return;
+            }
+            if (!ClassUtils.isAssignableValue(type, value)) {
+                value = conversionService.convert(value, type);
+            }
+            setter.accept(bean, value);
+        };
+    }
+
+    private static void setNullable(BiConsumer<Object, Object> setter, Object bean, Object value,
+                                    boolean wasNull, boolean primitive) {
+        if (!wasNull) {
+            setter.accept(bean, value);
+        } else if (!primitive) {
+            setter.accept(bean, null);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FastBeanRowMapper{" + mappedClass.getName() + '}';
+    }
+}
@@ -0,0 +1,42 @@
+package top.fastsql.mapper;
+
+import java.lang.ref.WeakReference;
+import java.sql.ResultSet;
+
+/**
+ * 保存每个线程最近一次使用的结果集和对应的映射计划，同一个结果集内不再读取元数据
+ * <p>
+ * mapper是按类共享的，计划按线程保存，并发的查询不会互相覆盖；
+ * 结果集使用弱引用，查询结束后mapper不会持有结果集以及它的Statement和Connection
+ *
+ * @author 陈佳志
+ */
+final class PlanHolder<P> {
+
+    private final ThreadLocal<Entry<P>> current = new ThreadLocal<>();
+
+    /**
+     * 结果集对应的计划，第一行或者结果集不同时返回null
+     */
+    P get(ResultSet rs, int rowNum) {
+        if (rowNum == 0) {
+            return null;
+        }
+        Entry<P> entry = current.get();
+        return entry != null && entry.resultSet.get() == rs ? entry.plan : null;
+    }
+
+    void set(ResultSet rs, P plan) {
+        current.set(new Entry<>(rs, plan));
+    }
+
+    private static final class Entry<P> {
+        private final WeakReference<ResultSet> resultSet;
+        private final P plan;
+
+        private Entry(ResultSet resultSet, P plan) {
+            this.resultSet = new WeakReference<>(resultSet);
+            this.plan = plan;
+        }
+    }
+}
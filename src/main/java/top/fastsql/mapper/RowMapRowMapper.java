@@ -0,0 +1,65 @@
+package top.fastsql.mapper;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.JdbcUtils;
+import top.fastsql.dto.RowMap;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 将每行映射为RowMap，同一个结果集的所有行共用一个列名表
+ * <p>
+ * 有状态，每次查询使用一个新的实例
+ *
+ * @author 陈佳志
+ */
+public class RowMapRowMapper implements RowMapper<RowMap> {
+
+    private ResultSet resultSet;
+
+    private RowMap.Schema schema;
+
+    /**
+     * 每一列对应的值下标，列名忽略大小写后重复时，后面的列覆盖前面的列名和值（与ColumnMapRowMapper相同）
+     */
+    private int[] slots;
+
+    @Override
+    public RowMap mapRow(ResultSet rs, int rowNum) throws SQLException {
+        if (rs != resultSet) {
+            init(rs.getMetaData());
+            resultSet = rs;
+        }
+        Object[] values = new Object[schema.size()];
+        for (int i = 0; i < slots.length; i++) {
+            values[slots[i]] = JdbcUtils.getResultSetValue(rs, i + 1);
+        }
+        return new RowMap(schema, values);
+    }
+
+    private void init(ResultSetMetaData metaData) throws SQLException {
+        int columnCount = metaData.getColumnCount();
+        Map<String, Integer> slotByName = new HashMap<>(columnCount * 2);
+        List<String> names = new ArrayList<>(columnCount);
+        slots = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            String name = JdbcUtils.lookupColumnName(metaData, i + 1);
+            Integer slot = slotByName.putIfAbsent(name.toLowerCase(Locale.ROOT), names.size());
+            if (slot == null) {
+                slots[i] = names.size();
+                names.add(name);
+            } else {
+                slots[i] = slot;
+                names.set(slot, name);
+            }
+        }
+        schema = new RowMap.Schema(names.toArray(new String[0]));
+    }
+}
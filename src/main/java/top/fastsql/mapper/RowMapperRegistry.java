@@ -0,0 +1,129 @@
+package top.fastsql.mapper;
+
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SingleColumnRowMapper;
+import top.fastsql.cache.LruCache;
+import top.fastsql.config.DataSourceType;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * RowMapper注册表，按 (返回类型, 数据库类型) 缓存RowMapper
+ * <p>
+ * 注册的自定义RowMapper优先于自动创建的RowMapper
+ *
+ * @author 陈佳志
+ */
+public class RowMapperRegistry {
+
+    /**
+     * 使用单列RowMapper的类型
+     */
+    private static final Set<Class<?>> SINGLE_COLUMN_TYPES = new HashSet<>(Arrays.asList(
+            String.class,
+            Integer.class, int.class, Long.class, long.class,
+            Short.class, short.class,
+            BigDecimal.class,
+            BigInteger.class,
+            Float.class, float.class, Double.class, double.class,
+            Boolean.class, boolean.class,
+            java.sql.Date.class, java.sql.Time.class, java.sql.Timestamp.class,
+            byte[].class, Blob.class, Clob.class));
+
+    private final Map<Class<?>, RowMapper<?>> customRowMappers = new ConcurrentHashMap<>();
+
+    private final LruCache<Key, RowMapper<?>> cache;
+
+    public RowMapperRegistry(int cacheLimit) {
+        this.cache = new LruCache<>(cacheLimit);
+    }
+
+    /**
+     * 注册自定义RowMapper，该类型的查询都会使用这个RowMapper
+     */
+    public <T> void register(Class<T> type, RowMapper<T> rowMapper) {
+        customRowMappers.put(type, rowMapper);
+    }
+
+    public void unregister(Class<?> type) {
+        customRowMappers.remove(type);
+    }
+
+    /**
+     * 获取返回类型对应的RowMapper，第一次获取时创建并缓存
+     */
+    @SuppressWarnings("unchecked")
+    public <T> RowMapper<T> getRowMapper(Class<T> type, DataSourceType dataSourceType) {
+        RowMapper<?> custom = customRowMappers.get(type);
+        if (custom != null) {
+            return (RowMapper<T>) custom;
+        }
+        return (RowMapper<T>) cache.computeIfAbsent(new Key(type, dataSourceType),
+                key -> createRowMapper(type, dataSourceType));
+    }
+
+    /**
+     * 根据返回类型创建RowMapper：简单类型使用单列RowMapper，Map使用ColumnMapRowMapper，其他使用FastBeanRowMapper
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> RowMapper<T> createRowMapper(Class<T> type, DataSourceType dataSourceType) {
+        if (SINGLE_COLUMN_TYPES.contains(type)) {
+            if (dataSourceType == DataSourceType.ORACLE) {
+                return new OraclePagingSingleColumnRowMapper<>(type);
+            }
+            return new SingleColumnRowMapper<>(type);
+        } else if (type.equals(Map.class)) {
+            return (RowMapper<T>) new ColumnMapRowMapper();
+        } else {
+            return FastBeanRowMapper.of(type);
+        }
+    }
+
+    /**
+     * 缓存，可获取命中/未命中次数
+     */
+    public LruCache<?, RowMapper<?>> getCache() {
+        return cache;
+    }
+
+    public void setCacheLimit(int cacheLimit) {
+        cache.setMaxSize(cacheLimit);
+    }
+
+    public int getCacheLimit() {
+        return cache.getMaxSize();
+    }
+
+    private static final class Key {
+        private final Class<?> type;
+        private final DataSourceType dataSourceType;
+
+        private Key(Class<?> type, DataSourceType dataSourceType) {
+            this.type = type;
+            this.dataSourceType = dataSourceType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return type.equals(key.type) && dataSourceType == key.dataSourceType;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + (dataSourceType == null ? 0 : dataSourceType.hashCode());
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package top.fastsql.reactive;
+
+/**
+ * 与org.reactivestreams.Publisher相同的接口
+ *
+ * @author 陈佳志
+ */
+public interface Publisher<T> {
+
+    void subscribe(Subscriber<? super T> subscriber);
+}
@@ -0,0 +1,208 @@
+package top.fastsql.reactive;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import top.fastsql.ResultIterator;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 查询结果的Publisher，每个订阅者单独执行一次查询
+ * <p>
+ * 在订阅者第一次request时打开游标，只读取请求数量的行；阻塞的JDBC操作都在指定的执行器中执行，
+ * 同一个订阅的读取不会并发。取消时立即调用Statement.cancel()并关闭游标。
+ * 执行器线程中没有调用方的Spring事务，会使用单独的连接
+ *
+ * @author 陈佳志
+ * @see top.fastsql.SQL#queryPublisher(org.springframework.jdbc.core.RowMapper)
+ */
+public class QueryPublisher<T> implements Publisher<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryPublisher.class);
+
+    private final Supplier<ResultIterator<T>> cursorOpener;
+
+    private final Executor executor;
+
+    /**
+     * @param cursorOpener 打开游标，在执行器线程中调用
+     * @param executor     执行JDBC读取的执行器，建议使用有界线程池
+     */
+    public QueryPublisher(Supplier<ResultIterator<T>> cursorOpener, Executor executor) {
+        this.cursorOpener = cursorOpener;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        QuerySubscription<T> subscription = new QuerySubscription<>(subscriber, cursorOpener, executor);
+        subscriber.onSubscribe(subscription);
+    }
+
+    private static final class QuerySubscription<T> implements Subscription {
+
+        private final Subscriber<? super T> subscriber;
+
+        private final Supplier<ResultIterator<T>> cursorOpener;
+
+        private final Executor executor;
+
+        private final AtomicLong requested = new AtomicLong();
+
+        /**
+         * 待处理的信号数，从0变为1的线程负责提交读取任务，保证同一时间只有一个读取任务
+         */
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private volatile boolean cancelled = false;
+
+        private volatile ResultIterator<T> cursor;
+
+        private Throwable invalidRequest;
+
+        /**
+         * 已经发送onComplete/onError或已取消，不再发送信号
+         */
+        private boolean done = false;
+
+        private QuerySubscription(Subscriber<? super T> subscriber, Supplier<ResultIterator<T>> cursorOpener,
+                                  Executor executor) {
+            this.subscriber = subscriber;
+            this.cursorOpener = cursorOpener;
+            this.executor = executor;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("request必须大于0：" + n);
+            } else {
+                long current;
+                do {
+                    current = requested.get();
+                    if (current == Long.MAX_VALUE) {
+                        break;
+                    }
+                } while (!requested.compareAndSet(current, current + n < 0 ? Long.MAX_VALUE : current + n));
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            ResultIterator<T> current = cursor;
+            if (current != null) {
+                current.cancel();
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                //执行器已满，放弃本次订阅
+                wip.set(0);
+                cancelled = true;
+                closeCursor();
+                if (!done) {
+                    done = true;
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            while (true) {
+                emit();
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private void emit() {
+            if (done) {
+                return;
+            }
+            if (cancelled) {
+                done = true;
+                closeCursor();
+                return;
+            }
+            if (invalidRequest != null) {
+                done = true;
+                closeCursor();
+                subscriber.onError(invalidRequest);
+                return;
+            }
+            try {
+                if (cursor == null) {
+                    cursor = cursorOpener.get();
+                    if (cancelled) {
+                        done = true;
+                        closeCursor();
+                        return;
+                    }
+                }
+                long emitted = 0;
+                long limit = requested.get();
+                while (true) {
+                    while (emitted != limit && !cancelled && cursor.hasNext()) {
+                        subscriber.onNext(cursor.next());
+                        emitted++;
+                    }
+                    if (cancelled) {
+                        done = true;
+                        closeCursor();
+                        return;
+                    }
+                    if (!cursor.hasNext()) {
+                        done = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+                    //期间可能有新的request
+                    if (limit != Long.MAX_VALUE) {
+                        limit = requested.addAndGet(-emitted);
+                    }
+                    emitted = 0;
+                    if (limit == 0) {
+                        return;
+                    }
+                }
+            } catch (Throwable e) {
+                done = true;
+                closeCursor();
+                if (cancelled) {
+                    logger.debug("已取消的查询抛出异常", e);
+                } else {
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        private void closeCursor() {
+            ResultIterator<T> current = cursor;
+            if (current != null) {
+                current.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package top.fastsql.reactive;
+
+/**
+ * 与org.reactivestreams.Subscriber相同的接口
+ *
+ * @author 陈佳志
+ */
+public interface Subscriber<T> {
+
+    void onSubscribe(Subscription subscription);
+
+    void onNext(T item);
+
+    void onError(Throwable throwable);
+
+    void onComplete();
+}
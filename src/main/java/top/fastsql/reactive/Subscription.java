@@ -0,0 +1,16 @@
+package top.fastsql.reactive;
+
+/**
+ * 与org.reactivestreams.Subscription相同的接口
+ *
+ * @author 陈佳志
+ */
+public interface Subscription {
+
+    /**
+     * 请求n个数据，n必须大于0
+     */
+    void request(long n);
+
+    void cancel();
+}
@@ -0,0 +1,4 @@
+/**
+ * 支持背压的异步查询，接口与Reactive Streams（org.reactivestreams）一致，可以直接适配到Reactor/RxJava
+ */
+package top.fastsql.reactive;
@@ -0,0 +1,85 @@
+package top.fastsql.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+
+/**
+ * 隐藏结果集中的一列，之后的列序号依次前移
+ * <p>
+ * 用于把附加的列（如分页总数）从RowMapper中隐藏，按列序号和元数据读取的映射器都看不到这一列
+ *
+ * @author 陈佳志
+ */
+final class ColumnHidingResultSet {
+
+    private ColumnHidingResultSet() {
+    }
+
+    /**
+     * @param hiddenColumn 要隐藏的列序号，从1开始
+     */
+    static ResultSet wrap(ResultSet resultSet, int hiddenColumn) {
+        ResultSetMetaData[] metaData = new ResultSetMetaData[1];
+        return proxy(ResultSet.class, resultSet, (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.equals("getMetaData")) {
+                if (metaData[0] == null) {
+                    metaData[0] = wrapMetaData(resultSet.getMetaData(), hiddenColumn);
+                }
+                return metaData[0];
+            }
+            if (name.equals("findColumn")) {
+                int column = resultSet.findColumn((String) args[0]);
+                return column > hiddenColumn ? column - 1 : column;
+            }
+            //只有get/update方法的第一个int参数是列序号，absolute(int)、setFetchSize(int)等不是
+            if ((name.startsWith("get") || name.startsWith("update")) && isColumnIndex(method)) {
+                args[0] = toRawColumn((Integer) args[0], hiddenColumn);
+            }
+            return invoke(method, resultSet, args);
+        });
+    }
+
+    private static ResultSetMetaData wrapMetaData(ResultSetMetaData metaData, int hiddenColumn) {
+        return proxy(ResultSetMetaData.class, metaData, (proxy, method, args) -> {
+            if (method.getName().equals("getColumnCount")) {
+                return metaData.getColumnCount() - 1;
+            }
+            if (isColumnIndex(method)) {
+                args[0] = toRawColumn((Integer) args[0], hiddenColumn);
+            }
+            return invoke(method, metaData, args);
+        });
+    }
+
+    private static boolean isColumnIndex(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        return types.length > 0 && types[0] == int.class;
+    }
+
+    private static int toRawColumn(int column, int hiddenColumn) {
+        return column >= hiddenColumn ? column + 1 : column;
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return invoke(method, target, args);
+            }
+            return handler.invoke(proxy, method, args);
+        });
+    }
+}
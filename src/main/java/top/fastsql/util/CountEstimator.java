@@ -0,0 +1,179 @@
+package top.fastsql.util;
+
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.select.SelectBody;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import top.fastsql.cache.LruCache;
+import top.fastsql.config.DataSourceType;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 估算查询结果行数，不执行count
+ * <p>
+ * 没有where、join、group by、distinct的单表查询使用表的统计信息：
+ * PostgreSQL读取pg_class.reltuples，MySQL读取information_schema.tables.table_rows，Oracle读取all_tables.num_rows；
+ * 其他查询使用执行计划中的估算行数：PostgreSQL为EXPLAIN (FORMAT JSON)中顶层节点的Plan Rows，
+ * MySQL为EXPLAIN第一行的rows * filtered / 100。Oracle的EXPLAIN PLAN需要写plan_table，不使用，此时返回null。
+ * <p>
+ * 统计信息可能过期，估算值只适合展示"约N条"，不能用于计算最后一页
+ *
+ * @author 陈佳志
+ */
+public class CountEstimator {
+
+    private static final Pattern PLAN_ROWS = Pattern.compile("\"Plan Rows\"\\s*:\\s*([0-9.eE+]+)");
+
+    /**
+     * 原sql到统计信息sql的缓存，不能使用统计信息的sql缓存为空字符串
+     */
+    private static final LruCache<String, String> STATISTICS_SQL_CACHE = new LruCache<>(256);
+
+    /**
+     * 单表查询时读取表统计信息的sql，结果只有一行一列；不是简单的单表查询时返回null
+     */
+    public static String getStatisticsSQL(String sql, DataSourceType dataSourceType) {
+        String key = dataSourceType + ":" + sql;
+        String statisticsSQL = STATISTICS_SQL_CACHE.computeIfAbsent(key, k -> {
+            Table table = getSingleTable(sql);
+            String result = table == null ? null : statisticsSQL(table, dataSourceType);
+            return result == null ? "" : result;
+        });
+        return statisticsSQL.isEmpty() ? null : statisticsSQL;
+    }
+
+    /**
+     * 获取执行计划的sql，参数与原sql相同；数据库不支持时返回null
+     */
+    public static String getExplainSQL(String sql, DataSourceType dataSourceType) {
+        if (Objects.equals(dataSourceType, DataSourceType.POSTGRESQL)) {
+            return "EXPLAIN (FORMAT JSON) " + sql;
+        } else if (Objects.equals(dataSourceType, DataSourceType.MY_SQL)) {
+            return "EXPLAIN " + sql;
+        }
+        return null;
+    }
+
+    /**
+     * 从执行计划结果中读取估算行数，读取不到时返回null
+     */
+    public static ResultSetExtractor<Long> explainExtractor(DataSourceType dataSourceType) {
+        if (Objects.equals(dataSourceType, DataSourceType.POSTGRESQL)) {
+            return rs -> {
+                StringBuilder plan = new StringBuilder();
+                while (rs.next()) {
+                    plan.append(rs.getString(1));
+                }
+                Matcher matcher = PLAN_ROWS.matcher(plan);
+                return matcher.find() ? (long) Double.parseDouble(matcher.group(1)) : null;
+            };
+        }
+        return rs -> {
+            if (!rs.next()) {
+                return null;
+            }
+            int rowsIndex = findColumn(rs, "rows");
+            if (rowsIndex < 0) {
+                return null;
+            }
+            double rows = rs.getDouble(rowsIndex);
+            if (rs.wasNull()) {
+                return null;
+            }
+            int filteredIndex = findColumn(rs, "filtered");
+            if (filteredIndex > 0) {
+                double filtered = rs.getDouble(filteredIndex);
+                if (!rs.wasNull()) {
+                    rows = rows * filtered / 100;
+                }
+            }
+            return Math.round(rows);
+        };
+    }
+
+    public static LruCache<String, String> getStatisticsSqlCache() {
+        return STATISTICS_SQL_CACHE;
+    }
+
+    private static int findColumn(ResultSet rs, String label) throws SQLException {
+        ResultSetMetaData metaData = rs.getMetaData();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            if (label.equalsIgnoreCase(metaData.getColumnLabel(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 没有where、join、group by、distinct、having、limit的单表查询，返回查询的表，否则返回null
+     */
+    private static Table getSingleTable(String sql) {
+        try {
+            Statement statement = CCJSqlParserUtil.parse(sql);
+            if (!(statement instanceof Select)) {
+                return null;
+            }
+            Select select = (Select) statement;
+            SelectBody body = select.getSelectBody();
+            if (select.getWithItemsList() != null || !(body instanceof PlainSelect)) {
+                return null;
+            }
+            PlainSelect plainSelect = (PlainSelect) body;
+            if (!(plainSelect.getFromItem() instanceof Table)
+                    || plainSelect.getWhere() != null
+                    || (plainSelect.getJoins() != null && !plainSelect.getJoins().isEmpty())
+                    || plainSelect.getGroupByColumnReferences() != null
+                    || plainSelect.getDistinct() != null
+                    || plainSelect.getHaving() != null
+                    || plainSelect.getLimit() != null) {
+                return null;
+            }
+            return (Table) plainSelect.getFromItem();
+        } catch (Throwable e) {
+            return null;
+        }
+    }
+
+    private static String statisticsSQL(Table table, DataSourceType dataSourceType) {
+        String schema = unquote(table.getSchemaName());
+        String name = unquote(table.getName());
+        if (Objects.equals(dataSourceType, DataSourceType.POSTGRESQL)) {
+            String qualified = schema == null ? table.getName() : table.getSchemaName() + "." + table.getName();
+            return "SELECT reltuples::bigint FROM pg_class WHERE oid = to_regclass(" + literal(qualified) + ")";
+        } else if (Objects.equals(dataSourceType, DataSourceType.MY_SQL)) {
+            return "SELECT table_rows FROM information_schema.tables WHERE table_schema = " +
+                    (schema == null ? "DATABASE()" : literal(schema)) + " AND table_name = " + literal(name);
+        } else if (Objects.equals(dataSourceType, DataSourceType.ORACLE)) {
+            //没有引号的标识符在Oracle中是大写的
+            String owner = schema == null ? "USER"
+                    : literal(isQuoted(table.getSchemaName()) ? schema : schema.toUpperCase(Locale.ROOT));
+            String tableName = isQuoted(table.getName()) ? name : name.toUpperCase(Locale.ROOT);
+            return "SELECT num_rows FROM all_tables WHERE owner = " + owner + " AND table_name = " + literal(tableName);
+        }
+        return null;
+    }
+
+    private static boolean isQuoted(String identifier) {
+        return identifier != null && identifier.length() > 1
+                && (identifier.startsWith("\"") || identifier.startsWith("`"));
+    }
+
+    private static String unquote(String identifier) {
+        return isQuoted(identifier) ? identifier.substring(1, identifier.length() - 1) : identifier;
+    }
+
+    private static String literal(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+}
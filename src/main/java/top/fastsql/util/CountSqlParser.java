@@ -26,6 +26,7 @@ package top.fastsql.util;
 
 import net.sf.jsqlparser.expression.Alias;
 import net.sf.jsqlparser.expression.Function;
+import net.sf.jsqlparser.expression.LongValue;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.statement.Statement;
@@ -94,6 +95,36 @@ public class CountSqlParser {
         return select.toString();
     }
 
+    /**
+     * 获取只用于统计行数的sql，查询列替换为常量1，行数不变
+     * 多表查询中重复的列名放在子查询中会报错，替换后可以作为子查询；
+     * 查询列会影响行数（distinct、group by、函数）或包含参数、有order by时返回原sql
+     *
+     * @param sql 原查询sql
+     * @return 查询列为常量的sql
+     */
+    public String getConstantSelectSql(String sql) {
+        Statement stmt;
+        try {
+            stmt = CCJSqlParserUtil.parse(sql);
+        } catch (Throwable e) {
+            return sql;
+        }
+        if (!(stmt instanceof Select) || !(((Select) stmt).getSelectBody() instanceof PlainSelect)) {
+            return sql;
+        }
+        PlainSelect plainSelect = (PlainSelect) ((Select) stmt).getSelectBody();
+        //order by和having可能引用查询列的别名
+        if (!isSimpleCount(plainSelect) || plainSelect.getOrderByElements() != null
+                || plainSelect.getHaving() != null) {
+            return sql;
+        }
+        List<SelectItem> constantItem = new ArrayList<SelectItem>();
+        constantItem.add(new SelectExpressionItem(new LongValue(1)));
+        plainSelect.setSelectItems(constantItem);
+        return stmt.toString();
+    }
+
     /**
      * 获取普通的Count-sql
      *
@@ -0,0 +1,126 @@
+package top.fastsql.util;
+
+import net.sf.jsqlparser.expression.Alias;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.*;
+import top.fastsql.cache.LruCache;
+import top.fastsql.config.DataSourceType;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 延迟关联分页：先只按主键分页，再关联回原表取完整的列
+ * <p>
+ * 深分页时LIMIT/OFFSET需要跳过前面的所有行，改写后跳过的只是主键（可以只扫描索引），
+ * 只有当前页的行才读取完整的列：
+ * <pre>
+ * SELECT * FROM student WHERE age &gt; ? ORDER BY name LIMIT 100000,20
+ * =&gt;
+ * SELECT student.* FROM student INNER JOIN ( SELECT student.id AS fastsql_pk FROM student WHERE age &gt; ?
+ *     ORDER BY name LIMIT 100000,20 ) fastsql_page ON student.id = fastsql_page.fastsql_pk ORDER BY name
+ * </pre>
+ * 只改写没有join、group by、distinct、having、limit、union的单表查询，
+ * 查询列或order by中有参数、order by使用别名或列序号时也不改写
+ *
+ * @author 陈佳志
+ * @see PageTemplate#deferredJoin(String)
+ */
+public class DeferredJoinParser {
+
+    private static final String[] NOT_APPLICABLE = new String[0];
+
+    /**
+     * 主键和原sql到改写模板（内层sql、外层前缀、外层后缀）的缓存
+     */
+    private static final LruCache<String, String[]> CACHE = new LruCache<>(256);
+
+    /**
+     * 改写后的分页sql，不能改写时返回null
+     *
+     * @param primaryKey 主键列名
+     */
+    public static String getRowsSQL(String sql, String primaryKey, int pageNumber, int perPageSize,
+                                    DataSourceType dataSourceType) {
+        String[] parts = CACHE.computeIfAbsent(primaryKey + ":" + sql, key -> parse(sql, primaryKey));
+        if (parts.length == 0) {
+            return null;
+        }
+        return parts[1] + PageUtils.getRowsSQL(parts[0], pageNumber, perPageSize, dataSourceType) + parts[2];
+    }
+
+    public static LruCache<String, String[]> getCache() {
+        return CACHE;
+    }
+
+    private static String[] parse(String sql, String primaryKey) {
+        PlainSelect plainSelect;
+        try {
+            Statement statement = CCJSqlParserUtil.parse(sql);
+            if (!(statement instanceof Select) || ((Select) statement).getWithItemsList() != null
+                    || !(((Select) statement).getSelectBody() instanceof PlainSelect)) {
+                return NOT_APPLICABLE;
+            }
+            plainSelect = (PlainSelect) ((Select) statement).getSelectBody();
+        } catch (Throwable e) {
+            return NOT_APPLICABLE;
+        }
+        if (!(plainSelect.getFromItem() instanceof Table)
+                || (plainSelect.getJoins() != null && !plainSelect.getJoins().isEmpty())
+                || plainSelect.getGroupByColumnReferences() != null
+                || plainSelect.getDistinct() != null
+                || plainSelect.getHaving() != null
+                || plainSelect.getLimit() != null
+                || plainSelect.getOffset() != null
+                || plainSelect.getTop() != null
+                || plainSelect.getIntoTables() != null
+                || plainSelect.isForUpdate()) {
+            return NOT_APPLICABLE;
+        }
+        Table table = (Table) plainSelect.getFromItem();
+        Alias alias = table.getAlias();
+        String qualifier = alias != null ? alias.getName() : table.getFullyQualifiedName();
+
+        StringBuilder selectItems = new StringBuilder();
+        Set<String> selectAliases = new HashSet<>();
+        for (SelectItem item : plainSelect.getSelectItems()) {
+            String text = item instanceof AllColumns ? qualifier + ".*" : item.toString();
+            if (item instanceof SelectExpressionItem && ((SelectExpressionItem) item).getAlias() != null) {
+                selectAliases.add(((SelectExpressionItem) item).getAlias().getName().toLowerCase(Locale.ROOT));
+            }
+            selectItems.append(selectItems.length() == 0 ? "" : ", ").append(text);
+        }
+        List<OrderByElement> orderBy = plainSelect.getOrderByElements();
+        String orderBySql = orderBy == null ? "" : PlainSelect.orderByToString(orderBy);
+        if (selectItems.indexOf("?") >= 0 || orderBySql.indexOf('?') >= 0) {
+            //参数会在内外层重复出现，无法对应按顺序的参数
+            return NOT_APPLICABLE;
+        }
+        if (orderBy != null) {
+            for (OrderByElement element : orderBy) {
+                if (!(element.getExpression() instanceof Column)) {
+                    //列序号、表达式在内层中的含义可能不同
+                    return NOT_APPLICABLE;
+                }
+                Column column = (Column) element.getExpression();
+                if (column.getTable() == null || column.getTable().getName() == null) {
+                    if (selectAliases.contains(column.getColumnName().toLowerCase(Locale.ROOT))) {
+                        return NOT_APPLICABLE;
+                    }
+                }
+            }
+        }
+
+        String key = qualifier + "." + primaryKey;
+        String inner = "SELECT " + key + " AS fastsql_pk FROM " + table +
+                (plainSelect.getWhere() == null ? "" : " WHERE " + plainSelect.getWhere()) + orderBySql;
+        String prefix = "SELECT " + selectItems + " FROM " + table + " INNER JOIN ( ";
+        String suffix = " ) fastsql_page ON " + key + " = fastsql_page.fastsql_pk" + orderBySql;
+        return new String[]{inner, prefix, suffix};
+    }
+}
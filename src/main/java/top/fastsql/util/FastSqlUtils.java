@@ -68,6 +68,50 @@ public class FastSqlUtils {
         return baseSQL;
     }
 
+    /**
+     * IN列表补齐后的长度：不小于size的最小的2的幂，且不超过maxSize
+     * eg. size=3 返回 4， size=5 返回 8
+     *
+     * @param size    列表长度
+     * @param maxSize 单个IN中最多的元素个数
+     */
+    public static int getInBucketSize(int size, int maxSize) {
+        int bucket = 1;
+        while (bucket < size) {
+            bucket <<= 1;
+        }
+        return Math.min(bucket, Math.max(maxSize, size));
+    }
+
+    /**
+     * 找到sql末尾操作数（如列名 t.id 或 lower(name)）的起始下标
+     *
+     * @return 起始下标，末尾没有操作数时返回-1
+     */
+    public static int lastOperandIndex(CharSequence sql) {
+        int end = sql.length();
+        while (end > 0 && Character.isWhitespace(sql.charAt(end - 1))) {
+            end--;
+        }
+        int i = end;
+        int depth = 0;
+        while (i > 0) {
+            char c = sql.charAt(i - 1);
+            if (c == ')') {
+                depth++;
+            } else if (c == '(') {
+                if (depth == 0) {
+                    break;
+                }
+                depth--;
+            } else if (depth == 0 && (Character.isWhitespace(c) || c == ',')) {
+                break;
+            }
+            i--;
+        }
+        return i == end ? -1 : i;
+    }
+
     private static void appendWithQuotes(StringBuilder builder, Object value) {
         builder.append(",'").append(value).append("'");
     }
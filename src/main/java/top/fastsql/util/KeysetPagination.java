@@ -0,0 +1,435 @@
+package top.fastsql.util;
+
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.AllColumns;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.select.SelectExpressionItem;
+import net.sf.jsqlparser.statement.select.SelectItem;
+import org.springframework.jdbc.support.JdbcUtils;
+import top.fastsql.cache.LruCache;
+import top.fastsql.config.DataSourceType;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * 游标（keyset）分页：按排序列的值定位下一页，不使用OFFSET，任意深度的页查询代价相同
+ * <p>
+ * 排序列使用查询结果中的列名（如 "create_time DESC", "id"），带表名前缀时只使用最后的列名；
+ * 排序列不能为null，最后一列应当唯一（通常是主键），否则相同值的行可能被跳过。
+ * 原sql去掉最外层order by后作为子查询，外层按排序列生成定位条件：
+ * 排序方向相同时MySQL和PostgreSQL使用行值比较 (a, b) &gt; (?, ?)，
+ * Oracle和混合排序方向时展开为 a &gt;= ? AND (a &gt; ? OR (a = ? AND b &gt; ?))
+ * <p>
+ * 原sql在子查询中，结果列名不能重复：多表查询使用 SELECT * 或有重复的列名时MySQL和Oracle会报错，
+ * 这种查询直接抛出IllegalArgumentException；使用 a.*, b.* 时需要保证各表的列名不重复，否则应列出查询列并使用别名
+ * <p>
+ * 上一页最后一行的排序列值编码为不透明的游标字符串，其中带有排序列的校验值，排序列不同时不能使用。
+ * 支持数字、字符串、布尔、UUID、java.sql时间类型和java.time的LocalDate/LocalTime/LocalDateTime/OffsetDateTime
+ *
+ * @author 陈佳志
+ * @see top.fastsql.SQL#queryCursorPage(String, int, Class, String...)
+ */
+public class KeysetPagination {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    /**
+     * 原sql到结果列检查错误的缓存，没有错误时为空字符串
+     */
+    private static final LruCache<String, String> COLUMN_CHECK_CACHE = new LruCache<>(256);
+
+    private final List<SortColumn> columns;
+
+    /**
+     * 排序列的校验值，写入游标
+     */
+    private final String fingerprint;
+
+    /**
+     * @param orderBy 排序列，如 "create_time DESC", "id ASC"，默认ASC
+     */
+    public KeysetPagination(String... orderBy) {
+        if (orderBy == null || orderBy.length == 0) {
+            throw new IllegalArgumentException("游标分页至少需要一个排序列");
+        }
+        List<SortColumn> list = new ArrayList<>(orderBy.length);
+        StringBuilder spec = new StringBuilder();
+        for (String item : orderBy) {
+            SortColumn column = SortColumn.parse(item);
+            list.add(column);
+            spec.append(column.name.toLowerCase(Locale.ROOT)).append(column.descending ? " desc," : " asc,");
+        }
+        this.columns = Collections.unmodifiableList(list);
+        this.fingerprint = Integer.toHexString(spec.toString().hashCode());
+    }
+
+    public List<SortColumn> getColumns() {
+        return columns;
+    }
+
+    /**
+     * 生成一页的sql
+     *
+     * @param cursorValues 上一页最后一行的排序列值，为null时查询第一页
+     * @param limit        最多返回的行数
+     * @param binder       绑定一个参数值，返回sql中的占位符；按占位符在sql中出现的顺序调用
+     */
+    public String getPageSQL(String sql, Object[] cursorValues, int limit, DataSourceType dataSourceType,
+                             Function<Object, String> binder) {
+        String error = COLUMN_CHECK_CACHE.computeIfAbsent(sql, KeysetPagination::checkResultColumns);
+        if (!error.isEmpty()) {
+            throw new IllegalArgumentException(error);
+        }
+        StringBuilder builder = new StringBuilder("SELECT * FROM ( ")
+                .append(OrderByParser.removeOrderBySql(sql))
+                .append(" ) fastsql_keyset");
+        if (cursorValues != null) {
+            if (cursorValues.length != columns.size()) {
+                throw new IllegalArgumentException("游标中的值数量与排序列不一致");
+            }
+            builder.append(" WHERE ");
+            if (columns.size() > 1 && isRowValueSupported(dataSourceType)) {
+                appendRowValuePredicate(builder, cursorValues, binder);
+            } else {
+                appendExpandedPredicate(builder, cursorValues, binder);
+            }
+        }
+        builder.append(" ORDER BY ");
+        for (int i = 0; i < columns.size(); i++) {
+            SortColumn column = columns.get(i);
+            builder.append(i == 0 ? "" : ", ").append(column.name).append(column.descending ? " DESC" : " ASC");
+        }
+        return PageUtils.getLimitSQL(builder.toString(), limit, dataSourceType);
+    }
+
+    /**
+     * 检查能够确定的重复结果列：多表查询中的 SELECT *，以及重复的列名或别名；无法解析时不检查
+     *
+     * @return 错误信息，没有错误时返回空字符串
+     */
+    private static String checkResultColumns(String sql) {
+        PlainSelect plainSelect;
+        try {
+            Statement statement = CCJSqlParserUtil.parse(sql);
+            if (!(statement instanceof Select) || !(((Select) statement).getSelectBody() instanceof PlainSelect)) {
+                return "";
+            }
+            plainSelect = (PlainSelect) ((Select) statement).getSelectBody();
+        } catch (Throwable e) {
+            return "";
+        }
+        boolean join = plainSelect.getJoins() != null && !plainSelect.getJoins().isEmpty();
+        Set<String> names = new HashSet<>();
+        for (SelectItem item : plainSelect.getSelectItems()) {
+            if (item instanceof AllColumns && join) {
+                return "游标分页的sql在子查询中，多表查询不能使用SELECT *，请列出查询列：" + sql;
+            }
+            if (!(item instanceof SelectExpressionItem)) {
+                continue;
+            }
+            SelectExpressionItem expressionItem = (SelectExpressionItem) item;
+            String name = null;
+            if (expressionItem.getAlias() != null) {
+                name = expressionItem.getAlias().getName();
+            } else if (expressionItem.getExpression() instanceof Column) {
+                name = ((Column) expressionItem.getExpression()).getColumnName();
+            }
+            if (name != null && !names.add(unquote(name).toLowerCase(Locale.ROOT))) {
+                return "游标分页的sql在子查询中，结果列名不能重复，请使用别名：" + name;
+            }
+        }
+        return "";
+    }
+
+    private static String unquote(String name) {
+        return name.length() > 1 && (name.startsWith("\"") || name.startsWith("`")) ?
+                name.substring(1, name.length() - 1) : name;
+    }
+
+    /**
+     * 排序方向相同且数据库支持行值比较
+     */
+    private boolean isRowValueSupported(DataSourceType dataSourceType) {
+        if (!Objects.equals(dataSourceType, DataSourceType.MY_SQL)
+                && !Objects.equals(dataSourceType, DataSourceType.POSTGRESQL)) {
+            return false;
+        }
+        for (SortColumn column : columns) {
+            if (column.descending != columns.get(0).descending) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void appendRowValuePredicate(StringBuilder builder, Object[] values, Function<Object, String> binder) {
+        StringBuilder placeholders = new StringBuilder();
+        builder.append('(');
+        for (int i = 0; i < columns.size(); i++) {
+            builder.append(i == 0 ? "" : ", ").append(columns.get(i).name);
+            placeholders.append(i == 0 ? "" : ", ").append(binder.apply(values[i]));
+        }
+        builder.append(columns.get(0).descending ? ") < (" : ") > (").append(placeholders).append(')');
+    }
+
+    /**
+     * a &gt;= ? AND (a &gt; ? OR (a = ? AND b &gt; ?) OR ...)，第一项让数据库可以使用第一列的索引范围扫描
+     */
+    private void appendExpandedPredicate(StringBuilder builder, Object[] values, Function<Object, String> binder) {
+        SortColumn first = columns.get(0);
+        if (columns.size() == 1) {
+            builder.append(first.name).append(first.descending ? " < " : " > ").append(binder.apply(values[0]));
+            return;
+        }
+        builder.append(first.name).append(first.descending ? " <= " : " >= ").append(binder.apply(values[0]))
+                .append(" AND (");
+        for (int i = 0; i < columns.size(); i++) {
+            builder.append(i == 0 ? "" : " OR ").append('(');
+            for (int j = 0; j < i; j++) {
+                builder.append(columns.get(j).name).append(" = ").append(binder.apply(values[j])).append(" AND ");
+            }
+            SortColumn column = columns.get(i);
+            builder.append(column.name).append(column.descending ? " < " : " > ").append(binder.apply(values[i]))
+                    .append(')');
+        }
+        builder.append(')');
+    }
+
+    /**
+     * 读取当前行的排序列值
+     */
+    public Object[] readSortValues(ResultSet rs) throws SQLException {
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = JdbcUtils.getResultSetValue(rs, rs.findColumn(columns.get(i).label));
+        }
+        return values;
+    }
+
+    //-------------------------------- 游标编码 --------------------------------
+
+    /**
+     * 把排序列值编码为游标：校验值|类型 长度:值...，再做URL安全的Base64
+     */
+    public String encodeCursor(Object[] values) {
+        StringBuilder builder = new StringBuilder(fingerprint).append('|');
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value == null) {
+                throw new IllegalStateException("游标分页的排序列不能为null：" + columns.get(i).name);
+            }
+            char type;
+            String text;
+            if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                type = 'i';
+                text = value.toString();
+            } else if (value instanceof Long) {
+                type = 'l';
+                text = value.toString();
+            } else if (value instanceof BigDecimal) {
+                type = 'b';
+                text = ((BigDecimal) value).toPlainString();
+            } else if (value instanceof BigInteger) {
+                type = 'g';
+                text = value.toString();
+            } else if (value instanceof Double || value instanceof Float) {
+                type = 'd';
+                text = value.toString();
+            } else if (value instanceof String) {
+                type = 's';
+                text = (String) value;
+            } else if (value instanceof Timestamp) {
+                type = 't';
+                text = ((Timestamp) value).getTime() + "." + ((Timestamp) value).getNanos();
+            } else if (value instanceof java.sql.Date) {
+                type = 'D';
+                text = value.toString();
+            } else if (value instanceof Time) {
+                type = 'T';
+                text = value.toString();
+            } else if (value instanceof java.util.Date) {
+                type = 'u';
+                text = String.valueOf(((java.util.Date) value).getTime());
+            } else if (value instanceof Boolean) {
+                type = 'z';
+                text = value.toString();
+            } else if (value instanceof UUID) {
+                type = 'x';
+                text = value.toString();
+            } else if (value instanceof LocalDateTime) {
+                type = 'e';
+                text = value.toString();
+            } else if (value instanceof LocalDate) {
+                type = 'a';
+                text = value.toString();
+            } else if (value instanceof LocalTime) {
+                type = 'h';
+                text = value.toString();
+            } else if (value instanceof OffsetDateTime) {
+                type = 'o';
+                text = value.toString();
+            } else {
+                throw new IllegalStateException("游标分页不支持的排序列类型：" + value.getClass().getName());
+            }
+            builder.append(type).append(text.length()).append(':').append(text);
+        }
+        return ENCODER.encodeToString(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码游标，cursor为null或空字符串时返回null（第一页）
+     *
+     * @throws IllegalArgumentException 游标格式错误或与排序列不匹配
+     */
+    public Object[] decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        String text;
+        try {
+            text = new String(DECODER.decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的游标：" + cursor, e);
+        }
+        int separator = text.indexOf('|');
+        if (separator < 0 || !fingerprint.equals(text.substring(0, separator))) {
+            throw new IllegalArgumentException("游标与排序列不匹配：" + cursor);
+        }
+        Object[] values = new Object[columns.size()];
+        int position = separator + 1;
+        try {
+            for (int i = 0; i < values.length; i++) {
+                char type = text.charAt(position);
+                int colon = text.indexOf(':', position);
+                int length = Integer.parseInt(text.substring(position + 1, colon));
+                String value = text.substring(colon + 1, colon + 1 + length);
+                values[i] = decodeValue(type, value);
+                position = colon + 1 + length;
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("无效的游标：" + cursor, e);
+        }
+        if (position != text.length()) {
+            throw new IllegalArgumentException("无效的游标：" + cursor);
+        }
+        return values;
+    }
+
+    private static Object decodeValue(char type, String value) {
+        switch (type) {
+            case 'i':
+                return Integer.valueOf(value);
+            case 'l':
+                return Long.valueOf(value);
+            case 'b':
+                return new BigDecimal(value);
+            case 'g':
+                return new BigInteger(value);
+            case 'd':
+                return Double.valueOf(value);
+            case 's':
+                return value;
+            case 't':
+                int dot = value.indexOf('.');
+                Timestamp timestamp = new Timestamp(Long.parseLong(value.substring(0, dot)));
+                timestamp.setNanos(Integer.parseInt(value.substring(dot + 1)));
+                return timestamp;
+            case 'D':
+                return java.sql.Date.valueOf(value);
+            case 'T':
+                return Time.valueOf(value);
+            case 'u':
+                return new java.util.Date(Long.parseLong(value));
+            case 'z':
+                return Boolean.valueOf(value);
+            case 'x':
+                return UUID.fromString(value);
+            case 'e':
+                return LocalDateTime.parse(value);
+            case 'a':
+                return LocalDate.parse(value);
+            case 'h':
+                return LocalTime.parse(value);
+            case 'o':
+                return OffsetDateTime.parse(value);
+            default:
+                throw new IllegalArgumentException("未知的类型：" + type);
+        }
+    }
+
+    /**
+     * 一个排序列
+     */
+    public static final class SortColumn {
+
+        /**
+         * 外层查询中使用的列名
+         */
+        private final String name;
+
+        /**
+         * 从结果集读取时的列名，去掉引号
+         */
+        private final String label;
+
+        private final boolean descending;
+
+        private SortColumn(String name, boolean descending) {
+            this.name = name;
+            this.descending = descending;
+            this.label = name.length() > 1 && (name.startsWith("\"") || name.startsWith("`")) ?
+                    name.substring(1, name.length() - 1) : name;
+        }
+
+        private static SortColumn parse(String item) {
+            String[] parts = item.trim().split("\\s+");
+            if (parts.length == 0 || parts[0].isEmpty() || parts.length > 2) {
+                throw new IllegalArgumentException("无效的排序列：" + item);
+            }
+            boolean descending = false;
+            if (parts.length == 2) {
+                if ("DESC".equalsIgnoreCase(parts[1])) {
+                    descending = true;
+                } else if (!"ASC".equalsIgnoreCase(parts[1])) {
+                    throw new IllegalArgumentException("无效的排序方向：" + item);
+                }
+            }
+            //子查询外只能使用结果列名，去掉表名前缀
+            String name = parts[0].substring(parts[0].lastIndexOf('.') + 1);
+            return new SortColumn(name, descending);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isDescending() {
+            return descending;
+        }
+    }
+}
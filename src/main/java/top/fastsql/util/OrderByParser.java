@@ -27,6 +27,7 @@ package top.fastsql.util;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.statement.Statement;
 import net.sf.jsqlparser.statement.select.*;
+import top.fastsql.cache.LruCache;
 
 import java.util.List;
 
@@ -37,6 +38,9 @@ import java.util.List;
  * @since 2015-06-27
  */
 public class OrderByParser {
+
+    private static final LruCache<String, String> ORDER_BY_CACHE = new LruCache<>(256);
+
     /**
      * convert to order by sql
      *
@@ -45,6 +49,25 @@ public class OrderByParser {
      * @return
      */
     public static String converToOrderBySql(String sql, String orderBy) {
+        //去掉原order by的sql只与原sql有关，按原sql缓存
+        return removeOrderBySql(sql) + " order by " + orderBy;
+    }
+
+    /**
+     * 去掉最外层的order by，无法解析时返回原sql
+     */
+    public static String removeOrderBySql(String sql) {
+        return ORDER_BY_CACHE.computeIfAbsent(sql, OrderByParser::removeOrderBy);
+    }
+
+    /**
+     * 原sql到去掉最外层order by的sql的缓存，默认最多256条，setMaxSize(0)关闭缓存
+     */
+    public static LruCache<String, String> getCache() {
+        return ORDER_BY_CACHE;
+    }
+
+    private static String removeOrderBy(String sql) {
         //解析SQL
         Statement stmt = null;
         try {
@@ -62,7 +85,7 @@ public class OrderByParser {
         } catch (Throwable e) {
             e.printStackTrace();
         }
-        return sql + " order by " + orderBy;
+        return sql;
     }
 
     /**
@@ -1,13 +1,42 @@
 package top.fastsql.util;
 
-import org.springframework.jdbc.core.RowMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.jdbc.core.*;
+import org.springframework.jdbc.core.namedparam.EmptySqlParameterSource;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import top.fastsql.cache.CachingNamedParameterJdbcTemplate;
+import top.fastsql.cache.CountCache;
+import top.fastsql.config.CountMode;
 import top.fastsql.config.DataSourceType;
+import top.fastsql.dto.CursorPage;
 import top.fastsql.dto.ResultPage;
+import top.fastsql.dto.Slice;
+import top.fastsql.exception.FastSQLException;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * @author 陈佳志
@@ -15,12 +44,111 @@ import java.util.List;
  */
 public class PageTemplate {
 
+    private static final Logger logger = LoggerFactory.getLogger(PageTemplate.class);
+
+    /**
+     * 游标分页定位条件的参数名前缀
+     */
+    private static final String KEYSET_PARAM_PREFIX = "fastsqlK";
+
     private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
 
+    /**
+     * 并发执行数量查询的执行器，为null时依次执行
+     */
+    private Executor executor;
+
+    /**
+     * 查询完当前页后等待数量查询的时间
+     */
+    private long timeoutMillis = 30000;
+
+    private CountMode countMode = CountMode.EXACT;
+
+    /**
+     * CAPPED模式下最多统计的数量
+     */
+    private int countCap = 1000;
+
+    private CountCache countCache;
+
+    private long countCacheTtlMillis = 60000;
+
+    /**
+     * 延迟关联分页使用的主键列，为null时不改写
+     */
+    private String deferredJoinKey;
+
     public PageTemplate(NamedParameterJdbcTemplate template) {
         this.namedParameterJdbcTemplate = template;
     }
 
+    /**
+     * 开启并发分页：数量查询在executor中使用单独的连接执行，同时在当前线程查询当前页。
+     * 任一查询失败时取消另一个；当前线程有Spring事务时仍然依次执行，保证两个查询在同一个事务中
+     *
+     * @param timeoutMillis 查询完当前页后等待数量查询的毫秒数，超时时取消数量查询并抛出QueryTimeoutException
+     */
+    public PageTemplate concurrent(Executor executor, long timeoutMillis) {
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+        return this;
+    }
+
+    /**
+     * 单表查询分页时先按主键分页再关联回原表，深分页时只跳过主键；不能改写的查询按原方式分页
+     *
+     * @param primaryKey 主键列名
+     * @see DeferredJoinParser
+     */
+    public PageTemplate deferredJoin(String primaryKey) {
+        this.deferredJoinKey = primaryKey;
+        return this;
+    }
+
+    /**
+     * 总数只统计到cap，超过时总数为cap，ResultPage的totalType为CAPPED
+     */
+    public PageTemplate countCapped(int cap) {
+        if (cap <= 0) {
+            throw new IllegalArgumentException("cap必须大于0：" + cap);
+        }
+        this.countMode = CountMode.CAPPED;
+        this.countCap = cap;
+        return this;
+    }
+
+    /**
+     * 按count sql和参数缓存总数，ttlMillis内相同的查询只查询当前页，ResultPage的totalType为CACHED
+     */
+    public PageTemplate countCached(CountCache countCache, long ttlMillis) {
+        this.countMode = CountMode.CACHED;
+        this.countCache = countCache;
+        this.countCacheTtlMillis = ttlMillis;
+        return this;
+    }
+
+    /**
+     * 当前页的查询中加入 COUNT(*) OVER()，一次查询同时得到当前页和总数；设置了延迟关联时不使用
+     *
+     * @see WindowCountParser
+     */
+    public PageTemplate countWindow() {
+        this.countMode = CountMode.WINDOW;
+        return this;
+    }
+
+    /**
+     * 使用统计信息或执行计划估算总数，ResultPage的totalType为ESTIMATED；无法估算时执行count查询。
+     * PostgreSQL中语句出错会中止整个事务，当前线程有Spring事务时不估算，直接执行count查询
+     *
+     * @see CountEstimator
+     */
+    public PageTemplate countEstimated() {
+        this.countMode = CountMode.ESTIMATED;
+        return this;
+    }
+
 
     public <T> ResultPage<T> queryPage(String sql, int page, int perPage, SqlParameterSource paramSource,
                                        RowMapper<T> rowMapper, DataSourceType dataSourceType) {
@@ -30,20 +158,7 @@ public class PageTemplate {
             return new ResultPage<>(list,list.size());
 
         }
-        if (perPage <= 0) {
-            //查询数量
-            String numberSQL = PageUtils.getSmartCountSQL(sql);
-            Integer number = namedParameterJdbcTemplate.queryForObject(numberSQL, paramSource, Integer.class);
-            return new ResultPage<>(new ArrayList<>(),number);
-
-        }
-        String rowsSQL = PageUtils.getRowsSQL(sql, page, perPage, dataSourceType);
-        List<T> list = namedParameterJdbcTemplate.query(rowsSQL, paramSource, rowMapper);
-
-        //查询数量
-        String numberSQL = PageUtils.getSmartCountSQL(sql);
-        Integer number = namedParameterJdbcTemplate.queryForObject(numberSQL, paramSource, Integer.class);
-        return new ResultPage<>(list, number);
+        return queryPage(sql, page, perPage, new NamedBinding(paramSource), rowMapper, dataSourceType);
     }
 
 
@@ -55,20 +170,498 @@ public class PageTemplate {
             return new ResultPage<>(list,list.size());
 
         }
+        return queryPage(sql, page, perPage, new ArgsBinding(objects), rowMapper, dataSourceType);
+    }
+
+    /**
+     * 查询第page页，多取一行判断是否有下一页，不查询数量
+     */
+    public <T> Slice<T> querySlice(String sql, int page, int perPage, SqlParameterSource paramSource,
+                                   RowMapper<T> rowMapper, DataSourceType dataSourceType) {
+        return querySlice(sql, page, perPage, new NamedBinding(paramSource), rowMapper, dataSourceType);
+    }
+
+    public <T> Slice<T> querySlice(String sql, int page, int perPage, Object[] objects,
+                                   RowMapper<T> rowMapper, DataSourceType dataSourceType) {
+        return querySlice(sql, page, perPage, new ArgsBinding(objects), rowMapper, dataSourceType);
+    }
+
+    private <T> Slice<T> querySlice(String sql, int page, int perPage, Binding binding,
+                                    RowMapper<T> rowMapper, DataSourceType dataSourceType) {
+        if (page <= 0 || perPage <= 0) {
+            throw new IllegalArgumentException("page和perPage必须大于0：" + page + ", " + perPage);
+        }
+        List<T> list = binding.query(PageUtils.getSliceSQL(sql, page, perPage, dataSourceType), rowMapper);
+        boolean hasNext = list.size() > perPage;
+        if (hasNext) {
+            list = new ArrayList<>(list.subList(0, perPage));
+        }
+        return new Slice<>(list, page, perPage, hasNext);
+    }
+
+    /**
+     * 游标分页，多取一行判断是否有下一页
+     *
+     * @param cursor 上一页返回的游标，为null时查询第一页
+     */
+    public <T> CursorPage<T> queryCursorPage(String sql, KeysetPagination keyset, String cursor, int perPage,
+                                             SqlParameterSource paramSource, RowMapper<T> rowMapper,
+                                             DataSourceType dataSourceType) {
+        MapSqlParameterSource keysetParams = new MapSqlParameterSource();
+        String pageSQL = keyset.getPageSQL(sql, keyset.decodeCursor(cursor), perPage + 1, dataSourceType, value -> {
+            String name = KEYSET_PARAM_PREFIX + keysetParams.getValues().size();
+            keysetParams.addValue(name, value);
+            return ":" + name;
+        });
+        return queryCursorPage(pageSQL, keyset, perPage, new NamedBinding(new KeysetParameterSource(paramSource,
+                keysetParams)), rowMapper);
+    }
+
+    public <T> CursorPage<T> queryCursorPage(String sql, KeysetPagination keyset, String cursor, int perPage,
+                                             Object[] objects, RowMapper<T> rowMapper,
+                                             DataSourceType dataSourceType) {
+        List<Object> args = objects == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(objects));
+        String pageSQL = keyset.getPageSQL(sql, keyset.decodeCursor(cursor), perPage + 1, dataSourceType, value -> {
+            args.add(value);
+            return "?";
+        });
+        return queryCursorPage(pageSQL, keyset, perPage, new ArgsBinding(args.toArray()), rowMapper);
+    }
+
+    private <T> CursorPage<T> queryCursorPage(String pageSQL, KeysetPagination keyset, int perPage, Binding binding,
+                                              RowMapper<T> rowMapper) {
         if (perPage <= 0) {
-            //查询数量
-            String numberSQL = PageUtils.getSmartCountSQL(sql);
-            Integer number = namedParameterJdbcTemplate.getJdbcOperations().queryForObject(numberSQL, objects, Integer.class);
-            return new ResultPage<>(new ArrayList<>(),number);
+            throw new IllegalArgumentException("perPage必须大于0：" + perPage);
+        }
+        Object[][] lastValues = new Object[1][];
+        List<T> list = binding.query(pageSQL, (rs, rowNum) -> {
+            if (rowNum == perPage - 1) {
+                lastValues[0] = keyset.readSortValues(rs);
+            }
+            return rowMapper.mapRow(rs, rowNum);
+        });
+        if (list.size() <= perPage) {
+            return new CursorPage<>(list, null);
+        }
+        return new CursorPage<>(new ArrayList<>(list.subList(0, perPage)), keyset.encodeCursor(lastValues[0]));
+    }
 
+    /**
+     * perPage &lt;= 0 时只查询数量
+     */
+    private <T> ResultPage<T> queryPage(String sql, int page, int perPage, Binding binding,
+                                        RowMapper<T> rowMapper, DataSourceType dataSourceType) {
+        String rowsSQL = perPage <= 0 ? null : getRowsSQL(sql, page, perPage, dataSourceType);
+        switch (countMode) {
+            case ESTIMATED: {
+                Long estimate = estimate(sql, binding, dataSourceType);
+                if (estimate == null) {
+                    break;
+                }
+                List<T> list = rowsSQL == null ? new ArrayList<>() : binding.query(rowsSQL, rowMapper);
+                return new ResultPage<>(list, estimate, ResultPage.TotalType.ESTIMATED);
+            }
+            case CACHED: {
+                String numberSQL = PageUtils.getSmartCountSQL(sql);
+                String key = binding.cacheKey(numberSQL);
+                Long cached = countCache.get(key);
+                if (cached != null) {
+                    List<T> list = rowsSQL == null ? new ArrayList<>() : binding.query(rowsSQL, rowMapper);
+                    return new ResultPage<>(list, cached, ResultPage.TotalType.CACHED);
+                }
+                ResultPage<T> resultPage = queryWithCount(rowsSQL, numberSQL, binding, rowMapper);
+                countCache.put(key, resultPage.getTotalElements(), countCacheTtlMillis);
+                return resultPage;
+            }
+            case WINDOW: {
+                String windowSQL = rowsSQL == null || deferredJoinKey != null ? null :
+                        WindowCountParser.getWindowCountSQL(sql, dataSourceType);
+                if (windowSQL == null) {
+                    break;
+                }
+                ResultPage<T> resultPage = queryWithWindowCount(
+                        PageUtils.getRowsSQL(windowSQL, page, perPage, dataSourceType), binding, rowMapper);
+                if (resultPage.getContent().isEmpty()) {
+                    //页码超出范围或没有数据，无法从行中得到总数
+                    resultPage.setTotalElements(binding.count(PageUtils.getSmartCountSQL(sql)));
+                }
+                return resultPage;
+            }
+            case CAPPED: {
+                String numberSQL = PageUtils.getCappedCountSQL(sql, countCap + 1, dataSourceType);
+                ResultPage<T> resultPage = queryWithCount(rowsSQL, numberSQL, binding, rowMapper);
+                if (resultPage.getTotalElements() > countCap) {
+                    resultPage.setTotalElements(countCap);
+                    resultPage.setTotalType(ResultPage.TotalType.CAPPED);
+                }
+                return resultPage;
+            }
+            default:
+                break;
         }
+        return queryWithCount(rowsSQL, PageUtils.getSmartCountSQL(sql), binding, rowMapper);
+    }
 
-        String rowsSQL = PageUtils.getRowsSQL(sql, page, perPage, dataSourceType);
-        List<T> list = namedParameterJdbcTemplate.getJdbcOperations().query(rowsSQL, objects, rowMapper);
+    private String getRowsSQL(String sql, int page, int perPage, DataSourceType dataSourceType) {
+        if (deferredJoinKey != null) {
+            String rowsSQL = DeferredJoinParser.getRowsSQL(sql, deferredJoinKey, page, perPage, dataSourceType);
+            if (rowsSQL != null) {
+                return rowsSQL;
+            }
+        }
+        return PageUtils.getRowsSQL(sql, page, perPage, dataSourceType);
+    }
+
+    /**
+     * 从第一行读取总数列，映射时隐藏总数列
+     */
+    private <T> ResultPage<T> queryWithWindowCount(String rowsSQL, Binding binding, RowMapper<T> rowMapper) {
+        long[] total = {0};
+        ResultSet[] wrapped = new ResultSet[1];
+        List<T> list = binding.query(rowsSQL, (rs, rowNum) -> {
+            if (wrapped[0] == null) {
+                int totalColumn = rs.findColumn(WindowCountParser.TOTAL_COLUMN);
+                total[0] = rs.getLong(totalColumn);
+                wrapped[0] = ColumnHidingResultSet.wrap(rs, totalColumn);
+            }
+            return rowMapper.mapRow(wrapped[0], rowNum);
+        });
+        return new ResultPage<>(list, total[0]);
+    }
+
+    private <T> ResultPage<T> queryWithCount(String rowsSQL, String numberSQL, Binding binding,
+                                             RowMapper<T> rowMapper) {
+        if (rowsSQL == null) {
+            //查询数量
+            return new ResultPage<>(new ArrayList<>(), binding.count(numberSQL));
+        }
+        if (isConcurrent()) {
+            return queryConcurrently(binding.statement(rowsSQL), binding.statement(numberSQL), rowMapper);
+        }
+        List<T> list = binding.query(rowsSQL, rowMapper);
 
         //查询数量
-        String numberSQL = PageUtils.getSmartCountSQL(sql);
-        Integer number = namedParameterJdbcTemplate.getJdbcOperations().queryForObject(numberSQL, objects, Integer.class);
+        Integer number = binding.count(numberSQL);
         return new ResultPage<>(list, number);
     }
+
+    //-------------------------------- 数量估算 --------------------------------
+
+    /**
+     * 先尝试表的统计信息，再尝试执行计划；无法估算或估算失败时返回null
+     */
+    private Long estimate(String sql, Binding binding, DataSourceType dataSourceType) {
+        if (Objects.equals(dataSourceType, DataSourceType.POSTGRESQL)
+                && TransactionSynchronizationManager.isSynchronizationActive()) {
+            //估算失败后事务已中止，之后的count查询也会失败
+            return null;
+        }
+        try {
+            String statisticsSQL = CountEstimator.getStatisticsSQL(sql, dataSourceType);
+            if (statisticsSQL != null) {
+                Long rows = namedParameterJdbcTemplate.getJdbcOperations().query(statisticsSQL, new Object[0],
+                        (ResultSet rs) -> rs.next() && rs.getObject(1) != null ? rs.getLong(1) : null);
+                //从未analyze的表统计值为0或-1
+                if (rows != null && rows > 0) {
+                    return rows;
+                }
+            }
+            String explainSQL = CountEstimator.getExplainSQL(sql, dataSourceType);
+            if (explainSQL != null) {
+                Long rows = binding.extract(explainSQL, CountEstimator.explainExtractor(dataSourceType));
+                if (rows != null && rows >= 0) {
+                    return rows;
+                }
+            }
+        } catch (DataAccessException e) {
+            logger.debug("估算数量失败，执行count查询", e);
+        }
+        return null;
+    }
+
+    //-------------------------------- 并发分页 --------------------------------
+
+    private boolean isConcurrent() {
+        return executor != null && !TransactionSynchronizationManager.isSynchronizationActive();
+    }
+
+    private <T> ResultPage<T> queryConcurrently(CancellableStatement rowsStatement, CancellableStatement countStatement,
+                                                RowMapper<T> rowMapper) {
+        JdbcOperations jdbcOperations = namedParameterJdbcTemplate.getJdbcOperations();
+        CompletableFuture<Integer> countFuture;
+        try {
+            countFuture = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return DataAccessUtils.requiredSingleResult(
+                            jdbcOperations.query(countStatement, new SingleColumnRowMapper<>(Integer.class)));
+                } finally {
+                    countStatement.finish();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            logger.debug("执行器已满，依次执行分页查询", e);
+            List<T> list = jdbcOperations.query(rowsStatement, rowMapper);
+            Integer number = DataAccessUtils.requiredSingleResult(
+                    jdbcOperations.query(countStatement, new SingleColumnRowMapper<>(Integer.class)));
+            return new ResultPage<>(list, number);
+        }
+        countFuture.whenComplete((number, e) -> {
+            if (e != null) {
+                rowsStatement.cancel();
+            }
+        });
+
+        List<T> list;
+        try {
+            list = jdbcOperations.query(rowsStatement, rowMapper);
+            rowsStatement.finish();
+        } catch (RuntimeException | Error e) {
+            rowsStatement.finish();
+            countStatement.cancel();
+            countFuture.cancel(true);
+            //当前页是因为数量查询失败被取消的，抛出数量查询的异常
+            if (countFuture.isCompletedExceptionally() && !countFuture.isCancelled()) {
+                throw unwrap(countFuture);
+            }
+            throw e;
+        }
+
+        try {
+            return new ResultPage<>(list, countFuture.get(timeoutMillis, TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            countStatement.cancel();
+            countFuture.cancel(true);
+            throw new QueryTimeoutException("分页数量查询超过" + timeoutMillis + "ms：" + countStatement.sql, e);
+        } catch (ExecutionException e) {
+            throw unwrap(countFuture);
+        } catch (InterruptedException e) {
+            countStatement.cancel();
+            countFuture.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new FastSQLException("分页数量查询被中断", e);
+        }
+    }
+
+    private static RuntimeException unwrap(CompletableFuture<?> future) {
+        try {
+            future.join();
+            return new IllegalStateException("数量查询没有失败");
+        } catch (RuntimeException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return cause instanceof RuntimeException ? (RuntimeException) cause
+                    : new FastSQLException("分页数量查询失败", cause);
+        }
+    }
+
+    private CancellableStatement namedStatement(String sql, SqlParameterSource paramSource) {
+        ParsedSql parsedSql = parse(sql);
+        String sqlToUse = NamedParameterUtils.substituteNamedParameters(parsedSql, paramSource);
+        Object[] params = NamedParameterUtils.buildValueArray(parsedSql, paramSource, null);
+        List<SqlParameter> declaredParameters = NamedParameterUtils.buildSqlParameterList(parsedSql, paramSource);
+        return new CancellableStatement(sqlToUse,
+                new PreparedStatementCreatorFactory(sqlToUse, declaredParameters).newPreparedStatementSetter(params));
+    }
+
+    private ParsedSql parse(String sql) {
+        return namedParameterJdbcTemplate instanceof CachingNamedParameterJdbcTemplate ?
+                ((CachingNamedParameterJdbcTemplate) namedParameterJdbcTemplate).parse(sql) :
+                NamedParameterUtils.parseSqlStatement(sql);
+    }
+
+    /**
+     * 命名参数和按顺序的参数两种查询方式
+     */
+    private abstract class Binding {
+
+        abstract <T> List<T> query(String sql, RowMapper<T> rowMapper);
+
+        abstract <R> R extract(String sql, ResultSetExtractor<R> extractor);
+
+        abstract Integer count(String sql);
+
+        abstract CancellableStatement statement(String sql);
+
+        /**
+         * 缓存count结果的key：sql和参数值
+         */
+        abstract String cacheKey(String sql);
+
+        String cacheKey(String sql, Object[] values) {
+            Object[] keyValues = new Object[values.length];
+            for (int i = 0; i < values.length; i++) {
+                keyValues[i] = values[i] instanceof SqlParameterValue ?
+                        ((SqlParameterValue) values[i]).getValue() : values[i];
+            }
+            return sql + Arrays.deepToString(keyValues);
+        }
+    }
+
+    private final class NamedBinding extends Binding {
+
+        private final SqlParameterSource paramSource;
+
+        private NamedBinding(SqlParameterSource paramSource) {
+            this.paramSource = paramSource;
+        }
+
+        @Override
+        <T> List<T> query(String sql, RowMapper<T> rowMapper) {
+            return namedParameterJdbcTemplate.query(sql, paramSource, rowMapper);
+        }
+
+        @Override
+        <R> R extract(String sql, ResultSetExtractor<R> extractor) {
+            return namedParameterJdbcTemplate.query(sql, paramSource, extractor);
+        }
+
+        @Override
+        Integer count(String sql) {
+            return namedParameterJdbcTemplate.queryForObject(sql, paramSource, Integer.class);
+        }
+
+        @Override
+        CancellableStatement statement(String sql) {
+            return namedStatement(sql, paramSource);
+        }
+
+        @Override
+        String cacheKey(String sql) {
+            return cacheKey(sql, NamedParameterUtils.buildValueArray(parse(sql), paramSource, null));
+        }
+    }
+
+    private final class ArgsBinding extends Binding {
+
+        private final Object[] args;
+
+        private ArgsBinding(Object[] args) {
+            this.args = args;
+        }
+
+        @Override
+        <T> List<T> query(String sql, RowMapper<T> rowMapper) {
+            return namedParameterJdbcTemplate.getJdbcOperations().query(sql, args, rowMapper);
+        }
+
+        @Override
+        <R> R extract(String sql, ResultSetExtractor<R> extractor) {
+            return namedParameterJdbcTemplate.getJdbcOperations().query(sql, args, extractor);
+        }
+
+        @Override
+        Integer count(String sql) {
+            return namedParameterJdbcTemplate.getJdbcOperations().queryForObject(sql, args, Integer.class);
+        }
+
+        @Override
+        CancellableStatement statement(String sql) {
+            return new CancellableStatement(sql, new ArgumentPreparedStatementSetter(args));
+        }
+
+        @Override
+        String cacheKey(String sql) {
+            return cacheKey(sql, args == null ? new Object[0] : args);
+        }
+    }
+
+    /**
+     * 先查找游标分页的定位参数，再查找原来的参数
+     */
+    private static final class KeysetParameterSource implements SqlParameterSource {
+
+        private final SqlParameterSource parameterSource;
+
+        private final MapSqlParameterSource keysetParams;
+
+        private KeysetParameterSource(SqlParameterSource parameterSource, MapSqlParameterSource keysetParams) {
+            this.parameterSource = parameterSource == null ? new EmptySqlParameterSource() : parameterSource;
+            this.keysetParams = keysetParams;
+        }
+
+        @Override
+        public boolean hasValue(String paramName) {
+            return keysetParams.hasValue(paramName) || parameterSource.hasValue(paramName);
+        }
+
+        @Override
+        public Object getValue(String paramName) throws IllegalArgumentException {
+            return keysetParams.hasValue(paramName) ?
+                    keysetParams.getValue(paramName) : parameterSource.getValue(paramName);
+        }
+
+        @Override
+        public int getSqlType(String paramName) {
+            return keysetParams.hasValue(paramName) ?
+                    keysetParams.getSqlType(paramName) : parameterSource.getSqlType(paramName);
+        }
+
+        @Override
+        public String getTypeName(String paramName) {
+            return keysetParams.hasValue(paramName) ?
+                    keysetParams.getTypeName(paramName) : parameterSource.getTypeName(paramName);
+        }
+    }
+
+    /**
+     * 记录创建的PreparedStatement，可以在其他线程取消
+     */
+    private static final class CancellableStatement implements PreparedStatementCreator, ParameterDisposer, SqlProvider {
+
+        private final String sql;
+
+        private final PreparedStatementSetter parameterSetter;
+
+        private PreparedStatement statement;
+
+        private boolean cancelled = false;
+
+        private CancellableStatement(String sql, PreparedStatementSetter parameterSetter) {
+            this.sql = sql;
+            this.parameterSetter = parameterSetter;
+        }
+
+        @Override
+        public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+            PreparedStatement ps = con.prepareStatement(sql);
+            parameterSetter.setValues(ps);
+            synchronized (this) {
+                if (cancelled) {
+                    JdbcUtils.closeStatement(ps);
+                    throw new SQLException("查询已取消：" + sql);
+                }
+                statement = ps;
+            }
+            return ps;
+        }
+
+        private synchronized void cancel() {
+            cancelled = true;
+            if (statement != null) {
+                try {
+                    statement.cancel();
+                } catch (SQLException e) {
+                    logger.debug("取消查询失败", e);
+                }
+            }
+        }
+
+        /**
+         * 查询结束后不能再取消，避免取消同一连接上之后的查询
+         */
+        private synchronized void finish() {
+            statement = null;
+        }
+
+        @Override
+        public void cleanupParameters() {
+            if (parameterSetter instanceof ParameterDisposer) {
+                ((ParameterDisposer) parameterSetter).cleanupParameters();
+            }
+        }
+
+        @Override
+        public String getSql() {
+            return sql;
+        }
+    }
 }
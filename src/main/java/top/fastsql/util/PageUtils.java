@@ -1,5 +1,6 @@
 package top.fastsql.util;
 
+import top.fastsql.cache.LruCache;
 import top.fastsql.config.DataSourceType;
 
 import java.util.Objects;
@@ -9,6 +10,13 @@ import java.util.Objects;
  */
 public class PageUtils {
 
+    private static final LruCache<String, String> COUNT_SQL_CACHE = new LruCache<>(256);
+
+    /**
+     * 原sql到去掉order by、查询列为常量的sql的缓存
+     */
+    private static final LruCache<String, String> CAPPED_SQL_CACHE = new LruCache<>(256);
+
     public static String getRowsSQL(String sql, int pageNumber, int perPageSize, DataSourceType dataSourceType) {
         if (Objects.equals(dataSourceType, DataSourceType.MY_SQL)) {
             return mysql(sql, pageNumber, perPageSize);
@@ -21,6 +29,40 @@ public class PageUtils {
         }
     }
 
+    /**
+     * 第pageNumber页的sql，多取一行用于判断是否有下一页
+     *
+     * @param pageNumber 页数，从第一页开始
+     */
+    public static String getSliceSQL(String sql, int pageNumber, int perPageSize, DataSourceType dataSourceType) {
+        return getOffsetRowsSQL(sql, (pageNumber - 1) * perPageSize, perPageSize + 1, dataSourceType);
+    }
+
+    /**
+     * 只取前limit行
+     */
+    public static String getLimitSQL(String sql, int limit, DataSourceType dataSourceType) {
+        if (Objects.equals(dataSourceType, DataSourceType.MY_SQL)
+                || Objects.equals(dataSourceType, DataSourceType.POSTGRESQL)) {
+            return sql + " LIMIT " + limit;
+        } else if (Objects.equals(dataSourceType, DataSourceType.ORACLE)) {
+            return "SELECT * FROM ( " + sql + " ) WHERE ROWNUM <= " + limit;
+        } else {
+            throw new RuntimeException("不支持的数据库类型");
+        }
+    }
+
+    /**
+     * 最多统计到limit行的count sql，去掉原sql最外层的order by、查询列替换为常量后只取前limit行再计数
+     *
+     * @see CountSqlParser#getConstantSelectSql(String)
+     */
+    public static String getCappedCountSQL(String sql, int limit, DataSourceType dataSourceType) {
+        String rowsSql = CAPPED_SQL_CACHE.computeIfAbsent(sql,
+                key -> new CountSqlParser().getConstantSelectSql(OrderByParser.removeOrderBySql(key)));
+        return "SELECT count(*) FROM ( " + getLimitSQL(rowsSql, limit, dataSourceType) + " ) fastsql_capped";
+    }
+
     /**
      * @see PageUtils#getSmartCountSQL(String)
      */
@@ -32,12 +74,39 @@ public class PageUtils {
     }
 
     /**
-     * 获取统计数量的sql
+     * 获取统计数量的sql，结果按原sql缓存，相同的sql只解析一次
      * @param sql origin sql
+     * @see PageUtils#getCountSqlCache()
      */
     public static String getSmartCountSQL(String sql) {
         // Can not use  "AS"  in Oracle's subQuery.
-        return new CountSqlParser().getSmartCountSql(sql);
+        return COUNT_SQL_CACHE.computeIfAbsent(sql, key -> new CountSqlParser().getSmartCountSql(key));
+    }
+
+    /**
+     * 原sql到count sql的缓存，默认最多256条，可以查看命中率；setMaxSize(0)关闭缓存
+     */
+    public static LruCache<String, String> getCountSqlCache() {
+        return COUNT_SQL_CACHE;
+    }
+
+    /**
+     * 跳过offset行后取limit行
+     */
+    public static String getOffsetRowsSQL(String sql, int offset, int limit, DataSourceType dataSourceType) {
+        if (Objects.equals(dataSourceType, DataSourceType.MY_SQL)) {
+            return sql + " LIMIT " + offset + "," + limit;
+        } else if (Objects.equals(dataSourceType, DataSourceType.POSTGRESQL)) {
+            return sql + " LIMIT " + limit + " OFFSET " + offset;
+        } else if (Objects.equals(dataSourceType, DataSourceType.ORACLE)) {
+            return "SELECT * FROM" +
+                    " (" +
+                    " SELECT t.*, ROWNUM RN FROM ( " + sql + " ) t WHERE ROWNUM <= " + (offset + limit) +
+                    " ) " +
+                    "WHERE RN > " + offset;
+        } else {
+            throw new RuntimeException("不支持的数据库类型");
+        }
     }
 
     /**
@@ -47,7 +116,7 @@ public class PageUtils {
     public static String mysql(String sql, int pageNumber, int perPageSize) {
         //偏移量，即是忽略offset行
         int offset = (pageNumber - 1) * perPageSize;
-        return sql + " LIMIT " + offset + "," + perPageSize;
+        return getOffsetRowsSQL(sql, offset, perPageSize, DataSourceType.MY_SQL);
     }
 
     /**
@@ -57,7 +126,7 @@ public class PageUtils {
     public static String postgresql(String sql, int pageNumber, int perPageSize) {
         //偏移量，即是忽略offset行
         int offset = (pageNumber - 1) * perPageSize;
-        return sql + " LIMIT " + perPageSize + " OFFSET " + offset;
+        return getOffsetRowsSQL(sql, offset, perPageSize, DataSourceType.POSTGRESQL);
     }
 
     /**
@@ -65,13 +134,8 @@ public class PageUtils {
      * @param perPageSize 每页条数，大于1
      */
     public static String oracle(String sql, int pageNumber, int perPageSize) {
-        int limit = (pageNumber - 1) * perPageSize;
-        int endRowNum = limit + perPageSize;
-
-        return "SELECT * FROM" +
-                " (" +
-                " SELECT t.*, ROWNUM RN FROM ( " + sql + " ) t WHERE ROWNUM <= " + endRowNum +
-                " ) " +
-                "WHERE RN >= " + limit;
+        //RN从1开始，跳过前offset行
+        int offset = (pageNumber - 1) * perPageSize;
+        return getOffsetRowsSQL(sql, offset, perPageSize, DataSourceType.ORACLE);
     }
 }
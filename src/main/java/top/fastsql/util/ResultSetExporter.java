@@ -0,0 +1,436 @@
+package top.fastsql.util;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 把结果集直接写入WritableByteChannel，支持CSV和NDJSON（每行一个JSON对象）
+ * <p>
+ * 每列的写入方式根据ResultSetMetaData确定一次；整数、日期、时间直接编码为字节，字符串逐字符编码为UTF-8，
+ * 不生成中间String。数据先写入可重复使用的直接缓冲区，写满后刷新到channel。
+ * 一个实例可以依次导出多个查询，但不能并发使用
+ * <ul>
+ * <li>CSV：第一行为列名，null为空字段，包含逗号、引号、换行的值加引号，日期格式yyyy-MM-dd，时间格式yyyy-MM-dd HH:mm:ss[.SSS]</li>
+ * <li>NDJSON：数字和布尔值不加引号，null为null，NaN/Infinity输出为null</li>
+ * </ul>
+ *
+ * @author 陈佳志
+ * @see top.fastsql.SQL#exportCsv(WritableByteChannel)
+ * @see top.fastsql.SQL#exportNdjson(WritableByteChannel)
+ */
+public class ResultSetExporter implements ResultSetExtractor<Long> {
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final WritableByteChannel channel;
+
+    private final Format format;
+
+    private final ByteBuffer buffer;
+
+    /**
+     * 整数转字节时使用的临时数组
+     */
+    private final byte[] digits = new byte[20];
+
+    public ResultSetExporter(WritableByteChannel channel, Format format) {
+        this(channel, format, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize 直接缓冲区的大小，最小为64字节
+     */
+    public ResultSetExporter(WritableByteChannel channel, Format format, int bufferSize) {
+        this.channel = channel;
+        this.format = format;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, 64));
+    }
+
+    /**
+     * 写入剩余的所有行并刷新缓冲区
+     *
+     * @return 写入的行数
+     */
+    @Override
+    public Long extractData(ResultSet rs) throws SQLException {
+        try {
+            ResultSetMetaData metaData = rs.getMetaData();
+            int columnCount = metaData.getColumnCount();
+            ColumnWriter[] writers = new ColumnWriter[columnCount];
+            byte[][] keys = new byte[columnCount][];
+            for (int i = 0; i < columnCount; i++) {
+                String label = JdbcUtils.lookupColumnName(metaData, i + 1);
+                writers[i] = createWriter(metaData.getColumnType(i + 1));
+                keys[i] = format == Format.NDJSON ? jsonKey(label, i == 0) : null;
+            }
+            if (format == Format.CSV) {
+                for (int i = 0; i < columnCount; i++) {
+                    if (i > 0) {
+                        put((byte) ',');
+                    }
+                    putCsvString(JdbcUtils.lookupColumnName(metaData, i + 1));
+                }
+                put((byte) '\n');
+            }
+            long rows = 0;
+            while (rs.next()) {
+                if (format == Format.NDJSON) {
+                    put((byte) '{');
+                }
+                for (int i = 0; i < columnCount; i++) {
+                    if (format == Format.NDJSON) {
+                        put(keys[i]);
+                    } else if (i > 0) {
+                        put((byte) ',');
+                    }
+                    writers[i].write(rs, i + 1);
+                }
+                if (format == Format.NDJSON) {
+                    put((byte) '}');
+                }
+                put((byte) '\n');
+                rows++;
+            }
+            flush();
+            return rows;
+        } catch (IOException e) {
+            buffer.clear();
+            throw new DataAccessResourceFailureException("导出结果失败", e);
+        }
+    }
+
+    //-------------------------------- 列写入 --------------------------------
+
+    private interface ColumnWriter {
+        void write(ResultSet rs, int index) throws SQLException, IOException;
+    }
+
+    private ColumnWriter createWriter(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return (rs, index) -> {
+                    long value = rs.getLong(index);
+                    if (rs.wasNull()) {
+                        putNull();
+                    } else {
+                        putLong(value);
+                    }
+                };
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return (rs, index) -> {
+                    double value = rs.getDouble(index);
+                    if (rs.wasNull() || format == Format.NDJSON && (Double.isNaN(value) || Double.isInfinite(value))) {
+                        putNull();
+                    } else {
+                        putAscii(Double.toString(value));
+                    }
+                };
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return (rs, index) -> {
+                    BigDecimal value = rs.getBigDecimal(index);
+                    if (value == null) {
+                        putNull();
+                    } else if (value.scale() == 0 && value.precision() < 19) {
+                        putLong(value.longValue());
+                    } else {
+                        putAscii(value.toPlainString());
+                    }
+                };
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return (rs, index) -> {
+                    boolean value = rs.getBoolean(index);
+                    if (rs.wasNull()) {
+                        putNull();
+                    } else {
+                        putAscii(value ? "true" : "false");
+                    }
+                };
+            case Types.DATE:
+                return (rs, index) -> {
+                    Date value = rs.getDate(index);
+                    if (value == null) {
+                        putNull();
+                    } else {
+                        LocalDate date = value.toLocalDate();
+                        quote();
+                        putDate(date.getYear(), date.getMonthValue(), date.getDayOfMonth());
+                        quote();
+                    }
+                };
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return (rs, index) -> {
+                    Timestamp value = rs.getTimestamp(index);
+                    if (value == null) {
+                        putNull();
+                    } else {
+                        quote();
+                        putTimestamp(value);
+                        quote();
+                    }
+                };
+            default:
+                return (rs, index) -> {
+                    String value = rs.getString(index);
+                    if (value == null) {
+                        putNull();
+                    } else if (format == Format.NDJSON) {
+                        putJsonString(value);
+                    } else {
+                        putCsvString(value);
+                    }
+                };
+        }
+    }
+
+    //-------------------------------- 编码 --------------------------------
+
+    private void putNull() throws IOException {
+        if (format == Format.NDJSON) {
+            putAscii("null");
+        }
+    }
+
+    /**
+     * 日期时间在JSON中是字符串，CSV中不需要引号
+     */
+    private void quote() throws IOException {
+        if (format == Format.NDJSON) {
+            put((byte) '"');
+        }
+    }
+
+    private void putLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            putAscii("-9223372036854775808");
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int pos = digits.length;
+        do {
+            digits[--pos] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        buffer.put(digits, pos, digits.length - pos);
+    }
+
+    private void putDigits(int value, int width) {
+        for (int divisor = pow10(width - 1); divisor > 0; divisor /= 10) {
+            buffer.put((byte) ('0' + value / divisor % 10));
+        }
+    }
+
+    private static int pow10(int n) {
+        int result = 1;
+        for (int i = 0; i < n; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+
+    private void putDate(int year, int month, int day) throws IOException {
+        ensure(16);
+        if (year < 0) {
+            buffer.put((byte) '-');
+            year = -year;
+        }
+        putDigits(year, year > 9999 ? 5 : 4);
+        buffer.put((byte) '-');
+        putDigits(month, 2);
+        buffer.put((byte) '-');
+        putDigits(day, 2);
+    }
+
+    private void putTimestamp(Timestamp value) throws IOException {
+        LocalDateTime dateTime = value.toLocalDateTime();
+        putDate(dateTime.getYear(), dateTime.getMonthValue(), dateTime.getDayOfMonth());
+        ensure(13);
+        buffer.put((byte) ' ');
+        putDigits(dateTime.getHour(), 2);
+        buffer.put((byte) ':');
+        putDigits(dateTime.getMinute(), 2);
+        buffer.put((byte) ':');
+        putDigits(dateTime.getSecond(), 2);
+        int millis = dateTime.getNano() / 1_000_000;
+        if (millis != 0) {
+            buffer.put((byte) '.');
+            putDigits(millis, 3);
+        }
+    }
+
+    private void putCsvString(String value) throws IOException {
+        boolean quoted = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                quoted = true;
+                break;
+            }
+        }
+        if (!quoted) {
+            putUtf8(value);
+            return;
+        }
+        put((byte) '"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                put((byte) '"');
+            }
+            i = putChar(value, i);
+        }
+        put((byte) '"');
+    }
+
+    private void putJsonString(String value) throws IOException {
+        put((byte) '"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                ensure(2);
+                buffer.put((byte) '\\').put((byte) c);
+            } else if (c < 0x20) {
+                putJsonControl(c);
+            } else {
+                i = putChar(value, i);
+            }
+        }
+        put((byte) '"');
+    }
+
+    private void putJsonControl(char c) throws IOException {
+        ensure(6);
+        buffer.put((byte) '\\');
+        switch (c) {
+            case '\n':
+                buffer.put((byte) 'n');
+                break;
+            case '\r':
+                buffer.put((byte) 'r');
+                break;
+            case '\t':
+                buffer.put((byte) 't');
+                break;
+            case '\b':
+                buffer.put((byte) 'b');
+                break;
+            case '\f':
+                buffer.put((byte) 'f');
+                break;
+            default:
+                buffer.put((byte) 'u').put((byte) '0').put((byte) '0')
+                        .put((byte) Character.forDigit(c >> 4, 16)).put((byte) Character.forDigit(c & 0xF, 16));
+        }
+    }
+
+    private void putUtf8(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            i = putChar(value, i);
+        }
+    }
+
+    /**
+     * 把第i个字符编码为UTF-8，代理对会占用两个字符
+     *
+     * @return 最后处理的字符下标
+     */
+    private int putChar(String value, int i) throws IOException {
+        char c = value.charAt(i);
+        ensure(4);
+        if (c < 0x80) {
+            buffer.put((byte) c);
+        } else if (c < 0x800) {
+            buffer.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(i + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(i + 1));
+            buffer.put((byte) (0xF0 | codePoint >> 18)).put((byte) (0x80 | codePoint >> 12 & 0x3F))
+                    .put((byte) (0x80 | codePoint >> 6 & 0x3F)).put((byte) (0x80 | codePoint & 0x3F));
+            return i + 1;
+        } else if (Character.isSurrogate(c)) {
+            buffer.put((byte) '?');
+        } else {
+            buffer.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+        }
+        return i;
+    }
+
+    private void putAscii(String value) throws IOException {
+        ensure(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            buffer.put((byte) value.charAt(i));
+        }
+    }
+
+    /**
+     * NDJSON中列名部分 "label": 预先编码
+     */
+    private static byte[] jsonKey(String label, boolean first) {
+        StringBuilder key = new StringBuilder(first ? "\"" : ",\"");
+        for (int i = 0; i < label.length(); i++) {
+            char c = label.charAt(i);
+            if (c == '"' || c == '\\') {
+                key.append('\\');
+            }
+            key.append(c);
+        }
+        return key.append("\":").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void put(byte b) throws IOException {
+        ensure(1);
+        buffer.put(b);
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.capacity()) {
+            flush();
+            ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+            while (wrapped.hasRemaining()) {
+                channel.write(wrapped);
+            }
+            return;
+        }
+        ensure(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private void ensure(int size) throws IOException {
+        if (buffer.remaining() < size) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,157 @@
+package top.fastsql.util;
+
+import org.springframework.jdbc.core.DisposableSqlTypeValue;
+import top.fastsql.config.DataSourceType;
+import top.fastsql.exception.FastSQLException;
+
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * 以单个java.sql.Array绑定的集合参数
+ * <p>
+ * PostgreSQL使用 Connection#createArrayOf 创建数组，配合 = ANY(?) 使用；
+ * Oracle使用 SYS.ODCINUMBERLIST / SYS.ODCIVARCHAR2LIST 集合，配合 TABLE(?) 使用
+ *
+ * @author 陈佳志
+ */
+public class SqlArrayValue implements DisposableSqlTypeValue {
+
+    /**
+     * Oracle ODCI集合类型（VARRAY）的最大长度
+     */
+    public static final int ORACLE_MAX_SIZE = 32767;
+
+    private static final String ORACLE_CONNECTION_CLASS = "oracle.jdbc.OracleConnection";
+
+    private final DataSourceType dataSourceType;
+
+    private final Object[] elements;
+
+    private Array array;
+
+    public SqlArrayValue(DataSourceType dataSourceType, Collection<?> elements) {
+        this.dataSourceType = dataSourceType;
+        this.elements = elements.toArray();
+    }
+
+    /**
+     * 复制出未绑定的参数值，同一个语句多次执行时每次使用单独的实例
+     */
+    public SqlArrayValue copy() {
+        return new SqlArrayValue(dataSourceType, Arrays.asList(elements));
+    }
+
+    /**
+     * 是否支持使用数组绑定
+     */
+    public static boolean isSupported(DataSourceType dataSourceType) {
+        return dataSourceType == DataSourceType.POSTGRESQL || dataSourceType == DataSourceType.ORACLE;
+    }
+
+    @Override
+    public void setTypeValue(PreparedStatement ps, int paramIndex, int sqlType, String typeName) throws SQLException {
+        Connection connection = ps.getConnection();
+        if (dataSourceType == DataSourceType.ORACLE) {
+            array = createOracleArray(connection);
+        } else {
+            array = connection.createArrayOf(getPostgresTypeName(), elements);
+        }
+        ps.setArray(paramIndex, array);
+    }
+
+    @Override
+    public void cleanup() {
+        if (array != null) {
+            try {
+                array.free();
+            } catch (SQLException | AbstractMethodError | UnsupportedOperationException ignored) {
+            }
+            array = null;
+        }
+    }
+
+    /**
+     * 根据第一个非null元素推断PostgreSQL数组元素类型
+     */
+    String getPostgresTypeName() {
+        Object sample = getSample();
+        if (sample instanceof Integer || sample instanceof Short || sample instanceof Byte) {
+            return "int4";
+        } else if (sample instanceof Long || sample instanceof BigInteger) {
+            return "int8";
+        } else if (sample instanceof BigDecimal) {
+            return "numeric";
+        } else if (sample instanceof Double || sample instanceof Float) {
+            return "float8";
+        } else if (sample instanceof UUID) {
+            return "uuid";
+        } else if (sample instanceof Boolean) {
+            return "bool";
+        } else if (sample instanceof java.sql.Date || sample instanceof LocalDate) {
+            return "date";
+        } else if (sample instanceof java.sql.Time || sample instanceof LocalTime) {
+            return "time";
+        } else if (sample instanceof java.util.Date || sample instanceof LocalDateTime) {
+            return "timestamp";
+        }
+        return "varchar";
+    }
+
+    /**
+     * 数值使用SYS.ODCINUMBERLIST，其他使用SYS.ODCIVARCHAR2LIST
+     */
+    String getOracleTypeName() {
+        return getSample() instanceof Number ? "SYS.ODCINUMBERLIST" : "SYS.ODCIVARCHAR2LIST";
+    }
+
+    private Array createOracleArray(Connection connection) throws SQLException {
+        boolean numeric = getSample() instanceof Number;
+        Object[] values = new Object[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            Object element = elements[i];
+            if (element == null) {
+                continue;
+            }
+            values[i] = numeric ? new BigDecimal(element.toString()) : element.toString();
+        }
+        try {
+            //避免编译期依赖oracle驱动
+            Class<?> oracleConnectionClass = Class.forName(ORACLE_CONNECTION_CLASS);
+            Object oracleConnection = connection.unwrap(oracleConnectionClass);
+            Method method = oracleConnectionClass.getMethod("createOracleArray", String.class, Object.class);
+            return (Array) method.invoke(oracleConnection, getOracleTypeName(), values);
+        } catch (ReflectiveOperationException e) {
+            throw new FastSQLException("创建Oracle集合参数失败，请确认使用了ojdbc6以上的驱动", e);
+        }
+    }
+
+    private Object getSample() {
+        for (Object element : elements) {
+            if (element != null) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    public Object[] getElements() {
+        return elements;
+    }
+
+    @Override
+    public String toString() {
+        return "SqlArrayValue{" + "dataSourceType=" + dataSourceType + ", size=" + elements.length + '}';
+    }
+}
@@ -0,0 +1,107 @@
+package top.fastsql.util;
+
+import net.sf.jsqlparser.expression.Alias;
+import net.sf.jsqlparser.expression.AnalyticExpression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.*;
+import top.fastsql.cache.LruCache;
+import top.fastsql.config.DataSourceType;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 在查询列中加入 COUNT(*) OVER() AS fastsql_total，当前页和总数用一条语句查询
+ * <p>
+ * 窗口函数在where、group by之后，limit之前计算，每行的fastsql_total都是总行数。
+ * 需要数据库支持窗口函数：PostgreSQL、Oracle、MySQL 8。
+ * 有distinct或union等集合操作的查询不改写；Oracle中 * 与其他列同时查询时需要带表名，
+ * 因此Oracle的多表查询使用 * 时也不改写
+ *
+ * @author 陈佳志
+ */
+public class WindowCountParser {
+
+    /**
+     * 总数列的列名
+     */
+    public static final String TOTAL_COLUMN = "fastsql_total";
+
+    /**
+     * 原sql到改写后sql的缓存，不能改写的sql缓存为空字符串
+     */
+    private static final LruCache<String, String> CACHE = new LruCache<>(256);
+
+    /**
+     * 加入总数列的sql，不能改写时返回null
+     */
+    public static String getWindowCountSQL(String sql, DataSourceType dataSourceType) {
+        String key = dataSourceType + ":" + sql;
+        String result = CACHE.computeIfAbsent(key, k -> {
+            String windowSQL = addTotalColumn(sql, dataSourceType);
+            return windowSQL == null ? "" : windowSQL;
+        });
+        return result.isEmpty() ? null : result;
+    }
+
+    public static LruCache<String, String> getCache() {
+        return CACHE;
+    }
+
+    private static String addTotalColumn(String sql, DataSourceType dataSourceType) {
+        Select select;
+        try {
+            Statement statement = CCJSqlParserUtil.parse(sql);
+            if (!(statement instanceof Select)) {
+                return null;
+            }
+            select = (Select) statement;
+        } catch (Throwable e) {
+            return null;
+        }
+        if (!(select.getSelectBody() instanceof PlainSelect)) {
+            return null;
+        }
+        PlainSelect plainSelect = (PlainSelect) select.getSelectBody();
+        if (plainSelect.getDistinct() != null || plainSelect.getLimit() != null || plainSelect.getTop() != null
+                || plainSelect.getIntoTables() != null) {
+            //distinct在窗口函数之后去重，已有的limit会截断总数
+            return null;
+        }
+        List<SelectItem> selectItems = plainSelect.getSelectItems();
+        if (Objects.equals(dataSourceType, DataSourceType.ORACLE)) {
+            for (int i = 0; i < selectItems.size(); i++) {
+                if (selectItems.get(i) instanceof AllColumns) {
+                    Table table = getQualifier(plainSelect);
+                    if (table == null) {
+                        return null;
+                    }
+                    selectItems.set(i, new AllTableColumns(table));
+                }
+            }
+        }
+        AnalyticExpression count = new AnalyticExpression();
+        count.setName("COUNT");
+        count.setAllColumns(true);
+        SelectExpressionItem item = new SelectExpressionItem(count);
+        item.setAlias(new Alias(TOTAL_COLUMN, true));
+        selectItems.add(item);
+        return select.toString();
+    }
+
+    /**
+     * 单表查询中 * 对应的表名或别名
+     */
+    private static Table getQualifier(PlainSelect plainSelect) {
+        if (plainSelect.getJoins() != null && !plainSelect.getJoins().isEmpty()) {
+            return null;
+        }
+        FromItem fromItem = plainSelect.getFromItem();
+        if (fromItem.getAlias() != null) {
+            return new Table(fromItem.getAlias().getName());
+        }
+        return fromItem instanceof Table ? new Table(((Table) fromItem).getFullyQualifiedName()) : null;
+    }
+}
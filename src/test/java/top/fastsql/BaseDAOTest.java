@@ -0,0 +1,37 @@
+package top.fastsql;
+
+import org.junit.Test;
+import top.fastsql.config.DataSourceType;
+import top.fastsql.dto.BatchUpdateResult;
+
+import java.sql.Array;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author 陈佳志
+ */
+public class BaseDAOTest {
+
+    /**
+     * deleteInBatch和deleteByIds一样只执行一条语句，id列表绑定为一个数组参数
+     */
+    @Test
+    public void deleteInBatch() throws Exception {
+        MockDataSource dataSource = new MockDataSource();
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+        sqlFactory.setDataSourceType(DataSourceType.POSTGRESQL);
+        TestEntityDAO dao = new TestEntityDAO();
+        dao.setSqlFactory(sqlFactory);
+
+        BatchUpdateResult result = dao.deleteInBatch(Arrays.asList("1", "2", "3"));
+
+        assertEquals(1, result.getAffectRowNumber());
+        assertEquals(Arrays.asList("DELETE FROM test WHERE user = ANY(?)"), dataSource.getExecutedSql());
+        Array array = (Array) dataSource.getLastParams().get(0);
+        assertArrayEquals(new Object[]{"1", "2", "3"}, (Object[]) array.getArray());
+    }
+}
@@ -0,0 +1,78 @@
+package top.fastsql;
+
+import org.junit.Test;
+import top.fastsql.dto.ColumnarResult;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 陈佳志
+ */
+public class ColumnarResultTest {
+
+    private SQLFactory createFactory(MockDataSource dataSource) {
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+        return sqlFactory;
+    }
+
+    @Test
+    public void queryColumnar() {
+        int rows = 5000;
+        Object[][] data = new Object[rows][];
+        for (int i = 0; i < rows; i++) {
+            data[i] = new Object[]{(long) i, i % 10 == 0 ? null : i, i * 0.5, "name" + i};
+        }
+        MockDataSource dataSource = new MockDataSource().result(new String[]{"id", "age", "score", "name"}, data);
+
+        ColumnarResult result = createFactory(dataSource).sql().SELECT("*").FROM("student").queryColumnar();
+        assertEquals(rows, result.getRowCount());
+        assertEquals(ColumnarResult.ColumnType.LONG, result.getColumnType(0));
+        assertEquals(ColumnarResult.ColumnType.INT, result.getColumnType(1));
+        assertEquals(ColumnarResult.ColumnType.DOUBLE, result.getColumnType(2));
+        assertEquals(ColumnarResult.ColumnType.OBJECT, result.getColumnType(3));
+        assertEquals(2, result.findColumn("SCORE"));
+
+        assertEquals(4999L, result.getLong(4999, 0));
+        assertTrue(result.isNull(4990, 1));
+        assertEquals(0, result.getInt(4990, 1));
+        assertNull(result.getObject(4990, 1));
+        assertEquals(4991, result.getInt(4991, 1));
+        assertEquals(2499.5, result.getDouble(4999, 2), 0);
+        assertEquals("name4999", result.getObject(4999, 3));
+
+        long[] ids = result.getLongColumn(0);
+        assertEquals(rows, ids.length);
+        assertEquals(4096L, ids[4096]);
+        assertEquals(rows / 10, result.getNulls(1).cardinality());
+    }
+
+    @Test
+    public void queryPrimitiveColumn() {
+        MockDataSource dataSource = new MockDataSource().result(new String[]{"id"},
+                new Object[]{1L}, new Object[]{null}, new Object[]{3L});
+        SQLFactory sqlFactory = createFactory(dataSource);
+
+        assertArrayEquals(new long[]{1, 0, 3}, sqlFactory.sql().SELECT("id").FROM("student").queryLongColumn());
+        assertArrayEquals(new int[]{1, 0, 3}, sqlFactory.sql().SELECT("id").FROM("student").queryIntColumn());
+        assertArrayEquals(new double[]{1, 0, 3}, sqlFactory.sql().SELECT("id").FROM("student").queryDoubleColumn(), 0);
+    }
+
+    /**
+     * 不能确定可以精确转为long的DECIMAL保持为BigDecimal
+     */
+    @Test
+    public void decimalColumn() {
+        MockDataSource dataSource = new MockDataSource().result(new String[]{"id", "price"},
+                new Object[]{new BigDecimal("9007199254740993"), new BigDecimal("0.10")},
+                new Object[]{new BigDecimal("2"), new BigDecimal("19.99")});
+
+        ColumnarResult result = createFactory(dataSource).sql().SELECT("*").FROM("goods").queryColumnar();
+        assertEquals(ColumnarResult.ColumnType.OBJECT, result.getColumnType(0));
+        assertEquals(ColumnarResult.ColumnType.OBJECT, result.getColumnType(1));
+        assertEquals(new BigDecimal("9007199254740993"), result.getObject(0, 0));
+        assertEquals(new BigDecimal("0.10"), result.getObject(0, 1));
+    }
+}
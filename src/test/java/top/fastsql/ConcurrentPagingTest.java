@@ -0,0 +1,60 @@
+package top.fastsql;
+
+import org.junit.Test;
+import org.springframework.dao.DataAccessException;
+import top.fastsql.dto.ResultPage;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 陈佳志
+ */
+public class ConcurrentPagingTest {
+
+    private final MockDataSource dataSource = new MockDataSource()
+            .result(new String[]{"id"}, new Object[]{1}, new Object[]{2})
+            .resultWhen("count(", new String[]{"count"}, new Object[]{10});
+
+    private SQLFactory createSQLFactory() {
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+        sqlFactory.setConcurrentPaging(true);
+        return sqlFactory;
+    }
+
+    @Test
+    public void concurrentPage() {
+        ResultPage<Integer> page = createSQLFactory().sql().SELECT("id").FROM("student")
+                .queryPage(1, 2, Integer.class);
+
+        assertEquals(Arrays.asList(1, 2), page.getContent());
+        assertEquals(10, page.getTotalElements());
+        assertEquals(2, dataSource.getExecutedSql().size());
+        assertEquals(0, dataSource.getOpenConnections());
+    }
+
+    @Test
+    public void countFailure() {
+        dataSource.failWhen("count(");
+        try {
+            createSQLFactory().sql().SELECT("id").FROM("student").queryPage(1, 2, Integer.class);
+            fail();
+        } catch (DataAccessException e) {
+            assertTrue(e.getMessage().contains("count("));
+        }
+        assertEquals(0, dataSource.getOpenConnections());
+    }
+
+    @Test
+    public void classicParameters() {
+        ResultPage<Integer> page = createSQLFactory().sql().SELECT("id").FROM("student").WHERE("id > ?")
+                .varParameter(0)
+                .queryPage(1, 2, Integer.class);
+
+        assertEquals(10, page.getTotalElements());
+        assertEquals(Arrays.asList(0), dataSource.getExecutedParams().get(0));
+        assertEquals(Arrays.asList(0), dataSource.getExecutedParams().get(1));
+    }
+}
@@ -0,0 +1,178 @@
+package top.fastsql;
+
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import top.fastsql.config.CountMode;
+import top.fastsql.config.DataSourceType;
+import top.fastsql.dto.ResultPage;
+import top.fastsql.util.CountEstimator;
+import top.fastsql.util.PageUtils;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 陈佳志
+ */
+public class CountModeTest {
+
+    private final MockDataSource dataSource = new MockDataSource()
+            .result(new String[]{"id"}, new Object[]{1}, new Object[]{2});
+
+    private SQLFactory createSQLFactory(DataSourceType dataSourceType) {
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+        sqlFactory.setDataSourceType(dataSourceType);
+        return sqlFactory;
+    }
+
+    @Test
+    public void capped() {
+        dataSource.resultWhen("count(", new String[]{"count"}, new Object[]{101});
+        ResultPage<Integer> page = createSQLFactory(DataSourceType.POSTGRESQL).sql()
+                .SELECT("id").FROM("student").ORDER_BY("id")
+                .countCapped(100)
+                .queryPage(1, 2, Integer.class);
+
+        assertEquals(Arrays.asList(1, 2), page.getContent());
+        assertEquals(100, page.getTotalElements());
+        assertEquals(ResultPage.TotalType.CAPPED, page.getTotalType());
+        assertFalse(page.isTotalExact());
+        String countSql = dataSource.getExecutedSql().get(1);
+        assertTrue(countSql, countSql.contains("LIMIT 101"));
+        assertFalse(countSql, countSql.toUpperCase().contains("ORDER BY"));
+    }
+
+    /**
+     * 查询列替换为常量，多表查询中重复的列名不会出现在子查询中
+     */
+    @Test
+    public void cappedCountSql() {
+        assertEquals("SELECT count(*) FROM ( SELECT 1 FROM a JOIN b ON a.id = b.a_id WHERE a.age > ? LIMIT 101 )" +
+                        " fastsql_capped",
+                PageUtils.getCappedCountSQL("SELECT a.*, b.* FROM a JOIN b ON a.id = b.a_id WHERE a.age > ?" +
+                        " ORDER BY a.id", 101, DataSourceType.MY_SQL));
+        assertEquals("SELECT count(*) FROM ( SELECT * FROM ( SELECT 1 FROM a JOIN b ON a.id = b.a_id )" +
+                        " WHERE ROWNUM <= 101 ) fastsql_capped",
+                PageUtils.getCappedCountSQL("SELECT a.id, b.id FROM a JOIN b ON a.id = b.a_id", 101,
+                        DataSourceType.ORACLE));
+        //查询列影响行数时保留
+        assertEquals("SELECT count(*) FROM ( SELECT DISTINCT name FROM a LIMIT 101 ) fastsql_capped",
+                PageUtils.getCappedCountSQL("SELECT DISTINCT name FROM a", 101, DataSourceType.POSTGRESQL));
+    }
+
+    @Test
+    public void cappedBelowCap() {
+        dataSource.resultWhen("count(", new String[]{"count"}, new Object[]{7});
+        ResultPage<Integer> page = createSQLFactory(DataSourceType.MY_SQL).sql()
+                .SELECT("id").FROM("student")
+                .countCapped(100)
+                .queryPage(1, 2, Integer.class);
+
+        assertEquals(7, page.getTotalElements());
+        assertEquals(ResultPage.TotalType.EXACT, page.getTotalType());
+    }
+
+    @Test
+    public void cached() {
+        dataSource.resultWhen("count(", new String[]{"count"}, new Object[]{10});
+        SQLFactory sqlFactory = createSQLFactory(DataSourceType.POSTGRESQL);
+        sqlFactory.setCountMode(CountMode.CACHED);
+
+        ResultPage<Integer> first = sqlFactory.sql().SELECT("id").FROM("student").WHERE("id > :id")
+                .mapItemsParameter("id", 1).queryPage(1, 2, Integer.class);
+        ResultPage<Integer> second = sqlFactory.sql().SELECT("id").FROM("student").WHERE("id > :id")
+                .mapItemsParameter("id", 1).queryPage(2, 2, Integer.class);
+        ResultPage<Integer> otherParams = sqlFactory.sql().SELECT("id").FROM("student").WHERE("id > :id")
+                .mapItemsParameter("id", 2).queryPage(1, 2, Integer.class);
+
+        assertEquals(ResultPage.TotalType.EXACT, first.getTotalType());
+        assertEquals(ResultPage.TotalType.CACHED, second.getTotalType());
+        assertEquals(10, second.getTotalElements());
+        assertEquals(ResultPage.TotalType.EXACT, otherParams.getTotalType());
+        //两次count查询，三次当前页查询
+        assertEquals(5, dataSource.getExecutedSql().size());
+
+        sqlFactory.getCountCache().clear();
+        ResultPage<Integer> afterClear = sqlFactory.sql().SELECT("id").FROM("student").WHERE("id > :id")
+                .mapItemsParameter("id", 1).queryPage(1, 2, Integer.class);
+        assertEquals(ResultPage.TotalType.EXACT, afterClear.getTotalType());
+    }
+
+    @Test
+    public void estimatedFromStatistics() {
+        dataSource.resultWhen("pg_class", new String[]{"reltuples"}, new Object[]{123456L});
+        ResultPage<Integer> page = createSQLFactory(DataSourceType.POSTGRESQL).sql()
+                .SELECT("id").FROM("student")
+                .countEstimated()
+                .queryPage(1, 2, Integer.class);
+
+        assertEquals(123456, page.getTotalElements());
+        assertEquals(ResultPage.TotalType.ESTIMATED, page.getTotalType());
+        assertTrue(dataSource.getExecutedSql().get(0).contains("to_regclass('student')"));
+        for (String sql : dataSource.getExecutedSql()) {
+            assertFalse(sql, sql.contains("count("));
+        }
+    }
+
+    @Test
+    public void estimatedFromExplain() {
+        dataSource.resultWhen("EXPLAIN", new String[]{"id", "rows", "filtered"}, new Object[]{1, 2000L, 50.0});
+        ResultPage<Integer> page = createSQLFactory(DataSourceType.MY_SQL).sql()
+                .SELECT("id").FROM("student").WHERE("age > ?").varParameter(18)
+                .countEstimated()
+                .queryPage(1, 2, Integer.class);
+
+        assertEquals(1000, page.getTotalElements());
+        assertEquals(ResultPage.TotalType.ESTIMATED, page.getTotalType());
+        assertEquals(Arrays.asList(18), dataSource.getExecutedParams().get(0));
+    }
+
+    @Test
+    public void estimateFallsBackToCount() {
+        dataSource.resultWhen("count(", new String[]{"count"}, new Object[]{10});
+        dataSource.failWhen("EXPLAIN");
+        ResultPage<Integer> page = createSQLFactory(DataSourceType.POSTGRESQL).sql()
+                .SELECT("id").FROM("student").WHERE("id > 0")
+                .countEstimated()
+                .queryPage(1, 2, Integer.class);
+
+        assertEquals(10, page.getTotalElements());
+        assertEquals(ResultPage.TotalType.EXACT, page.getTotalType());
+    }
+
+    /**
+     * PostgreSQL事务中不执行估算语句，避免估算出错中止事务
+     */
+    @Test
+    public void noEstimateInPostgresTransaction() {
+        dataSource.resultWhen("count(", new String[]{"count"}, new Object[]{10});
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            ResultPage<Integer> page = createSQLFactory(DataSourceType.POSTGRESQL).sql()
+                    .SELECT("id").FROM("student").WHERE("id > 0")
+                    .countEstimated()
+                    .queryPage(1, 2, Integer.class);
+
+            assertEquals(10, page.getTotalElements());
+            assertEquals(ResultPage.TotalType.EXACT, page.getTotalType());
+            for (String sql : dataSource.getExecutedSql()) {
+                assertFalse(sql, sql.contains("EXPLAIN"));
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void statisticsSql() {
+        assertNull(CountEstimator.getStatisticsSQL("SELECT * FROM student WHERE id > 1", DataSourceType.MY_SQL));
+        assertNull(CountEstimator.getStatisticsSQL("SELECT * FROM a JOIN b ON a.id = b.id", DataSourceType.MY_SQL));
+        assertEquals("SELECT table_rows FROM information_schema.tables WHERE table_schema = 'school'" +
+                        " AND table_name = 'student'",
+                CountEstimator.getStatisticsSQL("SELECT * FROM school.student", DataSourceType.MY_SQL));
+        assertEquals("SELECT num_rows FROM all_tables WHERE owner = USER AND table_name = 'STUDENT'",
+                CountEstimator.getStatisticsSQL("SELECT * FROM student ORDER BY id", DataSourceType.ORACLE));
+    }
+}
@@ -0,0 +1,62 @@
+package top.fastsql;
+
+import org.junit.Test;
+import top.fastsql.config.DataSourceType;
+import top.fastsql.dto.ResultPage;
+import top.fastsql.util.DeferredJoinParser;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 陈佳志
+ */
+public class DeferredJoinTest {
+
+    @Test
+    public void rewrite() {
+        assertEquals("SELECT student.* FROM student INNER JOIN ( SELECT student.id AS fastsql_pk FROM student" +
+                        " WHERE age > ? ORDER BY name LIMIT 100000,20 ) fastsql_page" +
+                        " ON student.id = fastsql_page.fastsql_pk ORDER BY name",
+                DeferredJoinParser.getRowsSQL("SELECT * FROM student WHERE age > ? ORDER BY name", "id",
+                        5001, 20, DataSourceType.MY_SQL));
+
+        assertEquals("SELECT s.id, s.name FROM student s INNER JOIN ( SELECT * FROM ( SELECT t.*, ROWNUM RN FROM" +
+                        " ( SELECT s.id AS fastsql_pk FROM student s ORDER BY s.name DESC ) t WHERE ROWNUM <= 40 )" +
+                        " WHERE RN > 20 ) fastsql_page ON s.id = fastsql_page.fastsql_pk ORDER BY s.name DESC",
+                DeferredJoinParser.getRowsSQL("SELECT s.id, s.name FROM student s ORDER BY s.name DESC", "id",
+                        2, 20, DataSourceType.ORACLE));
+    }
+
+    @Test
+    public void notApplicable() {
+        assertNull(DeferredJoinParser.getRowsSQL("SELECT a.* FROM a JOIN b ON a.id = b.a_id", "id",
+                2, 20, DataSourceType.MY_SQL));
+        assertNull(DeferredJoinParser.getRowsSQL("SELECT name, count(*) FROM a GROUP BY name", "id",
+                2, 20, DataSourceType.MY_SQL));
+        assertNull(DeferredJoinParser.getRowsSQL("SELECT name AS n FROM a ORDER BY n", "id",
+                2, 20, DataSourceType.MY_SQL));
+        assertNull(DeferredJoinParser.getRowsSQL("SELECT ? AS flag, name FROM a", "id",
+                2, 20, DataSourceType.MY_SQL));
+    }
+
+    @Test
+    public void queryPage() {
+        MockDataSource dataSource = new MockDataSource()
+                .result(new String[]{"id"}, new Object[]{1}, new Object[]{2})
+                .resultWhen("count(", new String[]{"count"}, new Object[]{10});
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+
+        ResultPage<Integer> page = sqlFactory.sql().SELECT("id").FROM("student").WHERE("age > ?").varParameter(18)
+                .deferredJoin("id")
+                .queryPage(3, 2, Integer.class);
+
+        assertEquals(Arrays.asList(1, 2), page.getContent());
+        assertEquals(10, page.getTotalElements());
+        String rowsSql = dataSource.getExecutedSql().get(0);
+        assertTrue(rowsSql, rowsSql.contains("INNER JOIN ( SELECT student.id AS fastsql_pk FROM student"));
+        assertEquals(Arrays.asList(18), dataSource.getExecutedParams().get(0));
+    }
+}
@@ -3,6 +3,8 @@ package top.fastsql;
 import org.junit.Test;
 import top.fastsql.util.FastSqlUtils;
 
+import static org.junit.Assert.assertEquals;
+
 /**
  * @author Jiazhi
  * @since 2017/11/15
@@ -23,4 +25,12 @@ public class FastSQLUtilsTest {
         );
 
     }
+
+    @Test
+    public void inBucketSize() {
+        assertEquals(1, FastSqlUtils.getInBucketSize(1, 1000));
+        assertEquals(4, FastSqlUtils.getInBucketSize(3, 1000));
+        assertEquals(512, FastSqlUtils.getInBucketSize(300, 1000));
+        assertEquals(1000, FastSqlUtils.getInBucketSize(999, 1000));
+    }
 }
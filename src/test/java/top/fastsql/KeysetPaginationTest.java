@@ -0,0 +1,138 @@
+package top.fastsql;
+
+import org.junit.Test;
+import top.fastsql.config.DataSourceType;
+import top.fastsql.dto.CursorPage;
+import top.fastsql.util.KeysetPagination;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 陈佳志
+ */
+public class KeysetPaginationTest {
+
+    private static final String SQL = "SELECT id, create_time FROM student WHERE age > ? ORDER BY name";
+
+    @Test
+    public void rowValuePredicate() {
+        KeysetPagination keyset = new KeysetPagination("s.create_time DESC", "id DESC");
+        List<Object> args = new ArrayList<>();
+        String sql = keyset.getPageSQL(SQL, new Object[]{1, 2}, 21, DataSourceType.POSTGRESQL, value -> {
+            args.add(value);
+            return "?";
+        });
+
+        assertEquals("SELECT * FROM ( SELECT id, create_time FROM student WHERE age > ? ) fastsql_keyset" +
+                " WHERE (create_time, id) < (?, ?) ORDER BY create_time DESC, id DESC LIMIT 21", sql);
+        assertEquals(Arrays.asList(1, 2), args);
+    }
+
+    @Test
+    public void expandedPredicate() {
+        KeysetPagination keyset = new KeysetPagination("create_time DESC", "id");
+        List<Object> args = new ArrayList<>();
+        String sql = keyset.getPageSQL(SQL, new Object[]{1, 2}, 21, DataSourceType.MY_SQL, value -> {
+            args.add(value);
+            return "?";
+        });
+
+        assertEquals("SELECT * FROM ( SELECT id, create_time FROM student WHERE age > ? ) fastsql_keyset" +
+                " WHERE create_time <= ? AND ((create_time < ?) OR (create_time = ? AND id > ?))" +
+                " ORDER BY create_time DESC, id ASC LIMIT 21", sql);
+        assertEquals(Arrays.asList(1, 1, 1, 2), args);
+
+        String oracle = new KeysetPagination("id").getPageSQL(SQL, new Object[]{5}, 11, DataSourceType.ORACLE,
+                value -> "?");
+        assertEquals("SELECT * FROM ( SELECT * FROM ( SELECT id, create_time FROM student WHERE age > ? )" +
+                " fastsql_keyset WHERE id > ? ORDER BY id ASC ) WHERE ROWNUM <= 11", oracle);
+    }
+
+    @Test
+    public void cursorRoundTrip() {
+        KeysetPagination keyset = new KeysetPagination("create_time DESC", "name", "score", "id");
+        Timestamp time = new Timestamp(1500000000123L);
+        time.setNanos(123456789);
+        Object[] values = {time, "a:b|c,中文", new BigDecimal("12.50"), 42L};
+
+        String cursor = keyset.encodeCursor(values);
+        assertArrayEquals(values, keyset.decodeCursor(cursor));
+        assertNull(keyset.decodeCursor(null));
+
+        try {
+            new KeysetPagination("id").decodeCursor(cursor);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("不匹配"));
+        }
+    }
+
+    /**
+     * UUID主键和java.time类型的排序列
+     */
+    @Test
+    public void cursorRoundTripJavaTime() {
+        KeysetPagination keyset = new KeysetPagination("create_time DESC", "birthday", "start_time", "update_time",
+                "id");
+        Object[] values = {LocalDateTime.of(2018, 8, 1, 10, 0), LocalDate.of(2000, 1, 2),
+                LocalTime.of(8, 30, 15, 500), OffsetDateTime.of(2018, 8, 1, 10, 0, 0, 123000000, ZoneOffset.ofHours(8)),
+                UUID.fromString("123e4567-e89b-12d3-a456-426614174000")};
+
+        assertArrayEquals(values, keyset.decodeCursor(keyset.encodeCursor(values)));
+    }
+
+    /**
+     * 原sql在子查询中，能确定结果列名重复时直接报错
+     */
+    @Test
+    public void duplicateResultColumns() {
+        KeysetPagination keyset = new KeysetPagination("id");
+        for (String sql : new String[]{"SELECT * FROM a JOIN b ON a.id = b.a_id",
+                "SELECT a.id, b.id FROM a JOIN b ON a.id = b.a_id"}) {
+            try {
+                keyset.getPageSQL(sql, null, 10, DataSourceType.MY_SQL, value -> "?");
+                fail(sql);
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("子查询"));
+            }
+        }
+        assertEquals("SELECT * FROM ( SELECT a.id, b.id AS b_id FROM a JOIN b ON a.id = b.a_id ) fastsql_keyset" +
+                        " ORDER BY id ASC LIMIT 10",
+                keyset.getPageSQL("SELECT a.id, b.id AS b_id FROM a JOIN b ON a.id = b.a_id", null, 10,
+                        DataSourceType.MY_SQL, value -> "?"));
+    }
+
+    @Test
+    public void queryCursorPage() {
+        MockDataSource dataSource = new MockDataSource()
+                .result(new String[]{"id"}, new Object[]{1}, new Object[]{2}, new Object[]{3});
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+
+        CursorPage<Integer> first = sqlFactory.sql().SELECT("id").FROM("student").WHERE("age > :age")
+                .mapItemsParameter("age", 18)
+                .queryCursorPage(null, 2, Integer.class, "id");
+        assertEquals(Arrays.asList(1, 2), first.getContent());
+        assertTrue(first.hasNext());
+        assertFalse(dataSource.getLastSql().contains("WHERE id"));
+
+        CursorPage<Integer> second = sqlFactory.sql().SELECT("id").FROM("student").WHERE("age > :age")
+                .mapItemsParameter("age", 18)
+                .queryCursorPage(first.getNextCursor(), 2, Integer.class, "id");
+        assertTrue(dataSource.getLastSql().contains("WHERE id > ?"));
+        assertEquals(Arrays.asList(18, 2), dataSource.getLastParams());
+        assertEquals(2, second.getContent().size());
+    }
+}
@@ -0,0 +1,60 @@
+package top.fastsql;
+
+import org.junit.Test;
+import top.fastsql.dao.KeysetScan;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author 陈佳志
+ */
+public class KeysetScanTest {
+
+    private static final String[] LABELS = {"user", "ord_id", "dep_id"};
+
+    private final MockDataSource dataSource = new MockDataSource()
+            .thenResult(LABELS, new Object[]{"a", "1", 1}, new Object[]{"b", "2", 2})
+            .thenResult(LABELS, new Object[]{"c", "3", 3}, new Object[]{"d", "4", 4})
+            .thenResult(LABELS, new Object[]{"e", "5", 5});
+
+    private TestEntityDAO createDAO() {
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+        TestEntityDAO dao = new TestEntityDAO();
+        dao.setSqlFactory(sqlFactory);
+        return dao;
+    }
+
+    @Test
+    public void scanAll() {
+        List<String> users;
+        try (KeysetScan<TestEntity> scan = createDAO().scanAll(2)) {
+            users = scan.stream().map(TestEntity::getUser).collect(Collectors.toList());
+            assertEquals(3, scan.getBatchCount());
+            assertEquals(5, scan.getRowCount());
+        }
+
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), users);
+        assertEquals(Arrays.asList(
+                "SELECT user,ord_id,dep_id FROM test ORDER BY user LIMIT 2",
+                "SELECT user,ord_id,dep_id FROM test WHERE user > ? ORDER BY user LIMIT 2",
+                "SELECT user,ord_id,dep_id FROM test WHERE user > ? ORDER BY user LIMIT 2"),
+                dataSource.getExecutedSql());
+        assertEquals(Arrays.asList("b"), dataSource.getExecutedParams().get(1));
+        assertEquals(Arrays.asList("d"), dataSource.getExecutedParams().get(2));
+    }
+
+    @Test
+    public void scanAllWithPrefetch() {
+        List<String> users;
+        try (KeysetScan<TestEntity> scan = createDAO().scanAll(2, true)) {
+            users = scan.stream().map(TestEntity::getUser).collect(Collectors.toList());
+        }
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), users);
+        assertEquals(3, dataSource.getExecutedSql().size());
+    }
+}
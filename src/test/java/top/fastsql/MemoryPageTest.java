@@ -0,0 +1,54 @@
+package top.fastsql;
+
+import org.junit.Test;
+import top.fastsql.dto.ResultPage;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author 陈佳志
+ */
+public class MemoryPageTest {
+
+    private final MockDataSource dataSource = new MockDataSource()
+            .result(new String[]{"id"}, new Object[]{1}, new Object[]{2}, new Object[]{3}, new Object[]{4},
+                    new Object[]{5});
+
+    private SQLFactory createSQLFactory() {
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+        return sqlFactory;
+    }
+
+    @Test
+    public void mapsOnlyPageRows() {
+        AtomicInteger mapped = new AtomicInteger();
+        ResultPage<Integer> page = createSQLFactory().sql().SELECT("id").FROM("student")
+                .queryMemoryPage(2, 2, (rs, rowNum) -> {
+                    mapped.incrementAndGet();
+                    return rs.getInt(1);
+                });
+
+        assertEquals(Arrays.asList(3, 4), page.getContent());
+        assertEquals(5, page.getTotalElements());
+        assertEquals(2, mapped.get());
+        assertEquals(0, dataSource.getOpenConnections());
+    }
+
+    @Test
+    public void pageOutOfRange() {
+        ResultPage<Integer> page = createSQLFactory().sql().SELECT("id").FROM("student")
+                .queryMemoryPage(4, 2, Integer.class);
+
+        assertEquals(Collections.emptyList(), page.getContent());
+        assertEquals(5, page.getTotalElements());
+
+        ResultPage<Integer> last = createSQLFactory().sql().SELECT("id").FROM("student")
+                .queryMemoryPage(3, 2, Integer.class);
+        assertEquals(Collections.singletonList(5), last.getContent());
+    }
+}
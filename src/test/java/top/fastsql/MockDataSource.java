@@ -0,0 +1,350 @@
+package top.fastsql;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 测试用的数据源，不连接数据库：记录执行的sql和绑定的参数，查询时返回预先设置的结果
+ *
+ * @author 陈佳志
+ */
+public class MockDataSource extends AbstractDataSource {
+
+    private final List<String> executedSql = new ArrayList<>();
+
+    private final List<List<Object>> executedParams = new ArrayList<>();
+
+    private String[] labels = new String[0];
+
+    private List<Object[]> rows = new ArrayList<>();
+
+    /**
+     * 依次返回的结果，用完后返回result()设置的结果
+     */
+    private final Deque<Object[]> queuedResults = new ArrayDeque<>();
+
+    /**
+     * sql包含指定内容时返回的结果，优先于其他结果
+     */
+    private final Map<String, Object[]> sqlResults = new LinkedHashMap<>();
+
+    private final Set<String> failingSql = new HashSet<>();
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    private int lastFetchSize = 0;
+
+    private final List<String> connectionEvents = new ArrayList<>();
+
+    private String url;
+
+    /**
+     * 设置查询返回的结果
+     */
+    public MockDataSource result(String[] labels, Object[]... rows) {
+        this.labels = labels;
+        this.rows = Arrays.asList(rows);
+        return this;
+    }
+
+    /**
+     * 追加一个只返回一次的结果，多次调用时按顺序返回
+     */
+    public MockDataSource thenResult(String[] labels, Object[]... rows) {
+        queuedResults.add(new Object[]{labels, Arrays.asList(rows)});
+        return this;
+    }
+
+    /**
+     * sql包含sqlPart时返回的结果
+     */
+    public MockDataSource resultWhen(String sqlPart, String[] labels, Object[]... rows) {
+        sqlResults.put(sqlPart, new Object[]{labels, Arrays.asList(rows)});
+        return this;
+    }
+
+    /**
+     * sql包含sqlPart时执行查询抛出SQLException
+     */
+    public MockDataSource failWhen(String sqlPart) {
+        failingSql.add(sqlPart);
+        return this;
+    }
+
+    public List<String> getExecutedSql() {
+        return executedSql;
+    }
+
+    public List<List<Object>> getExecutedParams() {
+        return executedParams;
+    }
+
+    /**
+     * 连接的url，DatabaseMetaData.getURL()返回
+     */
+    public MockDataSource url(String url) {
+        this.url = url;
+        return this;
+    }
+
+    /**
+     * 连接上的setAutoCommit/commit/rollback调用
+     */
+    public List<String> getConnectionEvents() {
+        return connectionEvents;
+    }
+
+    /**
+     * 获取后还没有关闭的连接数
+     */
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+
+    public int getLastFetchSize() {
+        return lastFetchSize;
+    }
+
+    public String getLastSql() {
+        return executedSql.get(executedSql.size() - 1);
+    }
+
+    public List<Object> getLastParams() {
+        return executedParams.get(executedParams.size() - 1);
+    }
+
+    @Override
+    public Connection getConnection() {
+        openConnections.incrementAndGet();
+        boolean[] autoCommit = {true};
+        return proxy(Connection.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "close":
+                    openConnections.decrementAndGet();
+                    return null;
+                case "prepareStatement":
+                    return preparedStatement((Connection) proxy, (String) args[0]);
+                case "getAutoCommit":
+                    return autoCommit[0];
+                case "setAutoCommit":
+                    autoCommit[0] = (Boolean) args[0];
+                    connectionEvents.add("setAutoCommit(" + args[0] + ")");
+                    return null;
+                case "commit":
+                case "rollback":
+                    connectionEvents.add(method.getName());
+                    return null;
+                case "createArrayOf":
+                    return array((String) args[0], (Object[]) args[1]);
+                case "getMetaData":
+                    return proxy(DatabaseMetaData.class, (p, m, a) ->
+                            m.getName().equals("getURL") ? url : defaultValue(m.getReturnType()));
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) {
+        return getConnection();
+    }
+
+    private PreparedStatement preparedStatement(Connection connection, String sql) {
+        List<Object> params = new ArrayList<>();
+        return proxy(PreparedStatement.class, (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer
+                    && method.getParameterTypes()[0] == int.class) {
+                int index = (Integer) args[0];
+                while (params.size() < index) {
+                    params.add(null);
+                }
+                params.set(index - 1, name.equals("setNull") ? null : args[1]);
+                return null;
+            }
+            switch (name) {
+                case "executeQuery":
+                    record(sql, params);
+                    for (String part : failingSql) {
+                        if (sql.contains(part)) {
+                            throw new SQLException("mock failure: " + sql);
+                        }
+                    }
+                    return nextResultSet(sql);
+                case "executeUpdate":
+                    record(sql, params);
+                    return 1;
+                case "execute":
+                    record(sql, params);
+                    return true;
+                case "getResultSet":
+                    return nextResultSet(sql);
+                case "getConnection":
+                    return connection;
+                case "setFetchSize":
+                    lastFetchSize = (Integer) args[0];
+                    return null;
+                case "getUpdateCount":
+                    return -1;
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    private Array array(String typeName, Object[] elements) {
+        return proxy(Array.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getArray":
+                    return elements;
+                case "getBaseTypeName":
+                    return typeName;
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+    }
+
+    private synchronized void record(String sql, List<Object> params) {
+        executedSql.add(sql);
+        executedParams.add(new ArrayList<>(params));
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized ResultSet nextResultSet(String sql) {
+        Object[] queued = null;
+        for (Map.Entry<String, Object[]> entry : sqlResults.entrySet()) {
+            if (sql.contains(entry.getKey())) {
+                queued = entry.getValue();
+            }
+        }
+        if (queued == null) {
+            queued = queuedResults.poll();
+        }
+        return queued == null ? resultSet(labels, rows) : resultSet((String[]) queued[0], (List<Object[]>) queued[1]);
+    }
+
+    private ResultSet resultSet(String[] labels, List<Object[]> rows) {
+        int[] cursor = {-1};
+        Object[] lastValue = {null};
+        ResultSetMetaData metaData = proxy(ResultSetMetaData.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getColumnCount":
+                    return labels.length;
+                case "getColumnLabel":
+                case "getColumnName":
+                    return labels[(Integer) args[0] - 1];
+                case "getColumnType":
+                    return columnType(rows, (Integer) args[0] - 1);
+                default:
+                    return defaultValue(method.getReturnType());
+            }
+        });
+        return proxy(ResultSet.class, (proxy, method, args) -> {
+            String name = method.getName();
+            switch (name) {
+                case "next":
+                    return ++cursor[0] < rows.size();
+                case "getMetaData":
+                    return metaData;
+                case "wasNull":
+                    return lastValue[0] == null;
+                case "findColumn":
+                    return indexOf(labels, (String) args[0]) + 1;
+                default:
+            }
+            if (name.startsWith("get") && args != null && args.length >= 1) {
+                int index = args[0] instanceof Integer ? (Integer) args[0] - 1 : indexOf(labels, (String) args[0]);
+                Object value = rows.get(cursor[0])[index];
+                lastValue[0] = value;
+                return convert(value, method.getReturnType());
+            }
+            return defaultValue(method.getReturnType());
+        });
+    }
+
+    private static int indexOf(String[] labels, String label) {
+        for (int i = 0; i < labels.length; i++) {
+            if (labels[i].equalsIgnoreCase(label)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("no column " + label);
+    }
+
+    private static int columnType(List<Object[]> rows, int index) {
+        for (Object[] row : rows) {
+            Object value = row[index];
+            if (value instanceof Integer) {
+                return Types.INTEGER;
+            } else if (value instanceof Long) {
+                return Types.BIGINT;
+            } else if (value instanceof Double) {
+                return Types.DOUBLE;
+            } else if (value instanceof BigDecimal) {
+                return Types.DECIMAL;
+            } else if (value instanceof Timestamp) {
+                return Types.TIMESTAMP;
+            } else if (value instanceof Boolean) {
+                return Types.BOOLEAN;
+            } else if (value != null) {
+                return Types.VARCHAR;
+            }
+        }
+        return Types.VARCHAR;
+    }
+
+    private static Object convert(Object value, Class<?> type) {
+        if (value == null) {
+            return defaultValue(type);
+        }
+        if (type == String.class) {
+            return value.toString();
+        }
+        if (value instanceof Number) {
+            Number number = (Number) value;
+            if (type == int.class) {
+                return number.intValue();
+            } else if (type == long.class) {
+                return number.longValue();
+            } else if (type == double.class) {
+                return number.doubleValue();
+            } else if (type == float.class) {
+                return number.floatValue();
+            } else if (type == short.class) {
+                return number.shortValue();
+            } else if (type == byte.class) {
+                return number.byteValue();
+            } else if (type == BigDecimal.class) {
+                return new BigDecimal(number.toString());
+            }
+        }
+        return value;
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class || type == short.class || type == byte.class) {
+            return type == int.class ? 0 : type == short.class ? (Object) (short) 0 : (Object) (byte) 0;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == double.class) {
+            return 0D;
+        } else if (type == float.class) {
+            return 0F;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, java.lang.reflect.InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(MockDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+}
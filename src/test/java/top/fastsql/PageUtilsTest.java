@@ -0,0 +1,69 @@
+package top.fastsql;
+
+import org.junit.Test;
+import top.fastsql.cache.LruCache;
+import top.fastsql.config.DataSourceType;
+import top.fastsql.util.OrderByParser;
+import top.fastsql.util.PageUtils;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author 陈佳志
+ */
+public class PageUtilsTest {
+
+    @Test
+    public void countSqlCache() {
+        LruCache<String, String> cache = PageUtils.getCountSqlCache();
+        String sql = "SELECT id, name FROM page_utils_test WHERE id > 1 ORDER BY name";
+        long hits = cache.getHitCount();
+
+        String countSql = PageUtils.getSmartCountSQL(sql);
+        assertEquals("SELECT count(*) FROM page_utils_test WHERE id > 1", countSql);
+        assertEquals(countSql, PageUtils.getSmartCountSQL(sql));
+        assertEquals(hits + 1, cache.getHitCount());
+
+        int maxSize = cache.getMaxSize();
+        cache.setMaxSize(0);
+        try {
+            assertEquals(countSql, PageUtils.getSmartCountSQL(sql));
+            assertEquals(hits + 1, cache.getHitCount());
+        } finally {
+            cache.setMaxSize(maxSize);
+        }
+    }
+
+    @Test
+    public void orderByCache() {
+        String sql = "SELECT id, name FROM page_utils_test ORDER BY id";
+        long hits = OrderByParser.getCache().getHitCount();
+
+        assertEquals("SELECT id, name FROM page_utils_test order by name", OrderByParser.converToOrderBySql(sql, "name"));
+        assertEquals("SELECT id, name FROM page_utils_test order by id DESC",
+                OrderByParser.converToOrderBySql(sql, "id DESC"));
+        assertEquals(hits + 1, OrderByParser.getCache().getHitCount());
+    }
+
+    @Test
+    public void rowsSql() {
+        String sql = "SELECT id FROM student";
+        assertEquals("SELECT id FROM student LIMIT 10,5", PageUtils.getRowsSQL(sql, 3, 5, DataSourceType.MY_SQL));
+        assertEquals("SELECT id FROM student LIMIT 5 OFFSET 10",
+                PageUtils.getRowsSQL(sql, 3, 5, DataSourceType.POSTGRESQL));
+        assertEquals("SELECT id FROM student LIMIT 6 OFFSET 10",
+                PageUtils.getSliceSQL(sql, 3, 5, DataSourceType.POSTGRESQL));
+    }
+
+    /**
+     * ROWNUM从1开始，第3页是第11到15行，不能包含上一页的第10行
+     */
+    @Test
+    public void oraclePageSql() {
+        String sql = "SELECT id FROM student";
+        assertEquals("SELECT * FROM ( SELECT t.*, ROWNUM RN FROM ( SELECT id FROM student ) t WHERE ROWNUM <= 5 )" +
+                " WHERE RN > 0", PageUtils.getRowsSQL(sql, 1, 5, DataSourceType.ORACLE));
+        assertEquals("SELECT * FROM ( SELECT t.*, ROWNUM RN FROM ( SELECT id FROM student ) t WHERE ROWNUM <= 15 )" +
+                " WHERE RN > 10", PageUtils.getRowsSQL(sql, 3, 5, DataSourceType.ORACLE));
+    }
+}
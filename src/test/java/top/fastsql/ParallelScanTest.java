@@ -0,0 +1,83 @@
+package top.fastsql;
+
+import org.junit.Test;
+import top.fastsql.dao.BaseDAO;
+import top.fastsql.dto.ParallelScanResult;
+
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author 陈佳志
+ */
+public class ParallelScanTest {
+
+    @Table(name = "item")
+    public static class Item {
+        @Id
+        private Long id;
+
+        private String name;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    public static class ItemDAO extends BaseDAO<Item, Long> {
+        public ItemDAO(SQLFactory sqlFactory) {
+            super(sqlFactory);
+        }
+    }
+
+    @Test
+    public void parallelScan() {
+        String[] labels = {"id", "name"};
+        MockDataSource dataSource = new MockDataSource().result(labels)
+                .thenResult(new String[]{"min", "max"}, new Object[]{1L, 4L})
+                .thenResult(labels, new Object[]{1L, "a"}, new Object[]{2L, "b"})
+                .thenResult(labels, new Object[]{3L, "c"}, new Object[]{4L, "d"});
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+        //单线程，保证按分区顺序读取预设的结果
+        sqlFactory.setAsyncPoolSize(1);
+
+        List<Item> items = new CopyOnWriteArrayList<>();
+        ParallelScanResult result = new ItemDAO(sqlFactory).parallelScan(2, 2, items::addAll);
+
+        assertEquals(Arrays.asList("a", "b", "c", "d"), items.stream().map(Item::getName).collect(Collectors.toList()));
+        assertEquals(4, result.getRowCount());
+        assertEquals(2, result.getPartitions().size());
+        ParallelScanResult.Partition first = result.getPartitions().get(0);
+        assertEquals(0L, first.getFromId());
+        assertEquals(2L, first.getToId());
+        assertEquals(2, first.getRowCount());
+        //读到分区上界后不再查询
+        assertEquals(1, first.getBatchCount());
+
+        assertEquals("SELECT MIN(id), MAX(id) FROM item", dataSource.getExecutedSql().get(0));
+        assertEquals("SELECT id,name FROM item WHERE id > ? AND id <= ? ORDER BY id LIMIT 2",
+                dataSource.getExecutedSql().get(1));
+        assertEquals(Arrays.asList(0L, 2L), dataSource.getExecutedParams().get(1));
+        assertEquals(Arrays.asList(2L, 4L), dataSource.getExecutedParams().get(2));
+        assertEquals(3, dataSource.getExecutedSql().size());
+    }
+}
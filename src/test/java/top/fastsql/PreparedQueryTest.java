@@ -0,0 +1,64 @@
+package top.fastsql;
+
+import org.junit.Test;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author 陈佳志
+ */
+public class PreparedQueryTest {
+
+    @Test
+    public void prepare() {
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(new SimpleDriverDataSource());
+
+        PreparedQuery<String> query = sqlFactory.sql()
+                .SELECT("name").FROM("student")
+                .WHERE("age > :age").AND("name = :name").AND("age < :age")
+                .prepare(String.class);
+
+        assertEquals("SELECT name FROM student WHERE age > ? AND name = ? AND age < ?", query.getJdbcSql());
+        assertEquals(Arrays.asList("age", "name", "age"), query.getParameterNames());
+    }
+
+    /**
+     * 同一个PreparedQuery使用不同的参数多次执行，sql只解析一次
+     */
+    @Test
+    public void executeTwice() {
+        MockDataSource dataSource = new MockDataSource()
+                .thenResult(new String[]{"name"}, new Object[]{"Tom"}, new Object[]{"Jack"})
+                .thenResult(new String[]{"name"}, new Object[]{"Lucy"});
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+
+        PreparedQuery<String> query = sqlFactory.sql()
+                .SELECT("name").FROM("student")
+                .WHERE("age > :age").AND("name <> :name").AND("age < :maxAge")
+                .prepare(String.class);
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("age", 10);
+        params.put("name", "Bob");
+        params.put("maxAge", 20);
+        assertEquals(Arrays.asList("Tom", "Jack"), query.queryList(params));
+
+        params.put("age", 30);
+        params.put("name", "Ann");
+        params.put("maxAge", 40);
+        assertEquals("Lucy", query.queryOne(new MapSqlParameterSource(params)));
+
+        String jdbcSql = "SELECT name FROM student WHERE age > ? AND name <> ? AND age < ?";
+        assertEquals(Arrays.asList(jdbcSql, jdbcSql), dataSource.getExecutedSql());
+        assertEquals(Arrays.asList(Arrays.asList(10, "Bob", 20), Arrays.asList(30, "Ann", 40)),
+                dataSource.getExecutedParams());
+    }
+}
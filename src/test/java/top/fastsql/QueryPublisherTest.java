@@ -0,0 +1,143 @@
+package top.fastsql;
+
+import org.junit.Test;
+import top.fastsql.reactive.QueryPublisher;
+import top.fastsql.reactive.Subscriber;
+import top.fastsql.reactive.Subscription;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 陈佳志
+ */
+public class QueryPublisherTest {
+
+    private final MockDataSource dataSource = new MockDataSource().result(
+            new String[]{"id"}, new Object[]{1}, new Object[]{2}, new Object[]{3});
+
+    private SQLFactory createSQLFactory() {
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+        return sqlFactory;
+    }
+
+    private static class RecordingSubscriber implements Subscriber<Integer> {
+        final List<Integer> items = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        Subscription subscription;
+        boolean completed;
+        Throwable error;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+            done.countDown();
+        }
+    }
+
+    @Test
+    public void readsOnlyRequestedRows() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        createSQLFactory().sql().SELECT("id").FROM("student")
+                .asyncExecutor(Runnable::run)
+                .queryPublisher(Integer.class)
+                .subscribe(subscriber);
+
+        assertEquals(0, dataSource.getExecutedSql().size());
+        subscriber.subscription.request(2);
+        assertEquals(Arrays.asList(1, 2), subscriber.items);
+        assertFalse(subscriber.completed);
+        assertEquals(1, dataSource.getOpenConnections());
+
+        subscriber.subscription.request(5);
+        assertEquals(Arrays.asList(1, 2, 3), subscriber.items);
+        assertTrue(subscriber.completed);
+        assertEquals(0, dataSource.getOpenConnections());
+    }
+
+    @Test
+    public void cancelReleasesConnection() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        createSQLFactory().sql().SELECT("id").FROM("student")
+                .asyncExecutor(Runnable::run)
+                .queryPublisher(Integer.class)
+                .subscribe(subscriber);
+
+        subscriber.subscription.request(1);
+        subscriber.subscription.cancel();
+        assertEquals(Arrays.asList(1), subscriber.items);
+        assertFalse(subscriber.completed);
+        assertEquals(0, dataSource.getOpenConnections());
+    }
+
+    @Test
+    public void factoryExecutor() throws InterruptedException {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        createSQLFactory().sql().SELECT("id").FROM("student")
+                .queryPublisher(Integer.class)
+                .subscribe(subscriber);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertTrue(subscriber.done.await(5, TimeUnit.SECONDS));
+        assertTrue(subscriber.completed);
+        assertEquals(Arrays.asList(1, 2, 3), subscriber.items);
+    }
+
+    @Test
+    public void invalidRequest() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        createSQLFactory().sql().SELECT("id").FROM("student")
+                .asyncExecutor(Runnable::run)
+                .queryPublisher(Integer.class)
+                .subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+    }
+
+    /**
+     * sql和参数在queryPublisher()时确定，之后修改SQL构造器不影响订阅
+     */
+    @Test
+    public void resolvesSqlOnce() {
+        SQL sql = createSQLFactory().sql().SELECT("id").FROM("student").WHERE("age > :age")
+                .mapItemsParameter("age", 18)
+                .asyncExecutor(Runnable::run);
+        QueryPublisher<Integer> publisher = sql.queryPublisher(Integer.class);
+        sql.AND("name = :name").mapItemsParameter("age", 20, "name", "小明");
+
+        for (int i = 0; i < 2; i++) {
+            RecordingSubscriber subscriber = new RecordingSubscriber();
+            publisher.subscribe(subscriber);
+            subscriber.subscription.request(10);
+            assertEquals(Arrays.asList(1, 2, 3), subscriber.items);
+        }
+        assertEquals(2, dataSource.getExecutedSql().size());
+        for (int i = 0; i < 2; i++) {
+            assertFalse(dataSource.getExecutedSql().get(i).contains("name"));
+            assertEquals(Arrays.asList(18), dataSource.getExecutedParams().get(i));
+        }
+    }
+}
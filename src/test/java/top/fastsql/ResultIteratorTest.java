@@ -0,0 +1,139 @@
+package top.fastsql;
+
+import org.junit.Test;
+import top.fastsql.config.DataSourceType;
+import top.fastsql.dto.ChunkResult;
+import top.fastsql.dto.RowMap;
+import top.fastsql.mapper.RowMapRowMapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 陈佳志
+ */
+public class ResultIteratorTest {
+
+    private final MockDataSource dataSource = new MockDataSource().result(
+            new String[]{"id", "name"},
+            new Object[]{1, "a"},
+            new Object[]{2, "b"},
+            new Object[]{3, "c"});
+
+    private SQLFactory createSQLFactory() {
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+        return sqlFactory;
+    }
+
+    @Test
+    public void iteratorMapsLazilyAndReleasesConnection() {
+        int[] mapped = {0};
+        ResultIterator<Integer> iterator = createSQLFactory().sql()
+                .SELECT("id").FROM("student").WHERE("name").eqByType("a")
+                .fetchSize(500)
+                .queryIterator((rs, rowNum) -> {
+                    mapped[0]++;
+                    return rs.getInt(1);
+                });
+
+        assertEquals(0, mapped[0]);
+        assertEquals(500, dataSource.getLastFetchSize());
+        assertEquals(1, dataSource.getOpenConnections());
+
+        assertEquals(Integer.valueOf(1), iterator.next());
+        assertEquals(1, mapped[0]);
+        assertEquals(Integer.valueOf(2), iterator.next());
+        assertEquals(Integer.valueOf(3), iterator.next());
+        assertFalse(iterator.hasNext());
+        assertTrue(iterator.isClosed());
+        assertEquals(3, iterator.getRowCount());
+        assertEquals(0, dataSource.getOpenConnections());
+    }
+
+    @Test
+    public void streamCloseReleasesConnection() {
+        List<String> names;
+        try (Stream<RowMap> stream = createSQLFactory().sql().SELECT("*").FROM("student").queryStream(new RowMapRowMapper())) {
+            names = stream.limit(2).map(row -> row.getString("name")).collect(Collectors.toList());
+            assertEquals(1, dataSource.getOpenConnections());
+        }
+        assertEquals(2, names.size());
+        assertEquals("b", names.get(1));
+        assertEquals(0, dataSource.getOpenConnections());
+    }
+
+    @Test
+    public void classicParameters() {
+        SQLFactory sqlFactory = createSQLFactory();
+        try (ResultIterator<Integer> iterator = sqlFactory.sql()
+                .SELECT("id").FROM("student").WHERE("name = ?").varParameter("a").queryIterator(Integer.class)) {
+            assertTrue(iterator.hasNext());
+            assertEquals("SELECT id FROM student WHERE name = ?", dataSource.getLastSql());
+            assertEquals("a", dataSource.getLastParams().get(0));
+        }
+        assertEquals(0, dataSource.getOpenConnections());
+    }
+
+    @Test
+    public void postgresqlCursorRestoresAutoCommit() {
+        SQLFactory sqlFactory = createSQLFactory();
+        sqlFactory.setDataSourceType(DataSourceType.POSTGRESQL);
+        try (Stream<Integer> stream = sqlFactory.sql().SELECT("id").FROM("student")
+                .queryStream((rs, rowNum) -> rs.getInt(1))) {
+            assertEquals(1000, dataSource.getLastFetchSize());
+            assertEquals(Collections.singletonList("setAutoCommit(false)"), dataSource.getConnectionEvents());
+            assertEquals(3, stream.count());
+        }
+        assertEquals(Arrays.asList("setAutoCommit(false)", "commit", "setAutoCommit(true)"),
+                dataSource.getConnectionEvents());
+    }
+
+    @Test
+    public void mysqlStreamsRowByRow() {
+        SQLFactory sqlFactory = createSQLFactory();
+        sqlFactory.setDataSourceType(DataSourceType.MY_SQL);
+        sqlFactory.sql().SELECT("id").FROM("student").queryIterator(Integer.class).close();
+        assertEquals(Integer.MIN_VALUE, dataSource.getLastFetchSize());
+        assertTrue(dataSource.getConnectionEvents().isEmpty());
+
+        dataSource.url("jdbc:mysql://localhost/test?useCursorFetch=true");
+        sqlFactory.sql().SELECT("id").FROM("student").fetchSize(200).queryIterator(Integer.class).close();
+        assertEquals(200, dataSource.getLastFetchSize());
+    }
+
+    @Test
+    public void chunks() {
+        List<List<Integer>> chunks = new ArrayList<>();
+        ChunkResult result = createSQLFactory().sql().SELECT("id").FROM("student")
+                .queryForEachChunk(2, (rs, rowNum) -> rs.getInt(1), chunk -> chunks.add(new ArrayList<>(chunk)));
+
+        assertEquals(Arrays.asList(Arrays.asList(1, 2), Collections.singletonList(3)), chunks);
+        assertEquals(3, result.getRowCount());
+        assertEquals(2, result.getChunkCount());
+        assertFalse(result.isTerminated());
+        assertEquals(2, dataSource.getLastFetchSize());
+        assertEquals(0, dataSource.getOpenConnections());
+    }
+
+    @Test
+    public void chunksTerminateEarly() {
+        List<Integer> seen = new ArrayList<>();
+        ChunkResult result = createSQLFactory().sql().SELECT("id").FROM("student")
+                .queryForEachChunkWhile(1, (rs, rowNum) -> rs.getInt(1), chunk -> {
+                    seen.addAll(chunk);
+                    return chunk.get(0) < 2;
+                });
+
+        assertEquals(Arrays.asList(1, 2), seen);
+        assertEquals(2, result.getChunkCount());
+        assertTrue(result.isTerminated());
+        assertEquals(0, dataSource.getOpenConnections());
+    }
+}
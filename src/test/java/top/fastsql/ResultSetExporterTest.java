@@ -0,0 +1,49 @@
+package top.fastsql;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author 陈佳志
+ */
+public class ResultSetExporterTest {
+
+    private SQLFactory createSQLFactory() {
+        MockDataSource dataSource = new MockDataSource().result(
+                new String[]{"id", "name", "score", "created", "active"},
+                new Object[]{1L, "a,\"b\"", new BigDecimal("12.50"), Timestamp.valueOf("2018-01-02 03:04:05"), true},
+                new Object[]{-20L, "中文😀\n", null, Timestamp.valueOf("2018-01-02 03:04:05.120"), false});
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+        return sqlFactory;
+    }
+
+    @Test
+    public void csv() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = createSQLFactory().sql().SELECT("*").FROM("student").exportCsv(Channels.newChannel(out));
+
+        assertEquals(2, rows);
+        assertEquals("id,name,score,created,active\n" +
+                        "1,\"a,\"\"b\"\"\",12.50,2018-01-02 03:04:05,true\n" +
+                        "-20,\"中文😀\n\",,2018-01-02 03:04:05.120,false\n",
+                new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void ndjson() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        createSQLFactory().sql().SELECT("*").FROM("student").exportNdjson(Channels.newChannel(out));
+
+        assertEquals("{\"id\":1,\"name\":\"a,\\\"b\\\"\",\"score\":12.50,\"created\":\"2018-01-02 03:04:05\",\"active\":true}\n" +
+                        "{\"id\":-20,\"name\":\"中文😀\\n\",\"score\":null,\"created\":\"2018-01-02 03:04:05.120\",\"active\":false}\n",
+                new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
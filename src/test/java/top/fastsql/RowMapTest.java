@@ -0,0 +1,106 @@
+package top.fastsql;
+
+import org.junit.Test;
+import top.fastsql.dto.RowMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 陈佳志
+ */
+public class RowMapTest {
+
+    @Test
+    public void queryRowMapList() {
+        MockDataSource dataSource = new MockDataSource().result(new String[]{"id", "name", "NAME"},
+                new Object[]{1, "a", "b"}, new Object[]{2, null, "c"});
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+
+        List<RowMap> list = sqlFactory.sql().SELECT("*").FROM("student").queryRowMapList();
+        assertEquals(2, list.size());
+        assertSame(list.get(0).getSchema(), list.get(1).getSchema());
+
+        RowMap first = list.get(0);
+        assertEquals(2, first.size());
+        assertEquals(Integer.valueOf(1), first.getInteger("id"));
+        assertNull(first.get("ID"));
+        assertEquals("b", first.getString("NAME"));
+        assertEquals("[id, NAME]", first.keySet().toString());
+
+        Map<String, Object> expected = new HashMap<>();
+        expected.put("id", 2);
+        expected.put("NAME", "c");
+        assertEquals(expected, list.get(1));
+    }
+
+    @Test
+    public void mutate() {
+        RowMap.Schema schema = new RowMap.Schema("id", "name");
+        RowMap row = new RowMap(schema, new Object[]{1, "a"});
+        RowMap other = new RowMap(schema, new Object[]{2, "b"});
+
+        row.put("age", 10);
+        assertEquals(10, row.get("age"));
+        assertFalse(other.containsKey("age"));
+        //每行新增相同的列时共用派生的Schema
+        other.put("age", 11);
+        assertSame(row.getSchema(), other.getSchema());
+        other.put("age", 12);
+        assertEquals(12, other.get("age"));
+
+        assertEquals("a", row.remove("name"));
+        assertEquals("{id=1, age=10}", row.toString());
+        assertEquals("b", other.get("name"));
+
+        row.entrySet().removeIf(e -> e.getKey().equals("id"));
+        assertEquals(1, row.size());
+
+        RowMap copy = new RowMap(expectedMap());
+        assertNull(copy.get("name"));
+        assertTrue(copy.containsKey("name"));
+    }
+
+    private Map<String, Object> expectedMap() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("name", null);
+        return map;
+    }
+
+    /**
+     * 仍然是HashMap，序列化后的内容相同
+     */
+    @Test
+    public void hashMapCompatible() throws Exception {
+        RowMap row = new RowMap(new RowMap.Schema("id", "name"), new Object[]{1, "a"});
+        HashMap<String, Object> map = row;
+        assertEquals(Integer.valueOf(2), map.merge("id", 1, (a, b) -> (Integer) a + (Integer) b));
+        assertNull(row.getSchema());
+        assertEquals("a", row.get("name"));
+
+        RowMap compact = new RowMap(new RowMap.Schema("id", "name"), new Object[]{1, "a"});
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(compact);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            RowMap copy = (RowMap) in.readObject();
+            assertEquals(compact, copy);
+            assertEquals("a", copy.getString("name"));
+        }
+        assertNotNull(compact.getSchema());
+
+        Map<String, Object> cloned = (RowMap) compact.clone();
+        cloned.put("age", 10);
+        assertEquals(3, cloned.size());
+        assertEquals(2, compact.size());
+    }
+}
@@ -0,0 +1,188 @@
+package top.fastsql;
+
+import org.junit.Test;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import top.fastsql.config.DataSourceType;
+import top.fastsql.config.InClauseMode;
+
+import java.sql.Array;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static top.fastsql.util.FastSqlUtils.listOf;
+
+/**
+ * 不连接数据库，只测试sql的构建
+ *
+ * @author 陈佳志
+ */
+public class SQLBuildTest {
+
+    private SQLFactory createFactory() {
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(new SimpleDriverDataSource());
+        return sqlFactory;
+    }
+
+    @Test
+    public void inLiteral() {
+        String sql = createFactory().sql().SELECT("*").FROM("student").WHERE("id").IN(listOf(1, 2, 3)).build();
+        assertEquals("SELECT * FROM student WHERE id IN (1,2,3)", sql);
+    }
+
+    @Test
+    public void inParameter() {
+        SQLFactory sqlFactory = createFactory();
+        sqlFactory.setInClauseMode(InClauseMode.PARAMETER);
+
+        String sql = sqlFactory.sql().SELECT("*").FROM("student").WHERE("id").IN(listOf(1, 2, 3)).build();
+        assertEquals("SELECT * FROM student WHERE id IN (:fastsqlP0,:fastsqlP1,:fastsqlP2,:fastsqlP3)", sql);
+
+        sql = sqlFactory.sql().SELECT("*").FROM("student").WHERE("name").NOT_IN_var("a").build();
+        assertEquals("SELECT * FROM student WHERE name NOT IN (:fastsqlP0)", sql);
+    }
+
+    /**
+     * 批量执行时每一行都绑定IN中的参数
+     */
+    @Test
+    public void inParameterBatch() {
+        MockDataSource dataSource = new MockDataSource();
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+        sqlFactory.setInClauseMode(InClauseMode.PARAMETER);
+
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{"a", 10});
+        rows.add(new Object[]{"b", 20});
+        rows.add(new Object[]{"c", 30});
+        sqlFactory.sql().UPDATE("student").SET("name = ?").WHERE("id").IN(listOf(1, 2))
+                .AND("age > ?").batchUpdateByArrays(rows);
+
+        String sql = "UPDATE student SET name = ? WHERE id IN (?,?) AND age > ?";
+        assertEquals(Arrays.asList(sql, sql, sql), dataSource.getExecutedSql());
+        assertEquals(Arrays.asList(listOf("a", 1, 2, 10), listOf("b", 1, 2, 20), listOf("c", 1, 2, 30)),
+                dataSource.getExecutedParams());
+    }
+
+    @Test
+    public void inParameterChunked() {
+        SQLFactory sqlFactory = createFactory();
+        sqlFactory.setInClauseMode(InClauseMode.PARAMETER);
+        sqlFactory.setInClauseMaxSize(2);
+
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(i);
+        }
+        String sql = sqlFactory.sql().SELECT("*").FROM("student s").WHERE("1=1").AND("s.id").IN(ids).build();
+        assertEquals("SELECT * FROM student s WHERE 1=1 AND (s.id IN (:fastsqlP0,:fastsqlP1)" +
+                " OR s.id IN (:fastsqlP2,:fastsqlP3) OR s.id IN (:fastsqlP4))", sql);
+    }
+
+    @Test
+    public void inParameterWithVarParameter() {
+        MockDataSource dataSource = new MockDataSource();
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+        sqlFactory.setInClauseMode(InClauseMode.PARAMETER);
+
+        sqlFactory.sql().UPDATE("student").SET("name = ?").WHERE("id").IN(listOf(1, 2, 3))
+                .AND("age > ?").varParameter("a", 10).update();
+        assertEquals("UPDATE student SET name = ? WHERE id IN (?,?,?,?) AND age > ?", dataSource.getLastSql());
+        assertEquals(listOf("a", 1, 2, 3, 3, 10), dataSource.getLastParams());
+    }
+
+    /**
+     * PostgreSQL数组的元素类型按日期、时间、时间戳区分
+     */
+    @Test
+    public void inArrayTemporalTypes() throws Exception {
+        MockDataSource dataSource = new MockDataSource();
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+        sqlFactory.setDataSourceType(DataSourceType.POSTGRESQL);
+
+        LocalDateTime time = LocalDateTime.of(2018, 8, 1, 10, 20, 30);
+        Object[][] cases = {
+                {"date", LocalDate.of(2018, 8, 1)},
+                {"date", java.sql.Date.valueOf("2018-08-01")},
+                {"time", LocalTime.of(10, 20, 30)},
+                {"time", java.sql.Time.valueOf("10:20:30")},
+                {"timestamp", time},
+                {"timestamp", Timestamp.valueOf(time)}
+        };
+        for (Object[] c : cases) {
+            sqlFactory.sql().DELETE_FROM("student").WHERE("birthday").IN(listOf(c[1]), InClauseMode.ARRAY).update();
+            Array array = (Array) dataSource.getLastParams().get(0);
+            assertEquals(c[1].getClass().getName(), c[0], array.getBaseTypeName());
+        }
+    }
+
+    @Test
+    public void inArray() throws Exception {
+        MockDataSource dataSource = new MockDataSource();
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+        sqlFactory.setDataSourceType(DataSourceType.POSTGRESQL);
+
+        sqlFactory.sql().DELETE_FROM("student").WHERE("id").IN(listOf(1L, 2L, 3L), InClauseMode.ARRAY).update();
+        assertEquals("DELETE FROM student WHERE id = ANY(?)", dataSource.getLastSql());
+        Array array = (Array) dataSource.getLastParams().get(0);
+        assertEquals("int8", array.getBaseTypeName());
+        assertArrayEquals(new Object[]{1L, 2L, 3L}, (Object[]) array.getArray());
+
+        String sql = sqlFactory.sql().SELECT("*").FROM("student").WHERE("id")
+                .NOT_IN(listOf(1, 2), InClauseMode.ARRAY).build();
+        assertEquals("SELECT * FROM student WHERE id <> ALL(:fastsqlP0)", sql);
+
+        sqlFactory.setDataSourceType(DataSourceType.ORACLE);
+        sql = sqlFactory.sql().SELECT("*").FROM("student").WHERE("id").IN(listOf(1, 2), InClauseMode.ARRAY).build();
+        assertEquals("SELECT * FROM student WHERE id IN (SELECT COLUMN_VALUE FROM TABLE(:fastsqlP0))", sql);
+
+        //MySQL退化为占位符
+        sqlFactory.setDataSourceType(DataSourceType.MY_SQL);
+        sql = sqlFactory.sql().SELECT("*").FROM("student").WHERE("id").IN(listOf(1, 2, 3), InClauseMode.ARRAY).build();
+        assertEquals("SELECT * FROM student WHERE id IN (:fastsqlP0,:fastsqlP1,:fastsqlP2,:fastsqlP3)", sql);
+    }
+
+    @Test
+    public void byTypeLiteral() {
+        LocalDateTime time = LocalDateTime.of(2017, 8, 15, 10, 20, 30);
+        String sql = createFactory().sql().SELECT("*").FROM("student")
+                .WHERE("name").eqByType("小明")
+                .AND("age").eqByType(10)
+                .AND("birthday").eqByType(LocalDate.of(2000, 1, 2))
+                .AND("create_time").eqByType(time)
+                .AND("update_time").eqByType(Timestamp.valueOf(time))
+                .AND("deleted").eqByType(null)
+                .build();
+        assertEquals("SELECT * FROM student WHERE name = '小明' AND age = 10 AND birthday = '2000-01-02'" +
+                " AND create_time = '2017-08-15 10:20:30' AND update_time = '2017-08-15 10:20:30'" +
+                " AND deleted IS NULL", sql);
+    }
+
+    @Test
+    public void byTypeAutoParameterize() {
+        MockDataSource dataSource = new MockDataSource();
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+        sqlFactory.setAutoParameterize(true);
+
+        String sql = sqlFactory.sql().SELECT("*").FROM("student").WHERE("name").eqByType("小明").build();
+        assertEquals("SELECT * FROM student WHERE name = :fastsqlP0", sql);
+
+        sqlFactory.sql().UPDATE("student").SET("name = ?").WHERE("age").eqByType(10)
+                .AND("birthday >").byType(LocalDate.of(2000, 1, 2)).AND("grade = ?")
+                .varParameter("a", 3).update();
+        assertEquals("UPDATE student SET name = ? WHERE age = ? AND birthday >? AND grade = ?", dataSource.getLastSql());
+        assertEquals(listOf("a", 10, java.sql.Date.valueOf("2000-01-02"), 3), dataSource.getLastParams());
+    }
+}
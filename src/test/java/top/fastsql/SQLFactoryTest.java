@@ -1,10 +1,18 @@
 package top.fastsql;
 
 import org.junit.Test;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SingleColumnRowMapper;
 import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import top.fastsql.config.DataSourceType;
+import top.fastsql.mapper.OraclePagingSingleColumnRowMapper;
 
 import javax.sql.DataSource;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
 public class SQLFactoryTest {
 
     @Test
@@ -25,4 +33,42 @@ public class SQLFactoryTest {
         SQL sql = sqlFactory.createSQL();
 //        Student student = sql.SELECT("*").FROM("student").WHERE("id=101").queryOne(Student.class);
     }
+
+    @Test
+    public void shareNamedParameterJdbcTemplate() {
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(new SimpleDriverDataSource());
+        sqlFactory.setParsedSqlCacheLimit(2);
+
+        assertSame(sqlFactory.sql().getNamedParameterJdbcTemplate(), sqlFactory.sql().getNamedParameterJdbcTemplate());
+
+        sqlFactory.getNamedParameterJdbcTemplate().parse("SELECT * FROM student WHERE id=:id");
+        sqlFactory.getNamedParameterJdbcTemplate().parse("SELECT * FROM student WHERE id=:id");
+        assertEquals(1, sqlFactory.getParsedSqlCache().getHitCount());
+        assertEquals(1, sqlFactory.getParsedSqlCache().getMissCount());
+
+        sqlFactory.getNamedParameterJdbcTemplate().parse("SELECT 1");
+        sqlFactory.getNamedParameterJdbcTemplate().parse("SELECT 2");
+        assertEquals(2, sqlFactory.getParsedSqlCache().size());
+    }
+
+    @Test
+    public void rowMapperRegistry() {
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(new SimpleDriverDataSource());
+
+        RowMapper<TestEntity> rowMapper = sqlFactory.getRowMapper(TestEntity.class);
+        assertSame(rowMapper, sqlFactory.getRowMapper(TestEntity.class));
+        assertEquals(1, sqlFactory.getRowMapperRegistry().getCache().getHitCount());
+        assertEquals(1, sqlFactory.getRowMapperRegistry().getCache().getMissCount());
+
+        RowMapper<TestEntity> custom = (rs, rowNum) -> new TestEntity();
+        sqlFactory.registerRowMapper(TestEntity.class, custom);
+        assertSame(custom, sqlFactory.getRowMapper(TestEntity.class));
+
+        sqlFactory.setDataSourceType(DataSourceType.ORACLE);
+        assertTrue(sqlFactory.getRowMapper(Integer.class) instanceof OraclePagingSingleColumnRowMapper);
+        sqlFactory.setDataSourceType(DataSourceType.MY_SQL);
+        assertTrue(sqlFactory.getRowMapper(Integer.class) instanceof SingleColumnRowMapper);
+    }
 }
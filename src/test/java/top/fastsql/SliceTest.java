@@ -0,0 +1,51 @@
+package top.fastsql;
+
+import org.junit.Test;
+import top.fastsql.dto.Slice;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 陈佳志
+ */
+public class SliceTest {
+
+    private SQLFactory createSQLFactory(MockDataSource dataSource) {
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+        return sqlFactory;
+    }
+
+    @Test
+    public void hasNext() {
+        MockDataSource dataSource = new MockDataSource()
+                .result(new String[]{"id"}, new Object[]{1}, new Object[]{2}, new Object[]{3});
+        Slice<Integer> slice = createSQLFactory(dataSource).sql().SELECT("id").FROM("student")
+                .querySlice(1, 2, Integer.class);
+
+        assertEquals(Arrays.asList(1, 2), slice.getContent());
+        assertTrue(slice.hasNext());
+        assertFalse(slice.hasPrevious());
+        assertEquals(1, dataSource.getExecutedSql().size());
+        assertTrue(dataSource.getLastSql().endsWith("LIMIT 3 OFFSET 0"));
+    }
+
+    @Test
+    public void lastSlice() {
+        MockDataSource dataSource = new MockDataSource()
+                .result(new String[]{"id"}, new Object[]{5});
+        Slice<Integer> slice = createSQLFactory(dataSource).sql().SELECT("id").FROM("student").WHERE("id > ?")
+                .varParameter(4)
+                .querySlice(3, 2, Integer.class);
+
+        assertEquals(Arrays.asList(5), slice.getContent());
+        assertFalse(slice.hasNext());
+        assertTrue(slice.hasPrevious());
+        assertTrue(dataSource.getLastSql().endsWith("LIMIT 3 OFFSET 4"));
+        for (String sql : dataSource.getExecutedSql()) {
+            assertFalse(sql, sql.contains("count("));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package top.fastsql;
+
+import org.junit.Test;
+import top.fastsql.config.CountMode;
+import top.fastsql.config.DataSourceType;
+import top.fastsql.dto.ResultPage;
+import top.fastsql.dto.RowMap;
+import top.fastsql.mapper.RowMapRowMapper;
+import top.fastsql.util.WindowCountParser;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 陈佳志
+ */
+public class WindowCountTest {
+
+    private SQLFactory createSQLFactory(MockDataSource dataSource) {
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+        sqlFactory.setCountMode(CountMode.WINDOW);
+        return sqlFactory;
+    }
+
+    @Test
+    public void rewrite() {
+        assertEquals("SELECT *, COUNT(*) OVER () AS fastsql_total FROM student WHERE age > ? ORDER BY name",
+                WindowCountParser.getWindowCountSQL("SELECT * FROM student WHERE age > ? ORDER BY name",
+                        DataSourceType.POSTGRESQL));
+        assertEquals("SELECT s.*, COUNT(*) OVER () AS fastsql_total FROM student s",
+                WindowCountParser.getWindowCountSQL("SELECT * FROM student s", DataSourceType.ORACLE));
+        assertNull(WindowCountParser.getWindowCountSQL("SELECT DISTINCT name FROM student",
+                DataSourceType.POSTGRESQL));
+        assertNull(WindowCountParser.getWindowCountSQL("SELECT id FROM a UNION SELECT id FROM b",
+                DataSourceType.POSTGRESQL));
+    }
+
+    @Test
+    public void singleRoundTrip() {
+        MockDataSource dataSource = new MockDataSource()
+                .result(new String[]{"id", "fastsql_total"}, new Object[]{1, 42L}, new Object[]{2, 42L});
+        ResultPage<Integer> page = createSQLFactory(dataSource).sql().SELECT("id").FROM("student")
+                .queryPage(1, 2, Integer.class);
+
+        assertEquals(Arrays.asList(1, 2), page.getContent());
+        assertEquals(42, page.getTotalElements());
+        assertEquals(1, dataSource.getExecutedSql().size());
+        assertTrue(dataSource.getLastSql().contains("COUNT(*) OVER ()"));
+    }
+
+    @Test
+    public void totalColumnHidden() {
+        MockDataSource dataSource = new MockDataSource()
+                .result(new String[]{"id", "fastsql_total", "name"}, new Object[]{1, 5L, "a"});
+        ResultPage<RowMap> page = createSQLFactory(dataSource).sql().SELECT("id", "name").FROM("student")
+                .queryPage(1, 2, new RowMapRowMapper());
+
+        RowMap row = page.getContent().get(0);
+        assertEquals(2, row.size());
+        assertEquals("a", row.get("name"));
+        assertFalse(row.containsKey("fastsql_total"));
+        assertEquals(5, page.getTotalElements());
+    }
+
+    @Test
+    public void emptyPageFallsBackToCount() {
+        MockDataSource dataSource = new MockDataSource()
+                .result(new String[]{"id", "fastsql_total"})
+                .resultWhen("count(", new String[]{"count"}, new Object[]{3});
+        ResultPage<Integer> page = createSQLFactory(dataSource).sql().SELECT("id").FROM("student")
+                .queryPage(5, 2, Integer.class);
+
+        assertTrue(page.getContent().isEmpty());
+        assertEquals(3, page.getTotalElements());
+        assertEquals(2, dataSource.getExecutedSql().size());
+    }
+}
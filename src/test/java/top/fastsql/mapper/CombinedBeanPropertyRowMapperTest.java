@@ -0,0 +1,158 @@
+package top.fastsql.mapper;
+
+import org.junit.Test;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.core.convert.support.GenericConversionService;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import top.fastsql.MockDataSource;
+import top.fastsql.SQLFactory;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 陈佳志
+ */
+public class CombinedBeanPropertyRowMapperTest {
+
+    public static class School {
+        private String schoolName;
+
+        public String getSchoolName() {
+            return schoolName;
+        }
+
+        public void setSchoolName(String schoolName) {
+            this.schoolName = schoolName;
+        }
+    }
+
+    public static class Clazz {
+        private String clazzName;
+
+        @InnerBeanMapped
+        private School school;
+
+        public String getClazzName() {
+            return clazzName;
+        }
+
+        public void setClazzName(String clazzName) {
+            this.clazzName = clazzName;
+        }
+
+        public School getSchool() {
+            return school;
+        }
+    }
+
+    public static class Student {
+        private String name;
+
+        @InnerBeanMapped
+        private Clazz clazz;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Clazz getClazz() {
+            return clazz;
+        }
+    }
+
+    public static class Level {
+        private final String code;
+
+        private Level(String code) {
+            this.code = code;
+        }
+    }
+
+    public static class Teacher {
+        private int age;
+
+        private Level level;
+
+        @InnerBeanMapped
+        private School school;
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+
+        public Level getLevel() {
+            return level;
+        }
+
+        public void setLevel(Level level) {
+            this.level = level;
+        }
+    }
+
+    @Test
+    public void nestedBeans() {
+        MockDataSource dataSource = new MockDataSource().result(
+                new String[]{"name", "clazz_name", "school_name"},
+                new Object[]{"小明", "一班", "一中"},
+                new Object[]{"小红", "二班", "二中"});
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+
+        List<Student> list = sqlFactory.sql().SELECT("*").FROM("student")
+                .queryList(new CombinedBeanPropertyRowMapper<>(Student.class));
+
+        assertEquals(2, list.size());
+        assertEquals("小明", list.get(0).getName());
+        assertEquals("一班", list.get(0).getClazz().getClazzName());
+        assertEquals("一中", list.get(0).getClazz().getSchool().getSchoolName());
+        assertEquals("二中", list.get(1).getClazz().getSchool().getSchoolName());
+        assertNotSame(list.get(0).getClazz(), list.get(1).getClazz());
+    }
+
+    /**
+     * BeanPropertyRowMapper的设置对映射计划同样有效
+     */
+    @Test
+    public void beanPropertyRowMapperSettings() {
+        MockDataSource dataSource = new MockDataSource().result(
+                new String[]{"age", "level", "school_name"}, new Object[]{null, "A", "一中"});
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+
+        GenericConversionService conversionService = new GenericConversionService();
+        conversionService.addConverter(String.class, Level.class, Level::new);
+        CombinedBeanPropertyRowMapper<Teacher> rowMapper = new CombinedBeanPropertyRowMapper<>(Teacher.class);
+        rowMapper.setConversionService(conversionService);
+        try {
+            sqlFactory.sql().SELECT("*").FROM("teacher").queryList(rowMapper);
+            fail();
+        } catch (TypeMismatchException e) {
+            assertEquals("age", e.getPropertyName());
+        }
+
+        rowMapper.setPrimitivesDefaultedForNullValue(true);
+        Teacher teacher = sqlFactory.sql().SELECT("*").FROM("teacher").queryList(rowMapper).get(0);
+        assertEquals(0, teacher.getAge());
+        assertEquals("A", teacher.getLevel().code);
+        assertEquals("一中", teacher.school.getSchoolName());
+
+        rowMapper.setCheckFullyPopulated(true);
+        dataSource.result(new String[]{"age"}, new Object[]{30});
+        try {
+            sqlFactory.sql().SELECT("age").FROM("teacher").queryList(rowMapper);
+            fail();
+        } catch (InvalidDataAccessApiUsageException e) {
+            assertTrue(e.getMessage().contains("level"));
+        }
+    }
+}
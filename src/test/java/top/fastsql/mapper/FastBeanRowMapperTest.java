@@ -0,0 +1,172 @@
+package top.fastsql.mapper;
+
+import org.junit.Test;
+import top.fastsql.MockDataSource;
+import top.fastsql.ResultIterator;
+import top.fastsql.SQLFactory;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author 陈佳志
+ */
+public class FastBeanRowMapperTest {
+
+    public enum Gender {
+        MALE, FEMALE
+    }
+
+    public static class Student {
+        private Long id;
+        private String studentName;
+        private int age;
+        private Integer grade;
+        private BigDecimal score;
+        private LocalDateTime createTime;
+        private Gender gender;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public String getStudentName() {
+            return studentName;
+        }
+
+        public void setStudentName(String studentName) {
+            this.studentName = studentName;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+
+        public Integer getGrade() {
+            return grade;
+        }
+
+        public void setGrade(Integer grade) {
+            this.grade = grade;
+        }
+
+        public BigDecimal getScore() {
+            return score;
+        }
+
+        public void setScore(BigDecimal score) {
+            this.score = score;
+        }
+
+        public LocalDateTime getCreateTime() {
+            return createTime;
+        }
+
+        public void setCreateTime(LocalDateTime createTime) {
+            this.createTime = createTime;
+        }
+
+        public Gender getGender() {
+            return gender;
+        }
+
+        public void setGender(Gender gender) {
+            this.gender = gender;
+        }
+    }
+
+    /**
+     * 非public类，使用MethodHandle调用
+     */
+    private static class PrivateStudent {
+        private String name;
+        private int age;
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+    }
+
+    @Test
+    public void mapRow() {
+        Timestamp time = Timestamp.valueOf("2018-08-01 10:00:00");
+        MockDataSource dataSource = new MockDataSource().result(
+                new String[]{"id", "student_name", "AGE", "grade", "score", "create_time", "gender", "RN"},
+                new Object[]{1L, "小明", 18, 3, new BigDecimal("90.5"), time, "MALE", 1},
+                new Object[]{2L, "小红", null, null, null, null, null, 2});
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+
+        List<Student> list = sqlFactory.sql().SELECT("*").FROM("student").queryList(Student.class);
+        assertEquals(2, list.size());
+
+        Student first = list.get(0);
+        assertEquals(Long.valueOf(1), first.getId());
+        assertEquals("小明", first.getStudentName());
+        assertEquals(18, first.getAge());
+        assertEquals(Integer.valueOf(3), first.getGrade());
+        assertEquals(new BigDecimal("90.5"), first.getScore());
+        assertEquals(time.toLocalDateTime(), first.getCreateTime());
+        assertEquals(Gender.MALE, first.getGender());
+
+        Student second = list.get(1);
+        assertEquals(0, second.getAge());
+        assertNull(second.getGrade());
+        assertNull(second.getCreateTime());
+        assertNull(second.getGender());
+    }
+
+    @Test
+    public void nonPublicClass() {
+        MockDataSource dataSource = new MockDataSource().result(new String[]{"name", "age"}, new Object[]{"小明", 18});
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+
+        PrivateStudent student = sqlFactory.sql().SELECT("*").FROM("student").queryOne(PrivateStudent.class);
+        assertEquals("小明", student.name);
+        assertEquals(18, student.age);
+        assertSame(FastBeanRowMapper.of(PrivateStudent.class), FastBeanRowMapper.of(PrivateStudent.class));
+    }
+
+    /**
+     * 同一个mapper交替映射列布局不同的两个结果集
+     */
+    @Test
+    public void interleavedResultSets() {
+        MockDataSource dataSource = new MockDataSource()
+                .resultWhen("FROM a", new String[]{"id", "student_name"},
+                        new Object[]{1L, "小明"}, new Object[]{2L, "小红"})
+                .resultWhen("FROM b", new String[]{"student_name", "age"},
+                        new Object[]{"小刚", 17}, new Object[]{"小丽", 16});
+        SQLFactory sqlFactory = new SQLFactory();
+        sqlFactory.setDataSource(dataSource);
+
+        try (ResultIterator<Student> a = sqlFactory.sql().SELECT("*").FROM("a").queryIterator(Student.class);
+             ResultIterator<Student> b = sqlFactory.sql().SELECT("*").FROM("b").queryIterator(Student.class)) {
+            assertEquals(Long.valueOf(1), a.next().getId());
+            Student first = b.next();
+            assertEquals("小刚", first.getStudentName());
+            assertEquals(17, first.getAge());
+            Student second = a.next();
+            assertEquals(Long.valueOf(2), second.getId());
+            assertEquals("小红", second.getStudentName());
+            assertEquals(16, b.next().getAge());
+        }
+    }
+}